@@ -0,0 +1,65 @@
+package benchmarks;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+
+/**
+ * Fixed positions the benchmarks run against, so results are comparable between runs
+ */
+public final class BenchmarkPositions {
+
+    // Ruy Lopez after 4...Nf6, every piece still on the board
+    public static final String OPENING = "r1bqkb1r/1ppp1ppp/p1n2n2/4p3/B3P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 2 5";
+    public static final String MIDDLEGAME = "r1bq1rk1/pp2bppp/2np1n2/2p1p3/2B1P3/2NP1N2/PPP2PPP/R1BQ1RK1 w - - 0 8";
+    // rook and pawns with a passed pawn and both kings active
+    public static final String ENDGAME = "8/5pk1/6p1/3R4/1r3P2/6P1/5K2/8 w - - 0 40";
+
+    // the same three phases with the side to move in check but not mated, for the checkmate and check-evasion paths
+    public static final String OPENING_CHECK = "rnbqkbnr/ppp2ppp/3p4/1B2p3/4P3/5N2/PPPP1PPP/RNBQK2R b KQkq - 1 3";
+    public static final String MIDDLEGAME_CHECK = "r1bq1rk1/pp2bBpp/2np1n2/2p1p3/4P3/2NP1N2/PPP2PPP/R1BQ1RK1 b - - 0 8";
+    public static final String ENDGAME_CHECK = "8/5pk1/6p1/3R4/5P2/6P1/1r3K2/8 w - - 0 41";
+
+    private BenchmarkPositions() {
+
+    }
+
+    /**
+     * Builds a board from a FEN string
+     *
+     * @param fen position in Forsyth-Edwards Notation
+     * @return the loaded board
+     */
+    public static ChessBoard loadBoard(String fen) {
+        return ChessGame.fromFen(fen).getBoard();
+    }
+
+    /**
+     * Looks up a corpus position by name, for use with a JMH @Param
+     *
+     * @param name OPENING, MIDDLEGAME or ENDGAME
+     * @return the position's FEN
+     */
+    public static String byName(String name) {
+        return switch (name) {
+            case "OPENING" -> OPENING;
+            case "MIDDLEGAME" -> MIDDLEGAME;
+            case "ENDGAME" -> ENDGAME;
+            default -> throw new IllegalArgumentException("Unknown benchmark position " + name);
+        };
+    }
+
+    /**
+     * Looks up the in-check position for a game phase, for use with a JMH @Param
+     *
+     * @param name OPENING, MIDDLEGAME or ENDGAME
+     * @return FEN of a position from that phase where the side to move is in check
+     */
+    public static String inCheckByName(String name) {
+        return switch (name) {
+            case "OPENING" -> OPENING_CHECK;
+            case "MIDDLEGAME" -> MIDDLEGAME_CHECK;
+            case "ENDGAME" -> ENDGAME_CHECK;
+            default -> throw new IllegalArgumentException("Unknown benchmark position " + name);
+        };
+    }
+}
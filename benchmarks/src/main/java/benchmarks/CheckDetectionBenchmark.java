@@ -0,0 +1,56 @@
+package benchmarks;
+
+import chess.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the attack-query check test in ValidMoveFilter against the move-scan approach it replaced,
+ * which generated every enemy piece's moves and looked for one landing on the king.
+ * <p>
+ * Run with: java -jar benchmarks/target/benchmarks.jar CheckDetectionBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CheckDetectionBenchmark {
+
+    private ChessBoard board;
+    private ValidMoveFilter moveFilter;
+    private ChessPosition kingPosition;
+
+    @Setup
+    public void setup() {
+        board = BenchmarkPositions.loadBoard(BenchmarkPositions.MIDDLEGAME);
+        moveFilter = new ValidMoveFilter();
+        kingPosition = new ChessPosition(1, 7);
+    }
+
+    @Benchmark
+    public boolean attackQuery() {
+        return moveFilter.checkIfInCheck(board, kingPosition, ChessGame.TeamColor.WHITE);
+    }
+
+    @Benchmark
+    public boolean moveScan() {
+        for (int i = 1; i < 9; i++) {
+            for (int j = 1; j < 9; j++) {
+                ChessPosition currentPosition = new ChessPosition(i, j);
+                ChessPiece currentPiece = board.getPiece(currentPosition);
+                if (currentPiece == null || currentPiece.getTeamColor() == ChessGame.TeamColor.WHITE) {
+                    continue;
+                }
+                for (ChessMove move : currentPiece.pieceMoves(board, currentPosition)) {
+                    if (move.getEndPosition().equals(kingPosition)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,153 @@
+package benchmarks;
+
+import chess.*;
+import chess.engine.Evaluator;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import serialization.Serializers;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The engine calls the server makes on every move, run over an opening, a middlegame and an
+ * endgame so a regression in any game phase shows up. Allocation matters as much as speed here,
+ * so run with the GC profiler, either through main or with -prof gc:
+ * <p>
+ * ChessGame memoizes the side to move's moves and status, so the move generation benchmarks ask
+ * about the other side, which is always worked out from scratch. evaluateStatus measures the
+ * memoized path. isInCheckmate runs on the phase's in-check position with the checked side made the one
+ * not to move, so it generates the evasions every call instead of stopping at the check test or reading
+ * the memoized status. evaluate reads the board's running evaluation sums, evaluateByScan works the
+ * same score out from every piece, so the two show what keeping the sums saves per search node.
+ * <p>
+ * java -jar benchmarks/target/benchmarks.jar EngineBenchmark -prof gc
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark {
+
+    @Param({"OPENING", "MIDDLEGAME", "ENDGAME"})
+    public String position;
+
+    private ChessGame game;
+    private ChessGame.TeamColor sideToMove;
+    private ChessGame.TeamColor opponent;
+    private ChessMove firstMove;
+    private ChessGame inCheck;
+    private ChessGame.TeamColor checkedSide;
+    private ChessBoard copy;
+    private Gson serializer;
+    private Evaluator evaluator;
+    private String json;
+
+    @Setup
+    public void setup() {
+        game = ChessGame.fromFen(BenchmarkPositions.byName(position));
+        sideToMove = game.getTeamTurn();
+        opponent = sideToMove == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        firstMove = game.legalMoves(sideToMove).iterator().next();
+        inCheck = ChessGame.fromFen(BenchmarkPositions.inCheckByName(position));
+        checkedSide = inCheck.getTeamTurn();
+        inCheck.setTeamTurn(checkedSide == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE);
+        copy = new ChessBoard();
+        serializer = Serializers.gson();
+        evaluator = new Evaluator();
+        json = serializer.toJson(game);
+    }
+
+    @Benchmark
+    public void validMoves(Blackhole blackhole) {
+        ChessBoard board = game.getBoard();
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPosition square = ChessPosition.of(row, col);
+                ChessPiece piece = board.getPiece(square);
+                if (piece != null && piece.getTeamColor() == sideToMove) {
+                    blackhole.consume(game.validMoves(square));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public Collection<ChessMove> legalMoves() {
+        return game.legalMoves(opponent);
+    }
+
+    @Benchmark
+    public ChessGame.GameStatus evaluateStatus() {
+        return game.evaluateStatus();
+    }
+
+    @Benchmark
+    public ChessBoard makeMove() throws InvalidMoveException {
+        game.makeMove(firstMove);
+        game.getBoard().unmakeMove();
+        game.setTeamTurn(sideToMove);
+        return game.getBoard();
+    }
+
+    @Benchmark
+    public boolean isInCheck() {
+        return game.isInCheck(sideToMove);
+    }
+
+    @Benchmark
+    public boolean isInCheckmate() {
+        return inCheck.isInCheckmate(checkedSide);
+    }
+
+    @Benchmark
+    public boolean isInStalemate() {
+        return game.isInStalemate(opponent);
+    }
+
+    @Benchmark
+    public int evaluate() {
+        return evaluator.evaluate(game.getBoard(), sideToMove);
+    }
+
+    @Benchmark
+    public int evaluateByScan() {
+        return evaluator.evaluateByScan(game.getBoard(), sideToMove);
+    }
+
+    @Benchmark
+    public int copyAndHash() {
+        copy.setGivenBoard(game.getBoard());
+        return copy.hashCode();
+    }
+
+    @Benchmark
+    public ChessGame gsonRoundTrip() {
+        return serializer.fromJson(serializer.toJson(game), ChessGame.class);
+    }
+
+    @Benchmark
+    public ChessGame gsonDecode() {
+        return serializer.fromJson(json, ChessGame.class);
+    }
+
+    /**
+     * Runs this benchmark with the GC profiler attached, so each result comes with its allocation rate
+     *
+     * @param args unused
+     * @throws RunnerException if JMH fails to run
+     */
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(EngineBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
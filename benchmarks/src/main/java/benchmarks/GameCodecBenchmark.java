@@ -0,0 +1,88 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.GameCodec;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.*;
+import serialization.Serializers;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the binary GameCodec against the reflective Gson JSON that SQLDataAccess stores games as,
+ * and against the streaming adapters the websocket messages use. The size of each encoding is
+ * printed in setup.
+ * <p>
+ * Run with: java -jar benchmarks/target/benchmarks.jar GameCodecBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameCodecBenchmark {
+
+    private ChessGame game;
+    private Gson serializer;
+    private String json;
+    private Gson adapterSerializer;
+    private String adapterJson;
+    private ByteBuffer buffer;
+    private ChessGame reused;
+
+    @Setup
+    public void setup() {
+        game = ChessGame.fromFen(BenchmarkPositions.MIDDLEGAME);
+        serializer = new Gson();
+        json = serializer.toJson(game);
+        adapterSerializer = Serializers.gson();
+        adapterJson = adapterSerializer.toJson(game);
+        buffer = ByteBuffer.allocate(GameCodec.SIZE);
+        GameCodec.encode(game, buffer);
+        reused = new ChessGame();
+        System.out.println("\nJSON " + json.length() + " chars, adapter JSON " + adapterJson.length()
+                + " chars, binary " + GameCodec.SIZE + " bytes");
+    }
+
+    @Benchmark
+    public String gsonEncode() {
+        return serializer.toJson(game);
+    }
+
+    @Benchmark
+    public ChessGame gsonDecode() {
+        return serializer.fromJson(json, ChessGame.class);
+    }
+
+    @Benchmark
+    public String adapterEncode() {
+        return adapterSerializer.toJson(game);
+    }
+
+    @Benchmark
+    public ChessGame adapterDecode() {
+        return adapterSerializer.fromJson(adapterJson, ChessGame.class);
+    }
+
+    @Benchmark
+    public ByteBuffer binaryEncode() {
+        buffer.clear();
+        GameCodec.encode(game, buffer);
+        return buffer;
+    }
+
+    @Benchmark
+    public ChessGame binaryDecode() {
+        buffer.rewind();
+        return GameCodec.decode(buffer);
+    }
+
+    @Benchmark
+    public ChessGame binaryDecodeReused() {
+        buffer.rewind();
+        GameCodec.decode(buffer, reused);
+        return reused;
+    }
+}
@@ -0,0 +1,60 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.engine.ParallelSearch;
+import chess.engine.SearchResult;
+import chess.engine.TranspositionTable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time for ParallelSearch to reach a fixed depth on the corpus positions with 1 to 8 threads. Each
+ * measurement starts from an empty table, so the speedup for N threads is the 1 thread time divided by
+ * the N thread time. Set -p depth to trade accuracy for running time.
+ * <p>
+ * Run with: java -jar benchmarks/target/benchmarks.jar LazySmpBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LazySmpBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"OPENING", "MIDDLEGAME", "ENDGAME"})
+    public String position;
+
+    @Param({"6"})
+    public int depth;
+
+    private TranspositionTable table;
+    private ParallelSearch search;
+    private ChessGame game;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        table = new TranspositionTable(64);
+        search = new ParallelSearch(table, threads);
+        game = ChessGame.fromFen(BenchmarkPositions.byName(position));
+    }
+
+    @Setup(Level.Iteration)
+    public void clearTable() {
+        table.clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        search.close();
+    }
+
+    @Benchmark
+    public SearchResult timeToDepth() {
+        return search.search(game, Long.MAX_VALUE / 2_000_000L, depth, threads);
+    }
+}
@@ -0,0 +1,83 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.Perft;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Runs perft on the standard test positions and checks each count against the published total,
+ * printing nodes per second. With --divide the root moves are split across every core and the
+ * count below each root move is printed as well.
+ * <p>
+ * Run with: java -cp benchmarks/target/benchmarks.jar benchmarks.PerftRunner [maxDepth] [--divide]
+ */
+public final class PerftRunner {
+
+    private static final String[] NAMES = {
+            "initial", "kiwipete", "position 3", "position 4", "position 5", "position 6"
+    };
+    private static final String[] POSITIONS = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+            "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+    };
+    // published node counts from depth 1 up
+    private static final long[][] TOTALS = {
+            {20, 400, 8902, 197281, 4865609, 119060324},
+            {48, 2039, 97862, 4085603, 193690690},
+            {14, 191, 2812, 43238, 674624, 11030083, 178633661},
+            {6, 264, 9467, 422333, 15833292},
+            {44, 1486, 62379, 2103487, 89941194},
+            {46, 2079, 89890, 3894594, 164075551},
+    };
+
+    private PerftRunner() {
+
+    }
+
+    public static void main(String[] args) {
+        int maxDepth = 5;
+        boolean divide = false;
+        for (String arg : args) {
+            if (arg.equals("--divide")) {
+                divide = true;
+            } else {
+                maxDepth = Integer.parseInt(arg);
+            }
+        }
+
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        boolean allMatch = true;
+        for (int i = 0; i < POSITIONS.length; i++) {
+            ChessGame game = ChessGame.fromFen(POSITIONS[i]);
+            int depth = Math.min(maxDepth, TOTALS[i].length);
+            long start = System.nanoTime();
+            long nodes;
+            Map<ChessMove, Long> counts = null;
+            if (divide) {
+                counts = Perft.divide(game, depth, pool);
+                nodes = counts.values().stream().mapToLong(Long::longValue).sum();
+            } else {
+                nodes = Perft.count(game, depth);
+            }
+            long elapsed = Math.max(System.nanoTime() - start, 1);
+
+            boolean match = nodes == TOTALS[i][depth - 1];
+            allMatch &= match;
+            System.out.printf("%-10s depth %d: %,d nodes in %.2f s, %,.0f nodes/s%s%n", NAMES[i], depth, nodes,
+                    elapsed / 1e9, nodes * 1e9 / elapsed, match ? "" : " MISMATCH, expected " + TOTALS[i][depth - 1]);
+            if (counts != null) {
+                counts.forEach((move, count) -> System.out.println("  " + move + ": " + count));
+            }
+        }
+        if (!allMatch) {
+            System.exit(1);
+        }
+    }
+}
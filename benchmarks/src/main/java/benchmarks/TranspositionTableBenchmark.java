@@ -0,0 +1,90 @@
+package benchmarks;
+
+import chess.engine.TranspositionTable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Probes and stores into one shared TranspositionTable from 1, 2, 4 and 8 threads. With lock-free entries
+ * total throughput should grow with the thread count until the cores or memory bandwidth run out, rather
+ * than flattening the way a locked table does.
+ * <p>
+ * Run with: java -jar benchmarks/target/benchmarks.jar TranspositionTableBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TranspositionTableBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class SharedTable {
+
+        @Param({"16", "256"})
+        public int megabytes;
+
+        public TranspositionTable table;
+
+        @Setup
+        public void setup() {
+            table = new TranspositionTable(megabytes);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Keys {
+
+        private long key = System.nanoTime();
+
+        /**
+         * @return the next key from a per-thread xorshift sequence
+         */
+        public long next() {
+            key ^= key << 13;
+            key ^= key >>> 7;
+            key ^= key << 17;
+            return key;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long probeAndStore1(SharedTable shared, Keys keys) {
+        return probeAndStore(shared.table, keys.next());
+    }
+
+    @Benchmark
+    @Threads(2)
+    public long probeAndStore2(SharedTable shared, Keys keys) {
+        return probeAndStore(shared.table, keys.next());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long probeAndStore4(SharedTable shared, Keys keys) {
+        return probeAndStore(shared.table, keys.next());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public long probeAndStore8(SharedTable shared, Keys keys) {
+        return probeAndStore(shared.table, keys.next());
+    }
+
+    /**
+     * One search node's worth of table traffic: a probe, then a store on a miss
+     *
+     * @param table shared table
+     * @param key   position key
+     * @return the probed data
+     */
+    private static long probeAndStore(TranspositionTable table, long key) {
+        long data = table.probe(key);
+        if (data == 0) {
+            table.store(key, (int) key & 0xFFF, (short) key, (int) (key >>> 58), TranspositionTable.EXACT, 0);
+        }
+        return data;
+    }
+}
@@ -3,6 +3,7 @@ package clients;
 import chess.*;
 import websocket.messages.*;
 import com.google.gson.Gson;
+import serialization.Serializers;
 import facades.WebsocketException;
 import facades.WebsocketFacade;
 import ui.InputException;
@@ -27,7 +28,7 @@ public class WebsocketClient implements Client {
     public WebsocketClient(WebsocketFacade websocketFacade) {
         this.websocketFacade = websocketFacade;
         boardRenderer = new BoardRenderer();
-        serializer = new Gson();
+        serializer = Serializers.gson();
         this.currentGame = null;
     }
 
@@ -206,7 +207,7 @@ public class WebsocketClient implements Client {
 
         checkBoundary(row);
 
-        ChessPosition highlightedPosition = new ChessPosition(row, col);
+        ChessPosition highlightedPosition = ChessPosition.of(row, col);
         Collection<ChessMove> possibleMoves = currentGame.validMoves(highlightedPosition);
 
         if (currentGame.getBoard().getPiece(highlightedPosition) == null) {
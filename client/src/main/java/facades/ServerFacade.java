@@ -2,6 +2,7 @@ package facades;
 
 import chess.*;
 import com.google.gson.Gson;
+import serialization.Serializers;
 import ui.BoardRenderer;
 import ui.InputException;
 import facades.requests.*;
@@ -35,7 +36,7 @@ public class ServerFacade {
         serverUrl = "http://localhost:" + port;
         boardRenderer = new BoardRenderer();
         httpClient = HttpClient.newHttpClient();
-        serializer = new Gson();
+        serializer = Serializers.gson();
         gameIDs = new HashMap<>();
     }
 
@@ -3,6 +3,7 @@ package facades;
 import chess.ChessMove;
 import clients.WebsocketClient.ServerMessageObserver;
 import com.google.gson.Gson;
+import serialization.Serializers;
 import jakarta.websocket.*;
 import websocket.commands.UserGameCommand;
 
@@ -21,7 +22,7 @@ public class WebsocketFacade extends Endpoint {
 
     public WebsocketFacade(int port) {
         serverMessageObserver = null;
-        serializer = new Gson();
+        serializer = Serializers.gson();
         serverUrl = "ws://localhost:" + port + "/ws";
     }
 
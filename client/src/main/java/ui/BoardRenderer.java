@@ -84,7 +84,7 @@ public class BoardRenderer {
     }
 
     private String getPieceForPosition(int row, int col, ChessBoard board) {
-        ChessPiece piece = board.getPiece(new ChessPosition(row, col));
+        ChessPiece piece = board.getPiece(ChessPosition.of(row, col));
         if (piece == null) {
             return EMPTY;
         }
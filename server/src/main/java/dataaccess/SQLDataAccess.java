@@ -2,6 +2,7 @@ package dataaccess;
 
 import com.google.gson.Gson;
 import model.*;
+import serialization.Serializers;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -29,7 +30,8 @@ public class SQLDataAccess implements DataAccess {
             System.out.println("Failure to create database or tables");
             throw new RuntimeException("Failure to create database or tables.");
         }
-        serializer = new Gson();
+        // games are stored as FEN through the shared adapters, so the column doesn't depend on ChessGame's fields
+        serializer = Serializers.gson();
     }
 
     @Override
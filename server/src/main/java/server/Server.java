@@ -1,33 +1,71 @@
 package server;
 
+import chess.engine.OpeningBook;
+import chess.engine.Tablebase;
 import com.google.gson.Gson;
+import serialization.Serializers;
 import dataaccess.DataAccess;
 import dataaccess.SQLDataAccess;
 import io.javalin.*;
 import io.javalin.http.Context;
 import server.exceptions.*;
 import server.handlers.*;
+import service.AnalysisService;
+import service.AnnotationPipeline;
+import service.BotScheduler;
+import service.BotService;
+import service.EnginePool;
 import service.GameService;
 import service.UserService;
 import service.WebSocketService;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
 public class Server {
 
     private final Javalin server;
+    private final EnginePool enginePool;
+    private final BotScheduler botScheduler;
+    private final AnnotationPipeline annotationPipeline;
 
     public Server() {
         // initialize serializer
-        Gson serializer = new Gson();
+        Gson serializer = Serializers.gson();
 
 
         // initialize dataAccess
         DataAccess dataAccess = new SQLDataAccess();
 
 
+        // initialize the engine, which has its own threads so searches never hold up the web server's
+        // settings can be changed with system properties, e.g. -Dchess.engine.workers=4 -Dchess.book=book.bin
+        int defaultWorkers = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        Tablebase tablebase = loadTablebase(System.getProperty("chess.tablebases"));
+        enginePool = new EnginePool(Integer.getInteger("chess.engine.workers", defaultWorkers),
+                Integer.getInteger("chess.engine.queue", 16), Integer.getInteger("chess.engine.tableMb", 64), tablebase);
+        OpeningBook openingBook = loadOpeningBook(System.getProperty("chess.book"));
+
+        // bots think on their own cores, e.g. -Dchess.bots.cores=2 -Dchess.bots.thinkMillis=500
+        botScheduler = new BotScheduler(Integer.getInteger("chess.bots.cores", defaultWorkers),
+                Long.getLong("chess.bots.thinkMillis", 1000), Long.getLong("chess.bots.minThinkMillis", 50),
+                Integer.getInteger("chess.bots.tableMb", 64), tablebase);
+
+        // moves are graded in the background, e.g. -Dchess.annotations.depth=3 -Dchess.annotations.queue=128
+        annotationPipeline = new AnnotationPipeline(Integer.getInteger("chess.annotations.depth", 4),
+                Integer.getInteger("chess.annotations.queue", 256), Integer.getInteger("chess.annotations.batch", 32),
+                Long.getLong("chess.annotations.maxLagMillis", 5000), Integer.getInteger("chess.annotations.tableMb", 16),
+                tablebase);
+
+
         // initialize services
         final UserService userService = new UserService(dataAccess);
         final GameService gameService = new GameService(dataAccess);
-        final WebSocketService webSocketService = new WebSocketService(dataAccess, serializer);
+        final AnalysisService analysisService = new AnalysisService(dataAccess, enginePool, openingBook);
+        final BotService botService = new BotService(dataAccess, gameService, botScheduler, openingBook);
+        final WebSocketService webSocketService = new WebSocketService(dataAccess, serializer, analysisService, botService,
+                annotationPipeline);
 
         // initialize handlers
         final ClearHandler clearHandler = new ClearHandler(userService);
@@ -35,8 +73,10 @@ public class Server {
         final LoginHandler loginHandler = new LoginHandler(userService, serializer);
         final LogoutHandler logoutHandler = new LogoutHandler(userService);
         final CreateGameHandler createGameHandler = new CreateGameHandler(gameService, serializer);
-        final JoinGameHandler joinGameHandler = new JoinGameHandler(gameService, serializer);
+        final JoinGameHandler joinGameHandler = new JoinGameHandler(gameService, botService, serializer);
         final ListGamesHandler listGamesHandler = new ListGamesHandler(gameService, serializer);
+        final AnalysisHandler analysisHandler = new AnalysisHandler(analysisService, serializer);
+        final MetricsHandler metricsHandler = new MetricsHandler(enginePool, botScheduler, annotationPipeline, serializer);
         final WebSocketHandler webSocketHandler = new WebSocketHandler(webSocketService, serializer);
 
 
@@ -49,12 +89,18 @@ public class Server {
         server.delete("session", logoutHandler::logout);
         server.post("game", createGameHandler::createGame);
         server.put("game", joinGameHandler::joinGame);
+        server.put("game/bot", joinGameHandler::addBot);
         server.get("game", listGamesHandler::listGames);
+        server.get("game/{id}/analysis", analysisHandler::analyze);
+        server.get("metrics/engine", metricsHandler::engineMetrics);
+        server.get("metrics/bots", metricsHandler::botMetrics);
+        server.get("metrics/annotations", metricsHandler::annotationMetrics);
         server.ws("/ws", webSocketHandler::createConnection);
 
         server.exception(InvalidRequestException.class, this::handleInvalidRequestException);
         server.exception(UnauthorizedException.class, this::handleUnauthorizedException);
         server.exception(AlreadyTakenException.class, this::handleAlreadyTakenException);
+        server.exception(OverloadedException.class, this::handleOverloadedException);
 
         server.exception(Exception.class, this::handleUncaughtException);
 
@@ -67,6 +113,25 @@ public class Server {
 
     public void stop() {
         server.stop();
+        enginePool.close();
+        botScheduler.close();
+        annotationPipeline.close();
+    }
+
+    private static OpeningBook loadOpeningBook(String path) {
+        try {
+            return path == null ? OpeningBook.empty() : OpeningBook.open(Path.of(path));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("unable to open the opening book " + path, ex);
+        }
+    }
+
+    private static Tablebase loadTablebase(String directory) {
+        try {
+            return directory == null ? Tablebase.empty() : Tablebase.open(Path.of(directory));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("unable to open the tablebases in " + directory, ex);
+        }
     }
 
     private void handleInvalidRequestException(InvalidRequestException ex, Context ctx) {
@@ -81,6 +146,10 @@ public class Server {
         ctx.status(403).result(getErrorMessage(ex));
     }
 
+    private void handleOverloadedException(OverloadedException ex, Context ctx) {
+        ctx.status(503).result(getErrorMessage(ex));
+    }
+
     private void handleUncaughtException(Exception ex, Context ctx) {
         // this also handles DataAccessExceptions, which are an internal server error
         ctx.status(500).result(getErrorMessage(ex));
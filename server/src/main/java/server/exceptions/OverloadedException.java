@@ -0,0 +1,7 @@
+package server.exceptions;
+
+public class OverloadedException extends Exception {
+    public OverloadedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,43 @@
+package server.handlers;
+
+import com.google.gson.Gson;
+import dataaccess.DataAccessException;
+import io.javalin.http.Context;
+import server.exceptions.InvalidRequestException;
+import server.exceptions.OverloadedException;
+import server.exceptions.UnauthorizedException;
+import service.AnalysisService;
+import service.requests.AnalysisRequest;
+import service.results.AnalysisResult;
+
+import java.util.concurrent.CompletableFuture;
+
+public class AnalysisHandler extends AuthVerificationHandler {
+
+    private final AnalysisService analysisService;
+    private final Gson serializer;
+
+    public AnalysisHandler(AnalysisService analysisService, Gson serializer) {
+        this.analysisService = analysisService;
+        this.serializer = serializer;
+    }
+
+    public void analyze(Context ctx) throws UnauthorizedException, InvalidRequestException, OverloadedException,
+            DataAccessException {
+        String authToken = ctx.header("Authorization");
+        verifyAuth(authToken);
+
+        AnalysisRequest req;
+        try {
+            String budget = ctx.queryParam("budgetMillis");
+            req = new AnalysisRequest(authToken, Integer.parseInt(ctx.pathParam("id")),
+                    budget == null ? null : Long.parseLong(budget));
+        } catch (NumberFormatException ex) {
+            throw new InvalidRequestException("gameID and budgetMillis must be numbers");
+        }
+
+        // the search runs on the engine pool; the request finishes when it does, without holding this thread
+        CompletableFuture<AnalysisResult> res = analysisService.analyze(req);
+        ctx.future(() -> res.thenAccept(result -> ctx.result(serializer.toJson(result))));
+    }
+}
@@ -3,6 +3,7 @@ package server.handlers;
 import com.google.gson.Gson;
 import dataaccess.DataAccessException;
 import io.javalin.http.Context;
+import service.BotService;
 import service.GameService;
 import server.exceptions.*;
 
@@ -14,26 +15,38 @@ import service.results.SuccessEmptyResult;
 public class JoinGameHandler extends AuthVerificationHandler {
 
     private final GameService gameService;
+    private final BotService botService;
     private final Gson serializer;
 
-    public JoinGameHandler(GameService gameService, Gson serializer) {
+    public JoinGameHandler(GameService gameService, BotService botService, Gson serializer) {
         this.gameService = gameService;
+        this.botService = botService;
         this.serializer = serializer;
     }
 
     public void joinGame(Context ctx) throws InvalidRequestException, AlreadyTakenException, UnauthorizedException, DataAccessException {
+        SuccessEmptyResult res = gameService.joinGame(readJoinRequest(ctx));
+
+        ctx.result(serializer.toJson(res));
+
+    }
+
+    // same body as joining, but the bot takes the given color instead of the caller
+    public void addBot(Context ctx) throws InvalidRequestException, AlreadyTakenException, UnauthorizedException, DataAccessException {
+        SuccessEmptyResult res = botService.addBot(readJoinRequest(ctx));
+
+        ctx.result(serializer.toJson(res));
+    }
+
+    private JoinRequest readJoinRequest(Context ctx) throws InvalidRequestException, UnauthorizedException {
         String authToken = ctx.header("Authorization");
         verifyAuth(authToken);
 
         Map dataMap = serializer.fromJson(ctx.body(), Map.class);
         verifyData(dataMap);
 
-        JoinRequest req = new JoinRequest(authToken, dataMap.get("playerColor").toString().toUpperCase(),
+        return new JoinRequest(authToken, dataMap.get("playerColor").toString().toUpperCase(),
                 ((Double) dataMap.get("gameID")).intValue());
-        SuccessEmptyResult res = gameService.joinGame(req);
-
-        ctx.result(serializer.toJson(res));
-
     }
 
     private void verifyData(Map dataMap) throws InvalidRequestException {
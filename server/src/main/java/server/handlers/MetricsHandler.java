@@ -0,0 +1,35 @@
+package server.handlers;
+
+import com.google.gson.Gson;
+import io.javalin.http.Context;
+import service.AnnotationPipeline;
+import service.BotScheduler;
+import service.EnginePool;
+
+public class MetricsHandler {
+
+    private final EnginePool enginePool;
+    private final BotScheduler botScheduler;
+    private final AnnotationPipeline annotationPipeline;
+    private final Gson serializer;
+
+    public MetricsHandler(EnginePool enginePool, BotScheduler botScheduler, AnnotationPipeline annotationPipeline,
+                          Gson serializer) {
+        this.enginePool = enginePool;
+        this.botScheduler = botScheduler;
+        this.annotationPipeline = annotationPipeline;
+        this.serializer = serializer;
+    }
+
+    public void engineMetrics(Context ctx) {
+        ctx.result(serializer.toJson(enginePool.metrics()));
+    }
+
+    public void botMetrics(Context ctx) {
+        ctx.result(serializer.toJson(botScheduler.metrics()));
+    }
+
+    public void annotationMetrics(Context ctx) {
+        ctx.result(serializer.toJson(annotationPipeline.metrics()));
+    }
+}
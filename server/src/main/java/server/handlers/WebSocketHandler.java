@@ -38,6 +38,7 @@ public class WebSocketHandler extends AuthVerificationHandler {
             case UserGameCommand.CommandType.MAKE_MOVE -> webSocketService.makeMove(command, ctx.session);
             case UserGameCommand.CommandType.LEAVE -> webSocketService.leave(command, ctx.session);
             case UserGameCommand.CommandType.RESIGN -> webSocketService.resign(command, ctx.session);
+            case UserGameCommand.CommandType.ANALYZE -> webSocketService.analyze(command, ctx.session);
         }
 
     }
@@ -0,0 +1,81 @@
+package service;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.engine.OpeningBook;
+import chess.engine.SearchResult;
+import dataaccess.DataAccess;
+import dataaccess.DataAccessException;
+import model.AuthData;
+import model.GameData;
+import server.exceptions.InvalidRequestException;
+import server.exceptions.OverloadedException;
+import server.exceptions.UnauthorizedException;
+import service.requests.AnalysisRequest;
+import service.results.AnalysisResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Analyses a game's current position with the engine: best move, score and the line the engine
+ * expects, plus any opening book moves for the position. The search itself runs on the EnginePool;
+ * the caller gets a future and is free to serve other requests meanwhile.
+ */
+public class AnalysisService {
+
+    public static final long DEFAULT_BUDGET_MILLIS = 1000;
+    public static final long MAX_BUDGET_MILLIS = 10_000;
+    private static final int PRINCIPAL_VARIATION_LENGTH = 12;
+
+    private final DataAccess dataAccess;
+    private final EnginePool enginePool;
+    private final OpeningBook openingBook;
+
+    public AnalysisService(DataAccess dataAccess, EnginePool enginePool, OpeningBook openingBook) {
+        this.dataAccess = dataAccess;
+        this.enginePool = enginePool;
+        this.openingBook = openingBook;
+    }
+
+    public CompletableFuture<AnalysisResult> analyze(AnalysisRequest req) throws UnauthorizedException,
+            InvalidRequestException, OverloadedException, DataAccessException {
+        verifyAuthToken(req.authToken());
+        GameData game = dataAccess.getGame(req.gameID());
+        if (game == null) {
+            throw new InvalidRequestException("No game by that gameID");
+        }
+        long budgetMillis = budgetFor(req.budgetMillis());
+        ChessGame position = game.game();
+
+        List<ChessMove> bookMoves = new ArrayList<>();
+        for (OpeningBook.BookMove bookMove : openingBook.moves(position)) {
+            bookMoves.add(bookMove.move());
+        }
+
+        return enginePool.submit(search -> {
+            SearchResult result = search.search(position, budgetMillis);
+            List<ChessMove> line = search.principalVariation(position, result.bestMove(), PRINCIPAL_VARIATION_LENGTH);
+            return new AnalysisResult(result.bestMove(), result.score(), result.mateIn(), result.depth(), line,
+                    bookMoves, result.nodes(), result.elapsedNanos() / 1_000_000);
+        });
+    }
+
+    private long budgetFor(Long requested) throws InvalidRequestException {
+        if (requested == null) {
+            return DEFAULT_BUDGET_MILLIS;
+        }
+        if (requested <= 0) {
+            throw new InvalidRequestException("Analysis budget must be positive");
+        }
+        return Math.min(requested, MAX_BUDGET_MILLIS);
+    }
+
+    private void verifyAuthToken(String authToken) throws UnauthorizedException, DataAccessException {
+        AuthData auth = dataAccess.getAuthByToken(authToken);
+        if (auth == null) {
+            throw new UnauthorizedException("Unauthorized");
+        }
+    }
+}
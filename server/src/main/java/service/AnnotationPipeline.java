@@ -0,0 +1,181 @@
+package service;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.engine.Search;
+import chess.engine.SearchResult;
+import chess.engine.Tablebase;
+import chess.engine.TranspositionTable;
+import service.results.AnnotationMetrics;
+import service.results.MoveAnnotation;
+import service.results.MoveAnnotation.Classification;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Grades moves after they are played. The move path only snapshots the positions before and after the
+ * move and offers them to a bounded queue, which never blocks; one worker thread takes whatever is queued
+ * in batches, evaluates both positions at a fixed shallow depth and hands the graded move to a listener.
+ * When moves come in faster than they can be graded, new ones are dropped once the queue is full, and
+ * queued ones are dropped once they are too old to be worth showing, so the pipeline never falls behind.
+ */
+public class AnnotationPipeline implements AutoCloseable {
+
+    // centipawns a move may lose against the engine's choice before it stops being graded as best, and so on
+    private static final int INACCURACY_LOSS = 50;
+    private static final int MISTAKE_LOSS = 100;
+    private static final int BLUNDER_LOSS = 250;
+    // mate scores count as this many centipawns, so missing a mate is a blunder without swamping the loss
+    private static final int MATE_CENTIPAWNS = 2000;
+    // safety limit on one evaluation; a shallow depth normally finishes far inside it
+    private static final long EVALUATION_BUDGET_MILLIS = 500;
+
+    private record Job(int gameID, String username, ChessMove move, String fenBefore, String fenAfter,
+                       Consumer<MoveAnnotation> listener, long submittedNanos) {
+    }
+
+    private final ArrayBlockingQueue<Job> queue;
+    private final int queueCapacity;
+    private final int depth;
+    private final int batchSize;
+    private final long maxLagNanos;
+    private final Search search;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    private final LongAdder annotated = new LongAdder();
+    private final LongAdder droppedQueueFull = new LongAdder();
+    private final LongAdder droppedStale = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchedJobs = new LongAdder();
+    private final LatencyHistogram lag = new LatencyHistogram();
+
+    /**
+     * @param depth          plies each position is searched to
+     * @param queueCapacity  most moves that can wait to be graded
+     * @param batchSize      most moves taken off the queue at once
+     * @param maxLagMillis   oldest a move can be and still be graded
+     * @param tableMegabytes size of the pipeline's transposition table
+     * @param tablebase      endgame tables the evaluations use
+     */
+    public AnnotationPipeline(int depth, int queueCapacity, int batchSize, long maxLagMillis, int tableMegabytes,
+                              Tablebase tablebase) {
+        if (depth < 1 || queueCapacity < 1 || batchSize < 1 || maxLagMillis < 0) {
+            throw new IllegalArgumentException("Annotations need a positive depth, queue and batch size");
+        }
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.queueCapacity = queueCapacity;
+        this.depth = depth;
+        this.batchSize = batchSize;
+        this.maxLagNanos = TimeUnit.MILLISECONDS.toNanos(maxLagMillis);
+        this.search = new Search(new TranspositionTable(tableMegabytes), tablebase);
+        worker = new Thread(this::run, "annotation-worker");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Queues a played move to be graded, without waiting
+     *
+     * @param fenBefore position the move was played from
+     * @param fenAfter  position the move led to
+     * @param listener  called on the pipeline's thread with the graded move
+     * @return false if the queue was full and the move won't be graded
+     */
+    public boolean submit(int gameID, String username, ChessMove move, String fenBefore, String fenAfter,
+                          Consumer<MoveAnnotation> listener) {
+        Job job = new Job(gameID, username, move, fenBefore, fenAfter, listener, System.nanoTime());
+        if (!queue.offer(job)) {
+            droppedQueueFull.increment();
+            return false;
+        }
+        return true;
+    }
+
+    public AnnotationMetrics metrics() {
+        long batchCount = batches.sum();
+        double averageBatchSize = batchCount == 0 ? 0 : (double) batchedJobs.sum() / batchCount;
+        return new AnnotationMetrics(queue.size(), queueCapacity, annotated.sum(), droppedQueueFull.sum(),
+                droppedStale.sum(), batchCount, averageBatchSize, lag.percentileMillis(0.5),
+                lag.percentileMillis(0.99), lag.maxMillis());
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        worker.interrupt();
+    }
+
+    private void run() {
+        List<Job> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException ex) {
+                return;
+            }
+            queue.drainTo(batch, batchSize - 1);
+            batches.increment();
+            batchedJobs.add(batch.size());
+            annotateBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void annotateBatch(List<Job> batch) {
+        // one move's position after is the next move's position before, so each position is searched once a batch
+        Map<String, SearchResult> evaluations = new HashMap<>();
+        for (Job job : batch) {
+            if (System.nanoTime() - job.submittedNanos() > maxLagNanos) {
+                droppedStale.increment();
+                continue;
+            }
+            try {
+                MoveAnnotation annotation = annotate(job, evaluations);
+                lag.record(System.nanoTime() - job.submittedNanos());
+                annotated.increment();
+                job.listener().accept(annotation);
+            } catch (RuntimeException ex) {
+                System.out.println("Unable to annotate a move in game " + job.gameID() + ": " + ex.getMessage());
+            }
+        }
+    }
+
+    private MoveAnnotation annotate(Job job, Map<String, SearchResult> evaluations) {
+        SearchResult before = evaluations.computeIfAbsent(job.fenBefore(), this::evaluate);
+        SearchResult after = evaluations.computeIfAbsent(job.fenAfter(), this::evaluate);
+        // before is scored for the mover and after for their opponent, so the mover's loss is their sum
+        int loss = Math.max(0, centipawns(before.score()) + centipawns(after.score()));
+        Classification classification = job.move().equals(before.bestMove()) ? Classification.BEST : classify(loss);
+        return new MoveAnnotation(job.gameID(), job.username(), job.move(), classification, loss, before.bestMove());
+    }
+
+    private SearchResult evaluate(String fen) {
+        return search.search(ChessGame.fromFen(fen), EVALUATION_BUDGET_MILLIS, depth);
+    }
+
+    private static int centipawns(int score) {
+        if (Math.abs(score) >= Search.MATE - Search.MAX_PLY) {
+            return score > 0 ? MATE_CENTIPAWNS : -MATE_CENTIPAWNS;
+        }
+        return Math.max(-MATE_CENTIPAWNS, Math.min(MATE_CENTIPAWNS, score));
+    }
+
+    private static Classification classify(int loss) {
+        if (loss >= BLUNDER_LOSS) {
+            return Classification.BLUNDER;
+        } else if (loss >= MISTAKE_LOSS) {
+            return Classification.MISTAKE;
+        } else if (loss >= INACCURACY_LOSS) {
+            return Classification.INACCURACY;
+        }
+        return Classification.BEST;
+    }
+}
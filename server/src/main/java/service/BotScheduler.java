@@ -0,0 +1,161 @@
+package service;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.engine.Search;
+import chess.engine.SearchResult;
+import chess.engine.Tablebase;
+import chess.engine.TranspositionTable;
+import server.exceptions.OverloadedException;
+import service.results.BotMetrics;
+
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides every bot move on the server, on at most a fixed number of cores. Requests are served first
+ * come, first served, and each game has at most one request waiting, so every game gets its turn no
+ * matter how many are running. Instead of letting the queue grow, the time a move may think for shrinks
+ * with load: the think time is shared out between everything queued or thinking, and time spent waiting
+ * in the queue comes off it too, down to a floor. Under heavy load bots play faster and weaker, but they
+ * still answer in about the normal think time. The queue only holds as many moves as can still get the
+ * floor, so once it is full new requests are turned away with an OverloadedException.
+ * <p>
+ * Each bot thread has its own transposition table. Every search starts a new table generation, so a
+ * shared table would have each game's entries aged out by every other game's moves.
+ */
+public class BotScheduler implements AutoCloseable {
+
+    private final ThreadPoolExecutor executor;
+    private final ThreadLocal<Search> searches;
+    private final int cores;
+    private final long thinkMillis;
+    private final long minThinkMillis;
+    private final int queueCapacity;
+    // games with a move queued or thinking
+    private final Set<Integer> pending = ConcurrentHashMap.newKeySet();
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong lastBudgetMillis = new AtomicLong();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param cores          most bot searches that run at once
+     * @param thinkMillis    time a move may think for when the server is otherwise idle
+     * @param minThinkMillis least time a move may think for, however loaded the server is
+     * @param tableMegabytes memory for the bots' transposition tables, split between the cores
+     * @param tablebase      endgame tables the bots use
+     */
+    public BotScheduler(int cores, long thinkMillis, long minThinkMillis, int tableMegabytes, Tablebase tablebase) {
+        if (cores < 1 || minThinkMillis < 1 || thinkMillis < minThinkMillis) {
+            throw new IllegalArgumentException("Bots need at least one core and a think time of at least the minimum");
+        }
+        this.cores = cores;
+        this.thinkMillis = thinkMillis;
+        this.minThinkMillis = minThinkMillis;
+        int threadMegabytes = Math.max(1, tableMegabytes / cores);
+        searches = ThreadLocal.withInitial(() -> new Search(new TranspositionTable(threadMegabytes), tablebase));
+        // past this many moves queued, a move's share of the think time would be below the floor
+        queueCapacity = (int) Math.min(Math.max(1, cores * thinkMillis / minThinkMillis - cores), Integer.MAX_VALUE);
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(cores, cores, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            var thread = new Thread(runnable, "bot-worker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Queues a search for a game's next bot move
+     *
+     * @param gameID   game the move is for
+     * @param position position to move from; it must not change while the search runs
+     * @return a future completed with the move on a bot thread, or null if the game already has a move coming
+     * @throws OverloadedException if the queue is full, or the scheduler has been closed
+     */
+    public CompletableFuture<ChessMove> schedule(int gameID, ChessGame position) throws OverloadedException {
+        if (!pending.add(gameID)) {
+            return null;
+        }
+        BotMove move = new BotMove(gameID, position, System.nanoTime());
+        try {
+            executor.execute(move);
+        } catch (RejectedExecutionException ex) {
+            pending.remove(gameID);
+            rejected.increment();
+            throw new OverloadedException("The bot is busy, try again shortly");
+        }
+        return move.future;
+    }
+
+    public BotMetrics metrics() {
+        return new BotMetrics(cores, executor.getActiveCount(), executor.getQueue().size(), queueCapacity,
+                latency.count(), rejected.sum(), lastBudgetMillis.get(), latency.percentileMillis(0.5),
+                latency.percentileMillis(0.9), latency.percentileMillis(0.99), latency.maxMillis());
+    }
+
+    /**
+     * Stops the bot threads. Moves still in the queue are never searched, so their futures are failed
+     * rather than left waiting forever.
+     */
+    @Override
+    public void close() {
+        for (Runnable queued : executor.shutdownNow()) {
+            ((BotMove) queued).future.completeExceptionally(new CancellationException("The bots were shut down"));
+        }
+        pending.clear();
+    }
+
+    /**
+     * @param waitedMillis time the move spent in the queue
+     * @return how long the move may think for: its fair share of the cores over the think time, less the wait
+     */
+    private long budgetMillis(long waitedMillis) {
+        int load = executor.getQueue().size() + executor.getActiveCount();
+        long fairShare = thinkMillis * cores / Math.max(cores, load);
+        return Math.max(minThinkMillis, Math.min(fairShare, thinkMillis - waitedMillis));
+    }
+
+    /**
+     * A queued search for one game's move, kept as its own class so close() can fail the moves it drops
+     */
+    private final class BotMove implements Runnable {
+
+        private final int gameID;
+        private final ChessGame position;
+        private final long requested;
+        private final CompletableFuture<ChessMove> future = new CompletableFuture<>();
+
+        private BotMove(int gameID, ChessGame position, long requested) {
+            this.gameID = gameID;
+            this.position = position;
+            this.requested = requested;
+        }
+
+        @Override
+        public void run() {
+            try {
+                long budget = budgetMillis((System.nanoTime() - requested) / 1_000_000);
+                lastBudgetMillis.set(budget);
+                SearchResult result = searches.get().search(position, budget);
+                latency.record(System.nanoTime() - requested);
+                // the game is released first, so a reply to this move can be scheduled straight away
+                pending.remove(gameID);
+                future.complete(result.bestMove());
+            } catch (Throwable ex) {
+                pending.remove(gameID);
+                future.completeExceptionally(ex);
+            }
+        }
+    }
+}
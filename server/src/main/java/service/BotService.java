@@ -0,0 +1,124 @@
+package service;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.engine.OpeningBook;
+import dataaccess.DataAccess;
+import dataaccess.DataAccessException;
+import model.AuthData;
+import model.GameData;
+import model.UserData;
+import org.mindrot.jbcrypt.BCrypt;
+import server.exceptions.AlreadyTakenException;
+import server.exceptions.InvalidRequestException;
+import server.exceptions.OverloadedException;
+import server.exceptions.UnauthorizedException;
+import service.requests.JoinRequest;
+import service.results.SuccessEmptyResult;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Computer opponents. The bot is an ordinary user that joins games through GameService.joinGame, so
+ * everything else about the game works as it does between people. Its moves come from the opening book
+ * while the position is in it, and from the BotScheduler after that.
+ */
+public class BotService {
+
+    public static final String BOT_USERNAME = "ChessBot";
+    // people can't register the bot's username, but one may have done so before it was reserved; the bot's own
+    // account is the one with this email
+    private static final String BOT_EMAIL = "bot@localhost";
+
+    private final DataAccess dataAccess;
+    private final GameService gameService;
+    private final BotScheduler botScheduler;
+    private final OpeningBook openingBook;
+
+    public BotService(DataAccess dataAccess, GameService gameService, BotScheduler botScheduler, OpeningBook openingBook) {
+        this.dataAccess = dataAccess;
+        this.gameService = gameService;
+        this.botScheduler = botScheduler;
+        this.openingBook = openingBook;
+    }
+
+    public SuccessEmptyResult addBot(JoinRequest req) throws UnauthorizedException, InvalidRequestException,
+            AlreadyTakenException, DataAccessException {
+        verifyAuthToken(req.authToken());
+        GameData game = dataAccess.getGame(req.gameID());
+        if (game == null) {
+            throw new InvalidRequestException("No game by that gameID");
+        }
+        if (isBot(game.whiteUsername()) || isBot(game.blackUsername())) {
+            throw new AlreadyTakenException("A bot is already playing in this game");
+        }
+        return gameService.joinGame(new JoinRequest(botAuthToken(), req.playerColor(), req.gameID()));
+    }
+
+    /**
+     * Starts working out the bot's move, if it is the bot's turn in a game that isn't over
+     *
+     * @return the move once it is decided, or null if the bot isn't to move or is already thinking
+     * @throws OverloadedException if the bots have too many moves queued to take another
+     */
+    public CompletableFuture<ChessMove> requestMove(GameData game) throws OverloadedException {
+        ChessGame position = game.game();
+        if (isOver(game) || !isBot(usernameToMove(game))) {
+            return null;
+        }
+        ChessMove bookMove = openingBook.pick(position, ThreadLocalRandom.current());
+        if (bookMove != null) {
+            return CompletableFuture.completedFuture(bookMove);
+        }
+        return botScheduler.schedule(game.gameID(), position);
+    }
+
+    public static boolean isBot(String username) {
+        return BOT_USERNAME.equals(username);
+    }
+
+    /**
+     * @return true if the user is the bot, rather than a person who registered its username before it was reserved
+     */
+    public static boolean isBotAccount(UserData user) {
+        return user != null && isBot(user.username()) && BOT_EMAIL.equals(user.email());
+    }
+
+    private static String usernameToMove(GameData game) {
+        return game.game().getTeamTurn() == ChessGame.TeamColor.WHITE ? game.whiteUsername() : game.blackUsername();
+    }
+
+    private static boolean isOver(GameData game) {
+        return game.gameName() != null && game.gameName().contains("OVER");
+    }
+
+    /**
+     * Logs the bot in, creating its user the first time (and again after the database is cleared)
+     */
+    private synchronized String botAuthToken() throws AlreadyTakenException, DataAccessException {
+        UserData user = dataAccess.getUser(BOT_USERNAME);
+        if (user == null) {
+            // nobody is meant to log in as the bot, so its password is random and thrown away
+            String password = BCrypt.hashpw(UUID.randomUUID().toString(), BCrypt.gensalt());
+            dataAccess.createUser(new UserData(BOT_USERNAME, BOT_EMAIL, password));
+        } else if (!isBotAccount(user)) {
+            throw new AlreadyTakenException("The bot's username belongs to a player");
+        }
+        AuthData auth = dataAccess.getAuth(BOT_USERNAME);
+        if (auth != null) {
+            return auth.authToken();
+        }
+        auth = new AuthData(BOT_USERNAME, UUID.randomUUID().toString());
+        dataAccess.createAuth(auth);
+        return auth.authToken();
+    }
+
+    private void verifyAuthToken(String authToken) throws UnauthorizedException, DataAccessException {
+        AuthData auth = dataAccess.getAuthByToken(authToken);
+        if (auth == null) {
+            throw new UnauthorizedException("Unauthorized");
+        }
+    }
+}
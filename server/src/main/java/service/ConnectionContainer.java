@@ -2,17 +2,22 @@ package service;
 
 import org.eclipse.jetty.websocket.api.Session;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class ConnectionContainer {
 
-    private final HashMap<Integer, ArrayList<Tuple>> gameTracker;
+    // bot moves are broadcast from bot threads while websocket threads add and remove users
+    private final ConcurrentHashMap<Integer, List<Tuple>> gameTracker;
 
     private record Tuple(String username, Session session) {
         public void send(String message) {
             try {
-                session.getRemote().sendString(message);
+                synchronized (session) {
+                    session.getRemote().sendString(message);
+                }
             } catch (Throwable ex) {
                 System.out.println("Error sending websocket message: " + ex.getMessage());
             }
@@ -20,19 +25,16 @@ public class ConnectionContainer {
     }
 
     public ConnectionContainer() {
-        gameTracker = new HashMap<>();
+        gameTracker = new ConcurrentHashMap<>();
     }
 
     public void addUser(int gameID, String username, Session session) {
-        if (!gameTracker.containsKey(gameID)) {
-            gameTracker.put(gameID, new ArrayList<Tuple>());
-        }
-        gameTracker.get(gameID).add(new Tuple(username, session));
+        gameTracker.computeIfAbsent(gameID, id -> new CopyOnWriteArrayList<>()).add(new Tuple(username, session));
     }
 
     public void removeUser(int gameID, String username) {
         checkIfGameExists(gameID);
-        ArrayList<Tuple> users = gameTracker.get(gameID);
+        List<Tuple> users = gameTracker.get(gameID);
 
         Tuple temp = null;
         for (Tuple user : users) {
@@ -49,7 +51,7 @@ public class ConnectionContainer {
 
     public void sendToAll(int gameID, String message) {
         checkIfGameExists(gameID);
-        ArrayList<Tuple> users = gameTracker.get(gameID);
+        List<Tuple> users = gameTracker.get(gameID);
         for (Tuple user : users) {
             user.send(message);
         }
@@ -57,7 +59,7 @@ public class ConnectionContainer {
 
     public void sendToAllExcept(int gameID, String exceptUsername, String message) {
         checkIfGameExists(gameID);
-         ArrayList<Tuple> users = gameTracker.get(gameID);
+         List<Tuple> users = gameTracker.get(gameID);
          for (Tuple user : users) {
              if (!user.username.equals(exceptUsername)) {
                  user.send(message);
@@ -65,6 +67,16 @@ public class ConnectionContainer {
          }
     }
 
+    public void sendToAllExcept(int gameID, Collection<String> exceptUsernames, String message) {
+        checkIfGameExists(gameID);
+        List<Tuple> users = gameTracker.get(gameID);
+        for (Tuple user : users) {
+            if (!exceptUsernames.contains(user.username)) {
+                user.send(message);
+            }
+        }
+    }
+
     private void checkIfGameExists(int gameID) {
         if (!gameTracker.containsKey(gameID)) {
             throw new RuntimeException("Error: no game by that gameID in memory");
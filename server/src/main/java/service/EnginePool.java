@@ -0,0 +1,109 @@
+package service;
+
+import chess.engine.Search;
+import chess.engine.Tablebase;
+import chess.engine.TranspositionTable;
+import server.exceptions.OverloadedException;
+import service.results.EngineMetrics;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Runs engine work on a fixed number of worker threads with a bounded queue, so searches never run on
+ * (or pile up behind) the threads serving HTTP and websocket requests. Each worker keeps its own Search,
+ * and all of them share one transposition table. Once every worker is busy and the queue is full, new
+ * work is turned away with an OverloadedException instead of waiting.
+ */
+public class EnginePool implements AutoCloseable {
+
+    private final ThreadPoolExecutor executor;
+    private final int queueCapacity;
+    private final ThreadLocal<Search> searches;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder totalLatencyNanos = new LongAdder();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    /**
+     * @param workers        number of searches that can run at once
+     * @param queueCapacity  most jobs that can wait for a worker
+     * @param tableMegabytes size of the shared transposition table
+     * @param tablebase      endgame tables the searches use
+     */
+    public EnginePool(int workers, int queueCapacity, int tableMegabytes, Tablebase tablebase) {
+        if (workers < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("The engine pool needs at least one worker and one queue slot");
+        }
+        this.queueCapacity = queueCapacity;
+        TranspositionTable table = new TranspositionTable(tableMegabytes);
+        searches = ThreadLocal.withInitial(() -> new Search(table, tablebase));
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            var thread = new Thread(runnable, "engine-worker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Queues a job for the next free worker
+     *
+     * @param job work to run with the worker's Search
+     * @param <T> what the job returns
+     * @return a future completed with the job's result on the worker thread
+     * @throws OverloadedException if every worker is busy and the queue is full
+     */
+    public <T> CompletableFuture<T> submit(Function<Search, T> job) throws OverloadedException {
+        long submitted = System.nanoTime();
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                T result;
+                try {
+                    result = job.apply(searches.get());
+                } catch (Throwable ex) {
+                    recordLatency(System.nanoTime() - submitted);
+                    future.completeExceptionally(ex);
+                    return;
+                }
+                recordLatency(System.nanoTime() - submitted);
+                future.complete(result);
+            });
+        } catch (RejectedExecutionException ex) {
+            rejected.increment();
+            throw new OverloadedException("The engine is busy, try again shortly");
+        }
+        return future;
+    }
+
+    public EngineMetrics metrics() {
+        long count = completed.sum();
+        double averageMillis = count == 0 ? 0 : totalLatencyNanos.sum() / (count * 1_000_000.0);
+        return new EngineMetrics(executor.getCorePoolSize(), executor.getActiveCount(), executor.getQueue().size(),
+                queueCapacity, count, rejected.sum(), averageMillis, maxLatencyNanos.get() / 1_000_000.0);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @param nanos time from submission to the result, queueing included
+     */
+    private void recordLatency(long nanos) {
+        completed.increment();
+        totalLatencyNanos.add(nanos);
+        maxLatencyNanos.accumulateAndGet(nanos, Math::max);
+    }
+}
@@ -34,6 +34,10 @@ public class GameService {
             AlreadyTakenException, DataAccessException {
         verifyAuthToken(req.authToken());
         String username = dataAccess.getAuthByToken(req.authToken()).username();
+        // only the bot's own account may sit in a game as the bot, or its moves would be played for a person
+        if (BotService.isBot(username) && !BotService.isBotAccount(dataAccess.getUser(username))) {
+            throw new UnauthorizedException("This username is reserved for the bot");
+        }
 
         TeamColor teamColor = req.playerColor().equals("WHITE") ? TeamColor.WHITE : TeamColor.BLACK;
 
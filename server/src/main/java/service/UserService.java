@@ -24,6 +24,9 @@ public class UserService {
     }
 
     public RegisterResult register(RegisterRequest user) throws AlreadyTakenException, DataAccessException {
+        if (BotService.isBot(user.username())) {
+            throw new AlreadyTakenException("This username is reserved");
+        }
         if (dataAccess.getUser(user.username()) != null) {
             throw new AlreadyTakenException("This username is already taken");
         }
@@ -43,7 +46,8 @@ public class UserService {
         if (user == null) {
             throw new UnauthorizedException("unauthorized -- invalid username or password");
         }
-        if (!checkPassword(req.password(), user.password())) {
+        // the bot never logs in, and a person who registered its username before it was reserved can't either
+        if (BotService.isBot(user.username()) || !checkPassword(req.password(), user.password())) {
             throw new UnauthorizedException("unauthorized -- invalid username or password");
         }
 
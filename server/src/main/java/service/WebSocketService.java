@@ -11,11 +11,16 @@ import model.AuthData;
 import model.GameData;
 import org.eclipse.jetty.websocket.api.Session;
 import server.exceptions.InvalidRequestException;
+import server.exceptions.OverloadedException;
 import server.exceptions.UnauthorizedException;
+import service.requests.AnalysisRequest;
+import service.results.MoveAnnotation;
 import websocket.commands.UserGameCommand;
 import websocket.messages.*;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
 
 import static websocket.messages.ServerMessage.ServerMessageType.*;
 
@@ -24,10 +29,24 @@ public class WebSocketService {
     private final DataAccess dataAccess;
     private final ConnectionContainer connectionContainer;
     private final Gson serializer;
-
-    public WebSocketService(DataAccess dataAccess, Gson serializer) {
+    private final AnalysisService analysisService;
+    private final BotService botService;
+    private final AnnotationPipeline annotationPipeline;
+    // moves, resignations and leaving read a game and write it back, so each game allows one at a time;
+    // games share a fixed set of locks so nothing has to be cleaned up when a game ends
+    private static final int GAME_LOCK_STRIPES = 64;
+    private final Object[] gameLocks = new Object[GAME_LOCK_STRIPES];
+
+    public WebSocketService(DataAccess dataAccess, Gson serializer, AnalysisService analysisService, BotService botService,
+                            AnnotationPipeline annotationPipeline) {
         this.dataAccess = dataAccess;
         this.serializer = serializer;
+        this.analysisService = analysisService;
+        this.botService = botService;
+        this.annotationPipeline = annotationPipeline;
+        for (int i = 0; i < gameLocks.length; i++) {
+            gameLocks[i] = new Object();
+        }
         connectionContainer = new ConnectionContainer();
     }
 
@@ -48,6 +67,9 @@ public class WebSocketService {
 
         String serializedNotification = serializer.toJson(new NotificationMessage(NOTIFICATION, notificationForConnection(game, username)));
         connectionContainer.sendToAllExcept(gameID, username, serializedNotification);
+
+        // a bot playing white makes its first move once someone is there to see it
+        requestBotMove(game);
     }
 
     public void makeMove(UserGameCommand command, Session session) throws DataAccessException {
@@ -55,61 +77,34 @@ public class WebSocketService {
             return;
         }
 
-        AuthData auth = dataAccess.getAuthByToken(command.getAuthToken());
-        GameData game = dataAccess.getGame(command.getGameID());
-        int gameID = command.getGameID();
-        String username = auth.username();
-
-        if (game.gameName() != null && game.gameName().contains("OVER")) {
-            String errorMessage = "ERROR: This game is over. Moves can no longer be made.";
-            sendMessage(session, serializer.toJson(new ErrorMessage(ERROR, errorMessage)));
-            return;
-        }
+        GameData updatedGame;
+        synchronized (lockFor(command.getGameID())) {
+            AuthData auth = dataAccess.getAuthByToken(command.getAuthToken());
+            GameData game = dataAccess.getGame(command.getGameID());
+            String username = auth.username();
 
-        boolean isWhite = game.whiteUsername() != null && username.equals(game.whiteUsername());
-        ChessGame.TeamColor playerColor = isWhite ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
-        ChessGame.TeamColor opposingColor = isWhite ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+            if (game.gameName() != null && game.gameName().contains("OVER")) {
+                String errorMessage = "ERROR: This game is over. Moves can no longer be made.";
+                sendMessage(session, serializer.toJson(new ErrorMessage(ERROR, errorMessage)));
+                return;
+            }
 
-        if (verifyMoveValidity(command, session, game, playerColor)) {
-            return;
-        }
+            boolean isWhite = game.whiteUsername() != null && username.equals(game.whiteUsername());
+            ChessGame.TeamColor playerColor = isWhite ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+            ChessGame.TeamColor opposingColor = isWhite ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
 
-        try {
-            ChessGame newGame = game.game();
-            newGame.makeMove(command.getMove());
-
-            String loadMessage = serializer.toJson(new LoadGameMessage(LOAD_GAME, newGame));
-            connectionContainer.sendToAll(gameID, loadMessage);
-
-            String notificationMessage = serializer.toJson(new NotificationMessage(NOTIFICATION,
-                    username + " moved " + command.getMove().toString()));
-            connectionContainer.sendToAllExcept(gameID, username, notificationMessage);
-
-            GameData updatedGame = new GameData(gameID, game.whiteUsername(), game.blackUsername(), game.gameName(), newGame);
-
-            if (newGame.isInCheckmate(opposingColor)) {
-                // is in checkmate, end game and send notification
-                updatedGame = setGameOver(updatedGame);
-                String userInCheckmate = opposingColor == ChessGame.TeamColor.WHITE ? updatedGame.whiteUsername() : updatedGame.blackUsername();
-                String endMessage = serializer.toJson(new NotificationMessage(NOTIFICATION, userInCheckmate + "(" + opposingColor + ") is now in CHECKMATE. Game over."));
-                connectionContainer.sendToAll(gameID, endMessage);
-            } else if (newGame.isInStalemate(opposingColor)) {
-                // is in stalemate, end game and send notification
-                updatedGame = setGameOver(updatedGame);
-                String endMessage = serializer.toJson(new NotificationMessage(NOTIFICATION, "Game is now in STALEMATE. Game over."));
-                connectionContainer.sendToAll(gameID, endMessage);
-            } else if (newGame.isInCheck(opposingColor)) {
-                // opposing is in check, send notification
-                String userInCheck = opposingColor == ChessGame.TeamColor.WHITE ? updatedGame.whiteUsername() : updatedGame.blackUsername();
-                String newNotification = serializer.toJson(new NotificationMessage(NOTIFICATION, userInCheck + "(" + opposingColor + ") is now in CHECK."));
-                connectionContainer.sendToAll(gameID, newNotification);
+            if (verifyMoveValidity(command, session, game, playerColor)) {
+                return;
             }
 
-            dataAccess.updateGame(gameID, updatedGame);
-
-        } catch (InvalidMoveException ex) {
-            sendMessage(session, serializer.toJson(new ErrorMessage(ERROR, "ERROR: that is not a valid move")));
+            try {
+                updatedGame = applyMove(game, username, command.getMove(), opposingColor);
+            } catch (InvalidMoveException ex) {
+                sendMessage(session, serializer.toJson(new ErrorMessage(ERROR, "ERROR: that is not a valid move")));
+                return;
+            }
         }
+        requestBotMove(updatedGame);
     }
 
     public void leave(UserGameCommand command, Session session) throws DataAccessException {
@@ -118,7 +113,6 @@ public class WebSocketService {
         }
 
         AuthData auth = dataAccess.getAuthByToken(command.getAuthToken());
-        GameData game = dataAccess.getGame(command.getGameID());
         int gameID = command.getGameID();
         String username = auth.username();
 
@@ -126,16 +120,19 @@ public class WebSocketService {
         session.close();
 
         String notification;
-        if (game.whiteUsername() != null && game.whiteUsername().equals(username)) {
-            GameData newGame = new GameData(gameID, null, game.blackUsername(), game.gameName(), game.game());
-            dataAccess.updateGame(gameID, newGame);
-            notification = username + " has left the game. Was WHITE";
-        } else if (game.blackUsername() != null && game.blackUsername().equals(username)) {
-            GameData newGame = new GameData(gameID, game.whiteUsername(), null, game.gameName(), game.game());
-            dataAccess.updateGame(gameID, newGame);
-            notification = username + " has left the game. Was BLACK";
-        } else {
-            notification = username + " has left the game. Was observer";
+        synchronized (lockFor(gameID)) {
+            GameData game = dataAccess.getGame(gameID);
+            if (game.whiteUsername() != null && game.whiteUsername().equals(username)) {
+                GameData newGame = new GameData(gameID, null, game.blackUsername(), game.gameName(), game.game());
+                dataAccess.updateGame(gameID, newGame);
+                notification = username + " has left the game. Was WHITE";
+            } else if (game.blackUsername() != null && game.blackUsername().equals(username)) {
+                GameData newGame = new GameData(gameID, game.whiteUsername(), null, game.gameName(), game.game());
+                dataAccess.updateGame(gameID, newGame);
+                notification = username + " has left the game. Was BLACK";
+            } else {
+                notification = username + " has left the game. Was observer";
+            }
         }
 
         connectionContainer.sendToAll(gameID, serializer.toJson(new NotificationMessage(NOTIFICATION, notification)));
@@ -147,27 +144,155 @@ public class WebSocketService {
         }
 
         AuthData auth = dataAccess.getAuthByToken(command.getAuthToken());
-        GameData game = dataAccess.getGame(command.getGameID());
         int gameID = command.getGameID();
         String username = auth.username();
 
-        if (game.gameName() != null && game.gameName().contains("OVER")) {
-            String errorMessage = "ERROR: This game is over, you cannot resign";
-            sendMessage(session, serializer.toJson(new ErrorMessage(ERROR, errorMessage)));
+        synchronized (lockFor(gameID)) {
+            GameData game = dataAccess.getGame(gameID);
+
+            if (game.gameName() != null && game.gameName().contains("OVER")) {
+                String errorMessage = "ERROR: This game is over, you cannot resign";
+                sendMessage(session, serializer.toJson(new ErrorMessage(ERROR, errorMessage)));
+                return;
+            }
+
+            if (isObserver(username, game)) {
+                String errorMessage = "ERROR: Cannot resign, you are an observer";
+                sendMessage(session, serializer.toJson(new ErrorMessage(ERROR, errorMessage)));
+                return;
+            }
+
+            GameData newGame = new GameData(gameID, game.whiteUsername(), game.blackUsername(), game.gameName() + " [OVER]", game.game());
+            dataAccess.updateGame(gameID, newGame);
+        }
+
+        String notification = username + " has resigned. The game is now over.";
+        connectionContainer.sendToAll(gameID, serializer.toJson(new NotificationMessage(NOTIFICATION, notification)));
+    }
+
+    public void analyze(UserGameCommand command, Session session) throws DataAccessException {
+        if (checkCommand(command, session)) {
             return;
         }
 
-        if (isObserver(username, game)) {
-            String errorMessage = "ERROR: Cannot resign, you are an observer";
-            sendMessage(session, serializer.toJson(new ErrorMessage(ERROR, errorMessage)));
+        try {
+            // the answer is sent from the engine worker once the search finishes
+            analysisService.analyze(new AnalysisRequest(command.getAuthToken(), command.getGameID(), null))
+                    .thenAccept(result -> sendMessage(session, serializer.toJson(new AnalysisMessage(ANALYSIS,
+                            result.bestMove(), result.score(), result.mateIn(), result.depth(), result.principalVariation()))))
+                    .exceptionally(ex -> {
+                        sendMessage(session, serializer.toJson(new ErrorMessage(ERROR, "ERROR: analysis failed")));
+                        return null;
+                    });
+        } catch (OverloadedException ex) {
+            sendMessage(session, serializer.toJson(new ErrorMessage(ERROR, "ERROR: the engine is busy, try again shortly")));
+        } catch (UnauthorizedException | InvalidRequestException ex) {
+            sendMessage(session, serializer.toJson(new ErrorMessage(ERROR, "ERROR: " + ex.getMessage())));
+        }
+    }
+
+    private GameData applyMove(GameData game, String username, ChessMove move, ChessGame.TeamColor opposingColor)
+            throws InvalidMoveException, DataAccessException {
+        int gameID = game.gameID();
+        ChessGame newGame = game.game();
+        String fenBefore = newGame.toFen();
+        newGame.makeMove(move);
+
+        String loadMessage = serializer.toJson(new LoadGameMessage(LOAD_GAME, newGame));
+        connectionContainer.sendToAll(gameID, loadMessage);
+
+        String notificationMessage = serializer.toJson(new NotificationMessage(NOTIFICATION,
+                username + " moved " + move.toString()));
+        connectionContainer.sendToAllExcept(gameID, username, notificationMessage);
+
+        GameData updatedGame = new GameData(gameID, game.whiteUsername(), game.blackUsername(), game.gameName(), newGame);
+        ChessGame.GameStatus status = newGame.evaluateStatus();
+
+        if (status == ChessGame.GameStatus.CHECKMATE) {
+            // is in checkmate, end game and send notification
+            updatedGame = setGameOver(updatedGame);
+            String userInCheckmate = opposingColor == ChessGame.TeamColor.WHITE ? updatedGame.whiteUsername() : updatedGame.blackUsername();
+            String endMessage = serializer.toJson(new NotificationMessage(NOTIFICATION, userInCheckmate + "(" + opposingColor + ") is now in CHECKMATE. Game over."));
+            connectionContainer.sendToAll(gameID, endMessage);
+        } else if (status == ChessGame.GameStatus.STALEMATE) {
+            // is in stalemate, end game and send notification
+            updatedGame = setGameOver(updatedGame);
+            String endMessage = serializer.toJson(new NotificationMessage(NOTIFICATION, "Game is now in STALEMATE. Game over."));
+            connectionContainer.sendToAll(gameID, endMessage);
+        } else if (status == ChessGame.GameStatus.CHECK) {
+            // opposing is in check, send notification
+            String userInCheck = opposingColor == ChessGame.TeamColor.WHITE ? updatedGame.whiteUsername() : updatedGame.blackUsername();
+            String newNotification = serializer.toJson(new NotificationMessage(NOTIFICATION, userInCheck + "(" + opposingColor + ") is now in CHECK."));
+            connectionContainer.sendToAll(gameID, newNotification);
+        }
+
+        dataAccess.updateGame(gameID, updatedGame);
+
+        // graded on the pipeline's thread; if it is backed up the move simply goes unannotated
+        annotationPipeline.submit(gameID, username, move, fenBefore, newGame.toFen(), this::sendAnnotation);
+        return updatedGame;
+    }
+
+    private void sendAnnotation(MoveAnnotation annotation) {
+        try {
+            GameData game = dataAccess.getGame(annotation.gameID());
+            if (game == null) {
+                return;
+            }
+            String text = annotation.username() + "'s move " + annotation.move().toString() + " was "
+                    + annotation.classification().toString().toLowerCase();
+            if (annotation.classification() != MoveAnnotation.Classification.BEST && annotation.bestMove() != null) {
+                text += " (-" + annotation.centipawnLoss() + "), best was " + annotation.bestMove().toString();
+            }
+            // only observers see annotations, so they can't coach the players mid-game
+            String message = serializer.toJson(new NotificationMessage(NOTIFICATION, text));
+            connectionContainer.sendToAllExcept(annotation.gameID(),
+                    Arrays.asList(game.whiteUsername(), game.blackUsername()), message);
+        } catch (DataAccessException ex) {
+            System.out.println("Unable to send an annotation: " + ex.getMessage());
+        }
+    }
+
+    private void requestBotMove(GameData game) {
+        CompletableFuture<ChessMove> botMove;
+        try {
+            botMove = botService.requestMove(game);
+        } catch (OverloadedException ex) {
+            // rejoining the game asks for the move again
+            String text = BotService.BOT_USERNAME + " is too busy to move right now, rejoin the game to try again";
+            connectionContainer.sendToAll(game.gameID(), serializer.toJson(new NotificationMessage(NOTIFICATION, text)));
+            return;
+        }
+        if (botMove == null) {
             return;
         }
+        long positionKey = game.game().getZobristKey();
+        botMove.thenAccept(move -> playBotMove(game.gameID(), positionKey, move))
+                .exceptionally(ex -> {
+                    System.out.println("The bot could not find a move: " + ex.getMessage());
+                    return null;
+                });
+    }
 
-        GameData newGame = new GameData(gameID, game.whiteUsername(), game.blackUsername(), game.gameName() + " [OVER]", game.game());
-        dataAccess.updateGame(gameID, newGame);
+    private void playBotMove(int gameID, long positionKey, ChessMove move) {
+        try {
+            synchronized (lockFor(gameID)) {
+                GameData game = dataAccess.getGame(gameID);
+                // the game may have moved on while the bot was thinking, e.g. its opponent resigned
+                if (move == null || game == null || (game.gameName() != null && game.gameName().contains("OVER"))
+                        || game.game().getZobristKey() != positionKey) {
+                    return;
+                }
+                boolean botIsWhite = game.game().getTeamTurn() == ChessGame.TeamColor.WHITE;
+                applyMove(game, BotService.BOT_USERNAME, move, botIsWhite ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE);
+            }
+        } catch (InvalidMoveException | DataAccessException ex) {
+            System.out.println("The bot could not make its move: " + ex.getMessage());
+        }
+    }
 
-        String notification = username + " has resigned. The game is now over.";
-        connectionContainer.sendToAll(gameID, serializer.toJson(new NotificationMessage(NOTIFICATION, notification)));
+    private Object lockFor(int gameID) {
+        return gameLocks[Math.floorMod(gameID, GAME_LOCK_STRIPES)];
     }
 
     private boolean isObserver(String username, GameData game) {
@@ -257,7 +382,10 @@ public class WebSocketService {
 
     private void sendMessage(Session session, String message) {
         try {
-            session.getRemote().sendString(message);
+            // bot moves and analysis are sent from engine threads, so sends to one session take turns
+            synchronized (session) {
+                session.getRemote().sendString(message);
+            }
         } catch (Throwable ex) {
             System.out.println("An error occured trying to send a websocket message: " + ex.getMessage());
         }
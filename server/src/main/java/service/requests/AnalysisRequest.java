@@ -0,0 +1,4 @@
+package service.requests;
+
+public record AnalysisRequest(String authToken, int gameID, Long budgetMillis) {
+}
@@ -0,0 +1,9 @@
+package service.results;
+
+import chess.ChessMove;
+
+import java.util.List;
+
+public record AnalysisResult(ChessMove bestMove, int score, int mateIn, int depth, List<ChessMove> principalVariation,
+                             List<ChessMove> bookMoves, long nodes, long elapsedMillis) {
+}
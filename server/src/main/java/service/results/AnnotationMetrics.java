@@ -0,0 +1,6 @@
+package service.results;
+
+public record AnnotationMetrics(int queued, int queueCapacity, long annotated, long droppedQueueFull,
+                                long droppedStale, long batches, double averageBatchSize, double p50LagMillis,
+                                double p99LagMillis, double maxLagMillis) {
+}
@@ -0,0 +1,6 @@
+package service.results;
+
+public record BotMetrics(int cores, int thinking, int queued, int queueCapacity, long movesPlayed, long rejected,
+                         long lastBudgetMillis, double p50LatencyMillis, double p90LatencyMillis,
+                         double p99LatencyMillis, double maxLatencyMillis) {
+}
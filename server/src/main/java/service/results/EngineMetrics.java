@@ -0,0 +1,5 @@
+package service.results;
+
+public record EngineMetrics(int workers, int activeWorkers, int queueDepth, int queueCapacity, long completed,
+                            long rejected, double averageLatencyMillis, double maxLatencyMillis) {
+}
@@ -0,0 +1,14 @@
+package service.results;
+
+import chess.ChessMove;
+
+public record MoveAnnotation(int gameID, String username, ChessMove move, Classification classification,
+                             int centipawnLoss, ChessMove bestMove) {
+
+    public enum Classification {
+        BEST,
+        INACCURACY,
+        MISTAKE,
+        BLUNDER
+    }
+}
@@ -0,0 +1,102 @@
+package service;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.engine.OpeningBook;
+import chess.engine.Tablebase;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import dataaccess.*;
+import server.exceptions.*;
+import service.requests.*;
+import service.results.*;
+import model.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class StandardAnalysisTests {
+
+    private final static String AUTH = "auth123";
+    private final static int MATE_GAME_ID = 7;
+
+    private DataAccess testDataAccess;
+    private EnginePool testEnginePool;
+    private AnalysisService testAnalysisService;
+
+    @BeforeEach
+    public void init() throws DataAccessException {
+        testDataAccess = new MemoryDataAccess();
+        testDataAccess.createUser(new UserData("analyst", "email", "password"));
+        testDataAccess.createAuth(new AuthData("analyst", AUTH));
+        testDataAccess.createGameWithID(new GameData(MATE_GAME_ID, "analyst", null, "mate",
+                ChessGame.fromFen("6k1/5ppp/8/8/8/8/5PPP/R5K1 w - - 0 1")));
+        testEnginePool = new EnginePool(1, 1, 1, Tablebase.empty());
+        testAnalysisService = new AnalysisService(testDataAccess, testEnginePool, OpeningBook.empty());
+    }
+
+    @AfterEach
+    public void close() {
+        testEnginePool.close();
+    }
+
+    @Test
+    @DisplayName("Analysis Finds Mate In One")
+    public void analysisFindsMate() {
+        CompletableFuture<AnalysisResult> future = assertDoesNotThrow(() ->
+                testAnalysisService.analyze(new AnalysisRequest(AUTH, MATE_GAME_ID, 2000L)));
+        AnalysisResult result = assertDoesNotThrow(() -> future.get(10, TimeUnit.SECONDS));
+        ChessMove mate = new ChessMove(new ChessPosition(1, 1), new ChessPosition(8, 1), null);
+        assertEquals(mate, result.bestMove());
+        assertEquals(1, result.mateIn());
+        assertEquals(mate, result.principalVariation().get(0));
+        assertTrue(result.bookMoves().isEmpty());
+
+        EngineMetrics metrics = testEnginePool.metrics();
+        assertEquals(1, metrics.completed());
+        assertEquals(0, metrics.queueDepth());
+        assertTrue(metrics.maxLatencyMillis() > 0);
+    }
+
+    @Test
+    @DisplayName("Analysis Bad Requests")
+    public void analysisBadRequests() {
+        assertThrows(UnauthorizedException.class,
+                () -> testAnalysisService.analyze(new AnalysisRequest("notAnAuth", MATE_GAME_ID, null)));
+        assertThrows(InvalidRequestException.class,
+                () -> testAnalysisService.analyze(new AnalysisRequest(AUTH, MATE_GAME_ID + 1, null)));
+        assertThrows(InvalidRequestException.class,
+                () -> testAnalysisService.analyze(new AnalysisRequest(AUTH, MATE_GAME_ID, -5L)));
+    }
+
+    @Test
+    @DisplayName("Engine Pool Rejects Work Once The Queue Is Full")
+    public void enginePoolRejectsWhenFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Integer> running = testEnginePool.submit(search -> {
+            started.countDown();
+            assertDoesNotThrow(() -> release.await());
+            return 1;
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        CompletableFuture<Integer> queued = testEnginePool.submit(search -> 2);
+
+        assertThrows(OverloadedException.class, () -> testEnginePool.submit(search -> 3));
+        assertThrows(OverloadedException.class,
+                () -> testAnalysisService.analyze(new AnalysisRequest(AUTH, MATE_GAME_ID, null)));
+        EngineMetrics busy = testEnginePool.metrics();
+        assertEquals(1, busy.activeWorkers());
+        assertEquals(1, busy.queueDepth());
+        assertEquals(2, busy.rejected());
+
+        release.countDown();
+        assertEquals(1, running.get(10, TimeUnit.SECONDS));
+        assertEquals(2, queued.get(10, TimeUnit.SECONDS));
+        assertEquals(2, testEnginePool.metrics().completed());
+    }
+}
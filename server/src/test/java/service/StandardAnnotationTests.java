@@ -0,0 +1,117 @@
+package service;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.engine.Tablebase;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import service.results.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class StandardAnnotationTests {
+
+    // white's queen can take the undefended rook on d5
+    private final static String QUEEN_VS_ROOK = "4k3/8/8/3r4/8/8/8/3QK3 w - - 0 1";
+
+    private AnnotationPipeline testPipeline;
+
+    @AfterEach
+    public void close() {
+        testPipeline.close();
+    }
+
+    @Test
+    @DisplayName("Annotations Grade Best Move And Blunder")
+    public void annotationsGradeMoves() throws Exception {
+        testPipeline = new AnnotationPipeline(3, 16, 8, 10_000, 1, Tablebase.empty());
+        ChessMove takeRook = new ChessMove(new ChessPosition(1, 4), new ChessPosition(5, 4), null);
+        ChessMove hangQueen = new ChessMove(new ChessPosition(1, 4), new ChessPosition(4, 4), null);
+
+        MoveAnnotation best = annotate(takeRook);
+        assertEquals(MoveAnnotation.Classification.BEST, best.classification());
+        assertEquals(takeRook, best.bestMove());
+
+        MoveAnnotation blunder = annotate(hangQueen);
+        assertEquals(MoveAnnotation.Classification.BLUNDER, blunder.classification());
+        assertTrue(blunder.centipawnLoss() >= 250);
+        assertEquals("player", blunder.username());
+
+        AnnotationMetrics metrics = testPipeline.metrics();
+        assertEquals(2, metrics.annotated());
+        assertEquals(0, metrics.droppedQueueFull() + metrics.droppedStale());
+        assertTrue(metrics.maxLagMillis() > 0);
+    }
+
+    @Test
+    @DisplayName("Annotations Are Dropped And Batched Under Load")
+    public void annotationsDroppedUnderLoad() throws Exception {
+        testPipeline = new AnnotationPipeline(1, 4, 8, 10_000, 1, Tablebase.empty());
+        ChessMove takeRook = new ChessMove(new ChessPosition(1, 4), new ChessPosition(5, 4), null);
+        String after = afterMove(takeRook);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger delivered = new AtomicInteger();
+
+        // the first listener holds up the worker so the queue fills behind it
+        assertTrue(testPipeline.submit(1, "player", takeRook, QUEEN_VS_ROOK, after, annotation -> {
+            started.countDown();
+            assertDoesNotThrow(() -> release.await());
+            delivered.incrementAndGet();
+        }));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        for (int gameID = 2; gameID <= 5; gameID++) {
+            assertTrue(testPipeline.submit(gameID, "player", takeRook, QUEEN_VS_ROOK, after,
+                    annotation -> delivered.incrementAndGet()));
+        }
+        assertFalse(testPipeline.submit(6, "player", takeRook, QUEEN_VS_ROOK, after,
+                annotation -> delivered.incrementAndGet()));
+        assertEquals(4, testPipeline.metrics().queued());
+        assertEquals(1, testPipeline.metrics().droppedQueueFull());
+
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (delivered.get() < 5 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(5, delivered.get());
+        AnnotationMetrics metrics = testPipeline.metrics();
+        assertEquals(5, metrics.annotated());
+        // the four that queued up are graded as one batch
+        assertEquals(2, metrics.batches());
+        assertEquals(2.5, metrics.averageBatchSize());
+    }
+
+    @Test
+    @DisplayName("Stale Annotations Are Dropped")
+    public void staleAnnotationsDropped() throws Exception {
+        testPipeline = new AnnotationPipeline(1, 4, 8, 0, 1, Tablebase.empty());
+        ChessMove takeRook = new ChessMove(new ChessPosition(1, 4), new ChessPosition(5, 4), null);
+        assertTrue(testPipeline.submit(1, "player", takeRook, QUEEN_VS_ROOK, afterMove(takeRook), annotation -> { }));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (testPipeline.metrics().droppedStale() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, testPipeline.metrics().droppedStale());
+        assertEquals(0, testPipeline.metrics().annotated());
+    }
+
+    private MoveAnnotation annotate(ChessMove move) throws Exception {
+        CompletableFuture<MoveAnnotation> annotation = new CompletableFuture<>();
+        assertTrue(testPipeline.submit(1, "player", move, QUEEN_VS_ROOK, afterMove(move), annotation::complete));
+        return annotation.get(10, TimeUnit.SECONDS);
+    }
+
+    private static String afterMove(ChessMove move) throws Exception {
+        ChessGame game = ChessGame.fromFen(QUEEN_VS_ROOK);
+        game.makeMove(move);
+        return game.toFen();
+    }
+}
@@ -0,0 +1,166 @@
+package service;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.engine.OpeningBook;
+import chess.engine.Tablebase;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import dataaccess.*;
+import server.exceptions.*;
+import service.requests.*;
+import service.results.*;
+import model.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class StandardBotTests {
+
+    private final static String AUTH = "auth123";
+    private final static int GAME_ID = 3;
+    private final static long THINK_MILLIS = 200;
+
+    private DataAccess testDataAccess;
+    private BotScheduler testBotScheduler;
+    private BotService testBotService;
+
+    @BeforeEach
+    public void init() throws DataAccessException {
+        testDataAccess = new MemoryDataAccess();
+        testDataAccess.createUser(new UserData("player", "email", "password"));
+        testDataAccess.createAuth(new AuthData("player", AUTH));
+        testDataAccess.createGameWithID(new GameData(GAME_ID, "player", null, "versus bot", new ChessGame()));
+        testBotScheduler = new BotScheduler(1, THINK_MILLIS, 10, 1, Tablebase.empty());
+        testBotService = new BotService(testDataAccess, new GameService(testDataAccess), testBotScheduler,
+                OpeningBook.empty());
+    }
+
+    @AfterEach
+    public void close() {
+        testBotScheduler.close();
+    }
+
+    @Test
+    @DisplayName("Add Bot Joins Game")
+    public void addBotJoinsGame() throws DataAccessException {
+        assertDoesNotThrow(() -> testBotService.addBot(new JoinRequest(AUTH, "BLACK", GAME_ID)));
+        assertEquals(BotService.BOT_USERNAME, testDataAccess.getGame(GAME_ID).blackUsername());
+
+        assertThrows(AlreadyTakenException.class,
+                () -> testBotService.addBot(new JoinRequest(AUTH, "WHITE", GAME_ID)));
+        assertThrows(UnauthorizedException.class,
+                () -> testBotService.addBot(new JoinRequest("notAnAuth", "BLACK", GAME_ID)));
+        assertThrows(InvalidRequestException.class,
+                () -> testBotService.addBot(new JoinRequest(AUTH, "BLACK", GAME_ID + 1)));
+    }
+
+    @Test
+    @DisplayName("Bot Username Is Reserved")
+    public void botUsernameReserved() throws DataAccessException {
+        UserService userService = new UserService(testDataAccess);
+        assertThrows(AlreadyTakenException.class,
+                () -> userService.register(new RegisterRequest(BotService.BOT_USERNAME, "email", "password")));
+
+        // someone who registered the name before it was reserved can't log in, join games or be taken for the bot
+        testDataAccess.createUser(new UserData(BotService.BOT_USERNAME, "email", "password"));
+        testDataAccess.createAuth(new AuthData(BotService.BOT_USERNAME, "impostor"));
+        assertThrows(UnauthorizedException.class,
+                () -> userService.login(new LoginRequest(BotService.BOT_USERNAME, "password")));
+        assertThrows(UnauthorizedException.class,
+                () -> new GameService(testDataAccess).joinGame(new JoinRequest("impostor", "BLACK", GAME_ID)));
+        assertThrows(AlreadyTakenException.class,
+                () -> testBotService.addBot(new JoinRequest(AUTH, "BLACK", GAME_ID)));
+        assertNull(testDataAccess.getGame(GAME_ID).blackUsername());
+    }
+
+    @Test
+    @DisplayName("Bot Only Moves On Its Turn")
+    public void botMovesOnItsTurn() throws Exception {
+        testBotService.addBot(new JoinRequest(AUTH, "BLACK", GAME_ID));
+        GameData game = testDataAccess.getGame(GAME_ID);
+        assertNull(testBotService.requestMove(game));
+
+        ChessGame position = game.game();
+        position.makeMove(position.validMoves(new ChessPosition(2, 5)).stream()
+                .filter(move -> move.getEndPosition().getRow() == 4).findFirst().orElseThrow());
+        GameData afterMove = new GameData(GAME_ID, game.whiteUsername(), game.blackUsername(), game.gameName(), position);
+        CompletableFuture<ChessMove> botMove = testBotService.requestMove(afterMove);
+        assertNotNull(botMove);
+        // a second request while the bot is thinking is ignored
+        assertNull(testBotService.requestMove(afterMove));
+
+        ChessMove move = botMove.get(10, TimeUnit.SECONDS);
+        assertTrue(position.validMoves(move.getStartPosition()).contains(move));
+
+        GameData over = new GameData(GAME_ID, game.whiteUsername(), game.blackUsername(), game.gameName() + " [OVER]", position);
+        assertNull(testBotService.requestMove(over));
+    }
+
+    @Test
+    @DisplayName("Scheduler Shortens Think Time Under Load")
+    public void schedulerShortensThinkTime() throws Exception {
+        List<CompletableFuture<ChessMove>> moves = new ArrayList<>();
+        for (int gameID = 0; gameID < 8; gameID++) {
+            moves.add(testBotScheduler.schedule(gameID, new ChessGame()));
+        }
+        long start = System.nanoTime();
+        for (CompletableFuture<ChessMove> move : moves) {
+            assertNotNull(move.get(10, TimeUnit.SECONDS));
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        // eight moves at the full think time would take 1600ms on one core
+        assertTrue(elapsedMillis < 8 * THINK_MILLIS, "took " + elapsedMillis + "ms");
+
+        BotMetrics metrics = testBotScheduler.metrics();
+        assertEquals(8, metrics.movesPlayed());
+        assertEquals(0, metrics.queued());
+        assertTrue(metrics.lastBudgetMillis() < THINK_MILLIS);
+        assertTrue(metrics.p50LatencyMillis() > 0);
+        assertTrue(metrics.p50LatencyMillis() <= metrics.p99LatencyMillis());
+        assertTrue(metrics.p99LatencyMillis() <= metrics.maxLatencyMillis());
+    }
+
+    @Test
+    @DisplayName("Scheduler Sheds Moves Past The Floor")
+    public void schedulerShedsMoves() throws Exception {
+        // at a 100ms floor one core can give a 200ms think time to two moves, one thinking and one queued
+        BotScheduler scheduler = new BotScheduler(1, 200, 100, 1, Tablebase.empty());
+        CompletableFuture<ChessMove> thinking = scheduler.schedule(0, new ChessGame());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (scheduler.metrics().thinking() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        CompletableFuture<ChessMove> queued = scheduler.schedule(1, new ChessGame());
+        assertNotNull(queued);
+        assertThrows(OverloadedException.class, () -> scheduler.schedule(2, new ChessGame()));
+        assertEquals(1, scheduler.metrics().queueCapacity());
+        assertEquals(1, scheduler.metrics().rejected());
+
+        // closing fails the queued move instead of leaving it waiting, and frees its game
+        scheduler.close();
+        assertTrue(queued.isCompletedExceptionally());
+        assertThrows(OverloadedException.class, () -> scheduler.schedule(1, new ChessGame()));
+        assertNotNull(thinking.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("Latency Histogram Percentiles")
+    public void latencyHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.percentileMillis(0.5));
+        for (int millis = 1; millis <= 100; millis++) {
+            histogram.record(millis * 1_000_000L);
+        }
+        assertEquals(100, histogram.count());
+        assertEquals(100, histogram.maxMillis());
+        // buckets are within a quarter of a power of two
+        assertEquals(50, histogram.percentileMillis(0.5), 50 * 0.25);
+        assertEquals(99, histogram.percentileMillis(0.99), 99 * 0.25);
+    }
+}
@@ -0,0 +1,87 @@
+package chess;
+
+/**
+ * Static helpers for working with 64-bit bitboards.
+ * <p>
+ * Squares are numbered 0-63, starting at row 1, column 1 (a1) and counting across each row,
+ * so square = (row - 1) * 8 + (column - 1).
+ */
+public final class Bitboards {
+
+    public static final long FILE_A = 0x0101010101010101L;
+    public static final long FILE_H = FILE_A << 7;
+    public static final long RANK_1 = 0xFFL;
+    public static final long RANK_8 = RANK_1 << 56;
+
+    private Bitboards() {
+
+    }
+
+    /**
+     * Converts a row and column (both 1-8) into a square index
+     *
+     * @param row row number
+     * @param col column number
+     * @return square index 0-63
+     */
+    public static int square(int row, int col) {
+        return (row - 1) * 8 + (col - 1);
+    }
+
+    /**
+     * Converts a ChessPosition into a square index
+     *
+     * @param position position to convert
+     * @return square index 0-63
+     */
+    public static int square(ChessPosition position) {
+        return square(position.getRow(), position.getColumn());
+    }
+
+    /**
+     * @param square square index
+     * @return the row (1-8) of the square
+     */
+    public static int rowOf(int square) {
+        return (square >>> 3) + 1;
+    }
+
+    /**
+     * @param square square index
+     * @return the column (1-8) of the square
+     */
+    public static int colOf(int square) {
+        return (square & 7) + 1;
+    }
+
+    /**
+     * @param square square index
+     * @return a bitboard with only the given square set
+     */
+    public static long bit(int square) {
+        return 1L << square;
+    }
+
+    /**
+     * Checks whether a row and column are on the board
+     *
+     * @param row row number
+     * @param col column number
+     * @return true if within bounds, false otherwise
+     */
+    public static boolean withinBounds(int row, int col) {
+        return row <= 8 && row > 0 && col <= 8 && col > 0;
+    }
+
+    /**
+     * Returns the index of a piece's bitboard, white pieces first and then black,
+     * each in PieceType order
+     *
+     * @param color piece color
+     * @param type  piece type
+     * @return bitboard index 0-11
+     */
+    public static int pieceIndex(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return color.ordinal() * 6 + type.ordinal();
+    }
+}
@@ -4,7 +4,6 @@ import chess.movemanagers.MoveManager;
 import chess.movemanagers.MovementRule;
 
 import java.util.Arrays;
-import java.util.Objects;
 
 /**
  * A chessboard that can hold and rearrange chess pieces.
@@ -14,9 +13,57 @@ import java.util.Objects;
  */
 public class ChessBoard {
 
-    private ChessPiece[][] board = new ChessPiece[8][8];
+    private static final int UNDO_TO_SHIFT = 6;
+    private static final int UNDO_CAPTURE_SHIFT = 12;
+    private static final long UNDO_SQUARE_MASK = 0x3F;
+    private static final long UNDO_CASTLE = 1L << 18;
+    private static final int UNDO_STATE_SHIFT = 19;
+
+    // the state word packs what the pieces alone don't show: bits 0-3 are castling rights (white kingside,
+    // white queenside, black kingside, black queenside), bits 4-7 the column (1-8) of a pawn that can be
+    // captured en passant or 0, and bits 8-15 the halfmove clock
+    private static final int ALL_CASTLING_RIGHTS = 0xF;
+    private static final int EN_PASSANT_SHIFT = 4;
+    private static final int EN_PASSANT_MASK = 0xF;
+    private static final int CLOCK_SHIFT = 8;
+    private static final int CLOCK_MASK = 0xFF;
+    private static final int STATE_MASK = 0xFFFF;
+    // rights still kept after a piece moves from or to each square: a king or rook leaving home, or a rook being captured
+    private static final int[] CASTLING_KEPT = new int[64];
+
+    static {
+        Arrays.fill(CASTLING_KEPT, ALL_CASTLING_RIGHTS);
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            int homeRow = color == ChessGame.TeamColor.WHITE ? 1 : 8;
+            CASTLING_KEPT[Bitboards.square(homeRow, 5)] &= ~(castlingBit(color, true) | castlingBit(color, false));
+            CASTLING_KEPT[Bitboards.square(homeRow, 8)] &= ~castlingBit(color, true);
+            CASTLING_KEPT[Bitboards.square(homeRow, 1)] &= ~castlingBit(color, false);
+        }
+    }
+
+    private final long[] pieceBitboards = new long[12];
+    private final long[] teamOccupancy = new long[2];
+    private long occupied;
+    private final ChessPiece[] squares = new ChessPiece[64];
+    // XOR of the Zobrist keys of every piece on the board, kept up to date as pieces are placed and cleared
+    private long pieceKey;
+    // running evaluation sums from PieceSquareTables, kept up the same way as pieceKey
+    private int middlegameScore;
+    private int endgameScore;
+    private int gamePhase;
+    private int state = ALL_CASTLING_RIGHTS;
+    // Zobrist keys of the castling rights and en passant column in the state word, kept up with it
+    private long stateKey;
+    // set once pieces have been added by hand, when the castling bits may still name a king or rook that
+    // isn't home; settleCastlingRights clears them before any move, after which moves keep them exact
+    private boolean castlingUnchecked = true;
     private final MoveManager moveManager;
 
+    // undo records for makeMove, one packed long plus the moved and captured pieces per move
+    private transient long[] undoStack = new long[16];
+    private transient ChessPiece[] undoPieces = new ChessPiece[32];
+    private transient int undoDepth;
+
     public ChessBoard() {
         moveManager = new MoveManager();
     }
@@ -38,8 +85,7 @@ public class ChessBoard {
      * @return true if friendly present at position, false otherwise
      */
     public boolean checkFriendlyPosition(ChessPosition position, ChessGame.TeamColor color) {
-        ChessPiece potential = getPiece(position);
-        return potential != null && potential.getTeamColor() == color;
+        return (teamOccupancy[color.ordinal()] & Bitboards.bit(Bitboards.square(position))) != 0;
     }
 
     /**
@@ -50,8 +96,142 @@ public class ChessBoard {
      * @return true if enemy present at position, false otherwise
      */
     public boolean checkEnemyPosition(ChessPosition position, ChessGame.TeamColor color) {
-        ChessPiece potential = getPiece(position);
-        return potential != null && potential.getTeamColor() != color;
+        return (teamOccupancy[1 - color.ordinal()] & Bitboards.bit(Bitboards.square(position))) != 0;
+    }
+
+    /**
+     * Returns a bitboard of every occupied square
+     *
+     * @return occupancy mask
+     */
+    public long getOccupancy() {
+        return occupied;
+    }
+
+    /**
+     * Returns a bitboard of every square occupied by the given team
+     *
+     * @param color team color
+     * @return occupancy mask for that team
+     */
+    public long getTeamOccupancy(ChessGame.TeamColor color) {
+        return teamOccupancy[color.ordinal()];
+    }
+
+    /**
+     * Returns the bitboard for a single kind of piece
+     *
+     * @param color piece color
+     * @param type  piece type
+     * @return bitboard with a bit set on every square holding that piece
+     */
+    public long getPieceBitboard(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return pieceBitboards[Bitboards.pieceIndex(color, type)];
+    }
+
+    /**
+     * Returns the Zobrist key of the pieces on the board, its castling rights and any en passant file.
+     * The board does not know whose turn it is, so ChessGame.getZobristKey folds that in.
+     *
+     * @return 64-bit key that changes whenever a piece is added, removed or moved
+     */
+    public long getZobristKey() {
+        if (castlingUnchecked) {
+            return pieceKey ^ stateKey(state & ~ALL_CASTLING_RIGHTS | presentCastlingRights());
+        }
+        return pieceKey ^ stateKey;
+    }
+
+    /**
+     * Returns the sum of every piece's middlegame value and square bonus, from white's point of view
+     *
+     * @return middlegame score in centipawns
+     */
+    public int getMiddlegameScore() {
+        return middlegameScore;
+    }
+
+    /**
+     * Returns the sum of every piece's endgame value and square bonus, from white's point of view
+     *
+     * @return endgame score in centipawns
+     */
+    public int getEndgameScore() {
+        return endgameScore;
+    }
+
+    /**
+     * Returns how far the game is from the endgame, counted from the queens, rooks and minor pieces left
+     *
+     * @return phase, PieceSquareTables.MAX_PHASE at the start and 0 with only kings and pawns
+     */
+    public int getGamePhase() {
+        return gamePhase;
+    }
+
+    /**
+     * Returns the state word: castling rights in bits 0-3, the en passant column in bits 4-7
+     * and the halfmove clock in bits 8-15. Copying a position is the pieces plus this int.
+     *
+     * @return packed board state
+     */
+    public int getState() {
+        return state;
+    }
+
+    /**
+     * Returns the castling rights that can still be used, as bits: 1 white kingside, 2 white queenside,
+     * 4 black kingside, 8 black queenside. A right is only counted while its king and rook are in place,
+     * so a board set up by hand without a rook reports the same rights as one where the rook was lost.
+     *
+     * @return castling rights bits
+     */
+    public int getCastlingRights() {
+        return castlingUnchecked ? presentCastlingRights() : state & ALL_CASTLING_RIGHTS;
+    }
+
+    /**
+     * Returns the column of a pawn that just double moved and can be captured en passant. Only set when
+     * an enemy pawn stands beside it, so a double move nobody can take leaves the state unchanged.
+     *
+     * @return column 1-8, or 0 if no en passant capture is possible
+     */
+    public int getEnPassantFile() {
+        return state >>> EN_PASSANT_SHIFT & EN_PASSANT_MASK;
+    }
+
+    /**
+     * Finds the pawn that can be captured en passant by the side about to move
+     *
+     * @param sideToMove the side that would make the capture
+     * @return square index of the capturable pawn, or -1 if there is none
+     */
+    public int getEnPassantSquare(ChessGame.TeamColor sideToMove) {
+        int file = getEnPassantFile();
+        if (file == 0) {
+            return -1;
+        }
+        return Bitboards.square(sideToMove == ChessGame.TeamColor.WHITE ? 5 : 4, file);
+    }
+
+    /**
+     * @return number of moves since the last capture or pawn move, for the fifty move rule
+     */
+    public int getHalfmoveClock() {
+        return state >>> CLOCK_SHIFT & CLOCK_MASK;
+    }
+
+    /**
+     * Checks whether a side still has the right to castle on one side: its king and that rook are
+     * on their starting squares and neither has moved since the board was set up. Says nothing about
+     * whether castling is safe.
+     *
+     * @param color    team color
+     * @param kingside true for the rook on column 8, false for the rook on column 1
+     * @return true if castling that way is still allowed
+     */
+    public boolean hasCastlingRight(ChessGame.TeamColor color, boolean kingside) {
+        return (getCastlingRights() & castlingBit(color, kingside)) != 0;
     }
 
     /**
@@ -59,9 +239,15 @@ public class ChessBoard {
      *
      * @param position where to add the piece to
      * @param piece    the piece to add
+     * @throws IllegalArgumentException if the position is off the board
      */
     public void addPiece(ChessPosition position, ChessPiece piece) {
-        board[position.getRow() - 1][position.getColumn() - 1] = piece;
+        int square = onBoardSquare(position);
+        clearSquare(square);
+        if (piece != null) {
+            placePiece(square, ChessPiece.of(piece.getTeamColor(), piece.getPieceType()));
+        }
+        castlingUnchecked = true;
     }
 
     /**
@@ -70,33 +256,101 @@ public class ChessBoard {
      * @param position The position to get the piece from
      * @return Either the piece at the position, or null if no piece is at that
      * position
+     * @throws IllegalArgumentException if the position is off the board
      */
     public ChessPiece getPiece(ChessPosition position) {
-        return board[position.getRow() - 1][position.getColumn() - 1];
+        return squares[onBoardSquare(position)];
     }
 
     /**
-     * Makes a ChessMove
+     * Gets a chess piece on the chessboard by square index, without needing a ChessPosition
+     *
+     * @param square square index 0-63
+     * @return Either the piece on the square, or null if the square is empty
+     */
+    public ChessPiece getPiece(int square) {
+        return squares[square];
+    }
+
+    /**
+     * Makes a ChessMove, recording what it changed so that unmakeMove can take it back
      *
      * @param move move to make
      */
     public void makeMove(ChessMove move) {
-        ChessPiece currentPiece = getPiece(move.getStartPosition());
+        makeMove(Moves.of(move));
+    }
+
+    /**
+     * Makes a packed move (see {@link Moves}), recording what it changed so that unmakeMove can take it back.
+     * Castling and en passant are recognised from the board, so the move's flags are optional.
+     *
+     * @param move packed move to make
+     */
+    public void makeMove(int move) {
+        if (castlingUnchecked) {
+            settleCastlingRights();
+        }
+        int from = Moves.from(move);
+        int to = Moves.to(move);
+        ChessPiece currentPiece = squares[from];
         ChessPiece.PieceType pieceType = currentPiece.getPieceType();
 
-        if (pieceType == ChessPiece.PieceType.KING && moveManager.kingWantsCastle(move)) {
-            moveRookForCastle(move);
+        long record = from | (long) to << UNDO_TO_SHIFT;
+        int captureSquare = to;
+        if (pieceType == ChessPiece.PieceType.KING && Math.abs(to - from) == 2) {
+            moveRookForCastle(from, to);
+            record |= UNDO_CASTLE;
+        } else if (pieceType == ChessPiece.PieceType.PAWN && (from & 7) != (to & 7) && squares[to] == null) {
+            captureSquare = enPassantVictimSquare(from, to);
         }
-//        else if (pieceType == ChessPiece.PieceType.PAWN && moveManager.pawnWantsEnPassant(this, move)) {
-//            removeEnPassantPawn(move);
-//        }
-        else if (move.getPromotionPiece() != null) {
-            currentPiece = new ChessPiece(currentPiece.getTeamColor(), move.getPromotionPiece());
+        record |= (long) captureSquare << UNDO_CAPTURE_SHIFT;
+        record |= (long) state << UNDO_STATE_SHIFT;
+        boolean resetsClock = pieceType == ChessPiece.PieceType.PAWN || squares[captureSquare] != null;
+        pushUndo(record, currentPiece, squares[captureSquare]);
+
+        clearSquare(captureSquare);
+        clearSquare(from);
+        ChessPiece.PieceType promotion = Moves.promotion(move);
+        if (promotion != null) {
+            currentPiece = ChessPiece.of(currentPiece.getTeamColor(), promotion);
+        }
+        placePiece(to, currentPiece);
+        updateState(from, to, pieceType, resetsClock);
+    }
+
+    /**
+     * Takes back the most recent makeMove, restoring any captured piece, the castling rook,
+     * an en passant victim and the pawn that was promoted
+     */
+    public void unmakeMove() {
+        if (undoDepth == 0) {
+            throw new IllegalStateException("No move to unmake");
         }
+        undoDepth--;
+        long record = undoStack[undoDepth];
+        ChessPiece movedPiece = undoPieces[2 * undoDepth];
+        ChessPiece capturedPiece = undoPieces[2 * undoDepth + 1];
+        undoPieces[2 * undoDepth] = null;
+        undoPieces[2 * undoDepth + 1] = null;
 
-        addPiece(move.getEndPosition(), currentPiece);
-        addPiece(move.getStartPosition(), null);
-        currentPiece.setHasMoved();
+        int from = (int) (record & UNDO_SQUARE_MASK);
+        int to = (int) (record >>> UNDO_TO_SHIFT & UNDO_SQUARE_MASK);
+        int captureSquare = (int) (record >>> UNDO_CAPTURE_SHIFT & UNDO_SQUARE_MASK);
+
+        clearSquare(to);
+        placePiece(from, movedPiece);
+        setStateWord((int) (record >>> UNDO_STATE_SHIFT) & STATE_MASK);
+        if (capturedPiece != null) {
+            placePiece(captureSquare, capturedPiece);
+        }
+        if ((record & UNDO_CASTLE) != 0) {
+            int rookStart = rookStartSquare(from, to);
+            int rookEnd = (from + to) / 2;
+            ChessPiece rook = squares[rookEnd];
+            clearSquare(rookEnd);
+            placePiece(rookStart, rook);
+        }
     }
 
     /**
@@ -104,9 +358,57 @@ public class ChessBoard {
      * (How the game of chess normally starts)
      */
     public void resetBoard() {
-        board = new ChessPiece[8][8];
+        clear();
         addAllPieces(ChessGame.TeamColor.WHITE);
         addAllPieces(ChessGame.TeamColor.BLACK);
+        settleCastlingRights();
+    }
+
+    /**
+     * Removes every piece and forgets the move history, leaving all castling rights set
+     */
+    void clear() {
+        Arrays.fill(pieceBitboards, 0L);
+        Arrays.fill(teamOccupancy, 0L);
+        Arrays.fill(squares, null);
+        occupied = 0L;
+        pieceKey = 0L;
+        middlegameScore = 0;
+        endgameScore = 0;
+        gamePhase = 0;
+        state = ALL_CASTLING_RIGHTS;
+        castlingUnchecked = true;
+        clearUndoHistory();
+    }
+
+    /**
+     * Replaces the state word with one previously returned by getState, once the pieces are in place
+     *
+     * @param state packed board state
+     */
+    void restoreState(int state) {
+        this.state = state & STATE_MASK;
+        settleCastlingRights();
+    }
+
+    /**
+     * Replaces the state word, for loading a position once its pieces are in place. The en passant column
+     * is dropped unless an enemy pawn stands beside the pawn on that column, matching what makeMove records.
+     *
+     * @param castlingRights castling rights bits, as in getCastlingRights
+     * @param enPassantFile  column 1-8 of a pawn that just double moved, or 0
+     * @param sideToMove     the side that would capture en passant
+     * @param halfmoveClock  moves since the last capture or pawn move
+     */
+    void setState(int castlingRights, int enPassantFile, ChessGame.TeamColor sideToMove, int halfmoveClock) {
+        int file = 0;
+        if (enPassantFile != 0) {
+            int pawnSquare = Bitboards.square(sideToMove == ChessGame.TeamColor.WHITE ? 5 : 4, enPassantFile);
+            file = enPassantCapturable(pawnSquare) ? enPassantFile : 0;
+        }
+        state = (castlingRights & ALL_CASTLING_RIGHTS) | file << EN_PASSANT_SHIFT
+                | Math.min(halfmoveClock, CLOCK_MASK) << CLOCK_SHIFT;
+        settleCastlingRights();
     }
 
     /**
@@ -115,18 +417,20 @@ public class ChessBoard {
      * @param givenBoard board to match
      */
     public void setGivenBoard(ChessBoard givenBoard) {
-        for (int i = 1; i < 9; i++) {
-            for (int j = 1; j < 9; j++) {
-                ChessPosition currentPosition = new ChessPosition(i, j);
-                ChessPiece currentPiece = givenBoard.getPiece(currentPosition);
-                if (currentPiece == null) {
-                    addPiece(currentPosition, null);
-                } else {
-                    ChessPiece newPiece = new ChessPiece(currentPiece.getTeamColor(), currentPiece.getPieceType());
-                    addPiece(currentPosition, newPiece);
-                }
-            }
+        System.arraycopy(givenBoard.pieceBitboards, 0, pieceBitboards, 0, pieceBitboards.length);
+        System.arraycopy(givenBoard.teamOccupancy, 0, teamOccupancy, 0, teamOccupancy.length);
+        occupied = givenBoard.occupied;
+        pieceKey = givenBoard.pieceKey;
+        middlegameScore = givenBoard.middlegameScore;
+        endgameScore = givenBoard.endgameScore;
+        gamePhase = givenBoard.gamePhase;
+        state = givenBoard.state;
+        clearUndoHistory();
+        for (int square = 0; square < 64; square++) {
+            ChessPiece currentPiece = givenBoard.squares[square];
+            squares[square] = currentPiece == null ? null : ChessPiece.of(currentPiece.getTeamColor(), currentPiece.getPieceType());
         }
+        settleCastlingRights();
     }
 
     /**
@@ -135,33 +439,192 @@ public class ChessBoard {
      * @return string representation of the board
      */
     public String gameToString() {
-        return Arrays.deepToString(board);
+        return Arrays.deepToString(toGrid());
     }
 
     @Override
     public String toString() {
         return "ChessBoard{" +
-                "board=" + Arrays.deepToString(board) +
+                "board=" + Arrays.deepToString(toGrid()) +
                 '}';
     }
 
     @Override
     public boolean equals(Object o) {
         if (o instanceof ChessBoard that) {
-            return Arrays.deepEquals(board, that.board);
+            // different keys always mean different boards, equal keys are confirmed against the bitboards
+            return pieceKey == that.pieceKey && Arrays.equals(pieceBitboards, that.pieceBitboards);
         }
         return false;
     }
 
     @Override
     public int hashCode() {
-        int code = 0;
-        for (int i = 0; i < board.length; i++) {
-            for (int j = 0; j < board[0].length; j++) {
-                code += Objects.hash(board[i][j]);
+        return Long.hashCode(pieceKey);
+    }
+
+    /**
+     * Square index of a position, checked so an off-board position can't alias a real square
+     *
+     * @param position position on the board
+     * @return square index 0-63
+     * @throws IllegalArgumentException if the position is off the board
+     */
+    private static int onBoardSquare(ChessPosition position) {
+        if (!Bitboards.withinBounds(position.getRow(), position.getColumn())) {
+            throw new IllegalArgumentException("Position " + position + " is off the board");
+        }
+        return Bitboards.square(position);
+    }
+
+    /**
+     * @param color    team color
+     * @param kingside true for kingside, false for queenside
+     * @return the state word bit for that castling right
+     */
+    private static int castlingBit(ChessGame.TeamColor color, boolean kingside) {
+        return 1 << (color.ordinal() * 2 + (kingside ? 0 : 1));
+    }
+
+    /**
+     * Updates the state word after a move: drops castling rights whose king or rook left or was captured,
+     * records a double moved pawn that an enemy pawn can capture en passant, and advances the halfmove clock
+     *
+     * @param from        start square index
+     * @param to          end square index
+     * @param pieceType   type of the piece that moved
+     * @param resetsClock true for pawn moves and captures
+     */
+    private void updateState(int from, int to, ChessPiece.PieceType pieceType, boolean resetsClock) {
+        int castling = state & CASTLING_KEPT[from] & CASTLING_KEPT[to];
+        int clock = resetsClock ? 0 : Math.min(getHalfmoveClock() + 1, CLOCK_MASK);
+        int file = 0;
+        if (pieceType == ChessPiece.PieceType.PAWN && Math.abs(to - from) == 16 && enPassantCapturable(to)) {
+            file = Bitboards.colOf(to);
+        }
+        setStateWord(castling | file << EN_PASSANT_SHIFT | clock << CLOCK_SHIFT);
+    }
+
+    /**
+     * Drops castling bits whose king or rook isn't on its home square. From then on every move that
+     * could change that also clears the bit (see CASTLING_KEPT), so the bits stay exact without a recheck.
+     */
+    private void settleCastlingRights() {
+        castlingUnchecked = false;
+        setStateWord(state & ~ALL_CASTLING_RIGHTS | presentCastlingRights());
+    }
+
+    /**
+     * @return the castling bits in the state word whose king and rook are both on their home squares
+     */
+    private int presentCastlingRights() {
+        int rights = 0;
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            int homeRow = color == ChessGame.TeamColor.WHITE ? 1 : 8;
+            if (!ChessPiece.of(color, ChessPiece.PieceType.KING).equals(squares[Bitboards.square(homeRow, 5)])) {
+                continue;
+            }
+            ChessPiece rook = ChessPiece.of(color, ChessPiece.PieceType.ROOK);
+            if (rook.equals(squares[Bitboards.square(homeRow, 8)])) {
+                rights |= castlingBit(color, true);
+            }
+            if (rook.equals(squares[Bitboards.square(homeRow, 1)])) {
+                rights |= castlingBit(color, false);
             }
         }
-        return code;
+        return state & rights;
+    }
+
+    /**
+     * Replaces the state word and its share of the Zobrist key
+     *
+     * @param newState packed board state
+     */
+    private void setStateWord(int newState) {
+        stateKey = stateKey(newState);
+        state = newState;
+    }
+
+    /**
+     * @param state packed board state
+     * @return Zobrist key of its castling rights and en passant column
+     */
+    private static long stateKey(int state) {
+        return Zobrist.castlingRights(state & ALL_CASTLING_RIGHTS)
+                ^ Zobrist.enPassant(state >>> EN_PASSANT_SHIFT & EN_PASSANT_MASK);
+    }
+
+    /**
+     * Checks whether a square holds a pawn with an enemy pawn directly beside it, so that
+     * it could be captured en passant if it had just double moved
+     *
+     * @param pawnSquare square index of the pawn
+     * @return true if an enemy pawn could capture it
+     */
+    private boolean enPassantCapturable(int pawnSquare) {
+        ChessPiece pawn = squares[pawnSquare];
+        if (pawn == null || pawn.getPieceType() != ChessPiece.PieceType.PAWN) {
+            return false;
+        }
+        ChessGame.TeamColor enemy = pawn.getTeamColor() == ChessGame.TeamColor.WHITE
+                ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        long bit = Bitboards.bit(pawnSquare);
+        long beside = ((bit << 1) & ~Bitboards.FILE_A) | ((bit >>> 1) & ~Bitboards.FILE_H);
+        return (beside & getPieceBitboard(enemy, ChessPiece.PieceType.PAWN)) != 0;
+    }
+
+    /**
+     * Places a piece on an empty square, updating the bitboards and the square array
+     *
+     * @param square square index
+     * @param piece  piece to place
+     */
+    private void placePiece(int square, ChessPiece piece) {
+        long mask = Bitboards.bit(square);
+        int index = Bitboards.pieceIndex(piece.getTeamColor(), piece.getPieceType());
+        pieceBitboards[index] |= mask;
+        teamOccupancy[piece.getTeamColor().ordinal()] |= mask;
+        occupied |= mask;
+        pieceKey ^= Zobrist.piece(piece, square);
+        middlegameScore += PieceSquareTables.middlegame(index, square);
+        endgameScore += PieceSquareTables.endgame(index, square);
+        gamePhase += PieceSquareTables.phase(index);
+        squares[square] = piece;
+    }
+
+    /**
+     * Removes whatever piece is on a square, if any
+     *
+     * @param square square index
+     */
+    private void clearSquare(int square) {
+        ChessPiece existing = squares[square];
+        if (existing == null) {
+            return;
+        }
+        long mask = ~Bitboards.bit(square);
+        int index = Bitboards.pieceIndex(existing.getTeamColor(), existing.getPieceType());
+        pieceBitboards[index] &= mask;
+        teamOccupancy[existing.getTeamColor().ordinal()] &= mask;
+        occupied &= mask;
+        pieceKey ^= Zobrist.piece(existing, square);
+        middlegameScore -= PieceSquareTables.middlegame(index, square);
+        endgameScore -= PieceSquareTables.endgame(index, square);
+        gamePhase -= PieceSquareTables.phase(index);
+        squares[square] = null;
+    }
+
+    /**
+     * Lays the board out as rows and columns, for printing
+     *
+     * @return ChessPiece[8][8] indexed by [row - 1][column - 1]
+     */
+    private ChessPiece[][] toGrid() {
+        ChessPiece[][] grid = new ChessPiece[8][8];
+        for (int square = 0; square < 64; square++) {
+            grid[square >>> 3][square & 7] = squares[square];
+        }
+        return grid;
     }
 
     /**
@@ -171,50 +634,82 @@ public class ChessBoard {
      */
     private void addAllPieces(ChessGame.TeamColor color) {
         ChessPiece[] pieces = {
-                new ChessPiece(color, ChessPiece.PieceType.ROOK),
-                new ChessPiece(color, ChessPiece.PieceType.KNIGHT),
-                new ChessPiece(color, ChessPiece.PieceType.BISHOP),
-                new ChessPiece(color, ChessPiece.PieceType.QUEEN),
-                new ChessPiece(color, ChessPiece.PieceType.KING),
-                new ChessPiece(color, ChessPiece.PieceType.BISHOP),
-                new ChessPiece(color, ChessPiece.PieceType.KNIGHT),
-                new ChessPiece(color, ChessPiece.PieceType.ROOK)
+                ChessPiece.of(color, ChessPiece.PieceType.ROOK),
+                ChessPiece.of(color, ChessPiece.PieceType.KNIGHT),
+                ChessPiece.of(color, ChessPiece.PieceType.BISHOP),
+                ChessPiece.of(color, ChessPiece.PieceType.QUEEN),
+                ChessPiece.of(color, ChessPiece.PieceType.KING),
+                ChessPiece.of(color, ChessPiece.PieceType.BISHOP),
+                ChessPiece.of(color, ChessPiece.PieceType.KNIGHT),
+                ChessPiece.of(color, ChessPiece.PieceType.ROOK)
         };
 
         int row = color == ChessGame.TeamColor.WHITE ? 1 : 8;
         int pawnRow = color == ChessGame.TeamColor.WHITE ? 2 : 7;
 
         for (int i = 0; i < pieces.length; i++) {
-            addPiece(new ChessPosition(row, i + 1), pieces[i]);
-            addPiece(new ChessPosition(pawnRow, i + 1), new ChessPiece(color, ChessPiece.PieceType.PAWN));
+            addPiece(ChessPosition.of(row, i + 1), pieces[i]);
+            addPiece(ChessPosition.of(pawnRow, i + 1), ChessPiece.of(color, ChessPiece.PieceType.PAWN));
         }
     }
 
     /**
      * Moves the rook for a castling move
      *
-     * @param kingsMove the move the king was making
+     * @param kingFrom king's start square index
+     * @param kingTo   king's end square index
+     */
+    private void moveRookForCastle(int kingFrom, int kingTo) {
+        int rookStart = rookStartSquare(kingFrom, kingTo);
+        ChessPiece rook = squares[rookStart];
+        clearSquare(rookStart);
+        placePiece((kingFrom + kingTo) / 2, rook);
+    }
+
+    /**
+     * @param kingFrom king's start square index
+     * @param kingTo   king's end square index
+     * @return square index of the rook the king is castling with
      */
-    private void moveRookForCastle(ChessMove kingsMove) {
-        int kingsColumn = kingsMove.getEndPosition().getColumn();
-        int kingsRow = kingsMove.getStartPosition().getRow();
-        int rookStartCol = kingsColumn == 7 ? 8 : 1;
-        int rookEndCol = kingsColumn == 7 ? 6 : 4;
+    private int rookStartSquare(int kingFrom, int kingTo) {
+        return (kingFrom & ~7) + (kingTo > kingFrom ? 7 : 0);
+    }
 
-        ChessPosition rooksPosition = new ChessPosition(kingsRow, rookStartCol);
-        ChessPiece rookPiece = getPiece(rooksPosition);
+    /**
+     * Finds the square of the pawn captured by an EnPassant: beside the capturing pawn's start square,
+     * on the column it moves to
+     *
+     * @param from capturing pawn's start square index
+     * @param to   capturing pawn's end square index
+     * @return square index of the captured pawn
+     */
+    private int enPassantVictimSquare(int from, int to) {
+        return (from & ~7) | (to & 7);
+    }
 
-        addPiece(new ChessPosition(kingsRow, rookEndCol), rookPiece);
-        addPiece(rooksPosition, null);
+    /**
+     * Drops every undo record, for when the whole position is replaced
+     */
+    private void clearUndoHistory() {
+        Arrays.fill(undoPieces, 0, 2 * undoDepth, null);
+        undoDepth = 0;
     }
 
     /**
-     * Removes the pawn captured by an EnPassant
+     * Saves an undo record, growing the stacks when a line of play gets deep
      *
-     * @param move the move the capturing pawn made
+     * @param record        packed squares and flags
+     * @param movedPiece    the piece that moved, before any promotion
+     * @param capturedPiece the piece captured, or null
      */
-    private void removeEnPassantPawn(ChessMove move) {
-        int capturedRow = move.getEndPosition().getRow() == 3 ? 4 : 5;
-        addPiece(new ChessPosition(capturedRow, move.getEndPosition().getColumn()), null);
+    private void pushUndo(long record, ChessPiece movedPiece, ChessPiece capturedPiece) {
+        if (undoDepth == undoStack.length) {
+            undoStack = Arrays.copyOf(undoStack, undoDepth * 2);
+            undoPieces = Arrays.copyOf(undoPieces, undoDepth * 4);
+        }
+        undoStack[undoDepth] = record;
+        undoPieces[2 * undoDepth] = movedPiece;
+        undoPieces[2 * undoDepth + 1] = capturedPiece;
+        undoDepth++;
     }
 }
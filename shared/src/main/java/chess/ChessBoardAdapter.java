@@ -0,0 +1,53 @@
+package chess;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Streams a ChessBoard as its FEN piece placement plus the state word, for example
+ * {"pieces":"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR","state":15}. The move managers and
+ * undo history are not written, since a fresh board rebuilds them.
+ */
+public final class ChessBoardAdapter extends TypeAdapter<ChessBoard> {
+
+    @Override
+    public void write(JsonWriter out, ChessBoard board) throws IOException {
+        var pieces = new StringBuilder(72);
+        Fen.formatPlacement(board, pieces);
+        out.beginObject();
+        out.name("pieces").value(pieces.toString());
+        out.name("state").value(board.getState());
+        out.endObject();
+    }
+
+    @Override
+    public ChessBoard read(JsonReader in) throws IOException {
+        String pieces = null;
+        int state = 0;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "pieces" -> pieces = in.nextString();
+                case "state" -> state = in.nextInt();
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        if (pieces == null) {
+            throw new JsonParseException("Chess board needs pieces");
+        }
+
+        var board = new ChessBoard();
+        try {
+            Fen.parsePlacement(pieces, board);
+        } catch (IllegalArgumentException ex) {
+            throw new JsonParseException(ex.getMessage(), ex);
+        }
+        board.restoreState(state);
+        return board;
+    }
+}
@@ -1,8 +1,7 @@
 package chess;
 
 import java.util.Collection;
-import java.util.Objects;
-import java.util.ArrayList;
+import java.util.Collections;
 
 /**
  * For a class that can manage a chess game, making moves on a board
@@ -14,18 +13,22 @@ public class ChessGame {
 
     private final ChessBoard chessboard;
     private TeamColor teamTurn;
+    private int fullmoveNumber;
     private final ValidMoveFilter moveFilter;
+    private final LegalMoveGenerator moveGenerator;
 
-    private boolean enPassantPossible;
-    private ChessPosition doubleMovedPawn;
+    // legal moves and status for the side to move, reused until the position's key changes
+    private transient Collection<ChessMove> cachedMoves;
+    private transient GameStatus cachedStatus;
+    private transient long cachedKey;
 
     public ChessGame() {
         chessboard = new ChessBoard();
         chessboard.resetBoard();
         teamTurn = TeamColor.WHITE;
+        fullmoveNumber = 1;
         moveFilter = new ValidMoveFilter();
-        enPassantPossible = false;
-        doubleMovedPawn = null;
+        moveGenerator = new LegalMoveGenerator();
     }
 
     /**
@@ -51,6 +54,16 @@ public class ChessGame {
         WHITE,
         BLACK
     }
+
+    /**
+     * Enum identifying the state of the game for the team whose turn it is
+     */
+    public enum GameStatus {
+        IN_PROGRESS,
+        CHECK,
+        CHECKMATE,
+        STALEMATE
+    }
     
     /**
      * Gets a valid moves for a piece at the given location
@@ -60,33 +73,36 @@ public class ChessGame {
      * startPosition
      */
     public Collection<ChessMove> validMoves(ChessPosition startPosition) {
-        ChessPiece myPiece = chessboard.getPiece(startPosition);
-        if (myPiece == null) {
+        ChessPiece piece = chessboard.getPiece(startPosition);
+        if (piece == null) {
             return null;
         }
-        TeamColor myColor = myPiece.getTeamColor();
-        boolean kingFlag = myPiece.getPieceType() == ChessPiece.PieceType.KING;
-
-        Collection<ChessMove> possibleMoves = myPiece.pieceMoves(chessboard, startPosition);
-        ArrayList<ChessMove> valid = new ArrayList<ChessMove>();
-
-        ChessPosition kingPosition = findKing(chessboard, myColor);
-
-        for (ChessMove currentMove : possibleMoves) {
-            if (kingFlag) {
-                if (chessboard.getMoveManager().kingWantsCastle(currentMove)) {
-                    addCastle(currentMove, myColor, valid);
-                } else {
-                    kingPosition = currentMove.getEndPosition();
-                    addValidMove(currentMove, kingPosition, myColor, valid);
-                }
-            } else {
-                addValidMove(currentMove, kingPosition, myColor, valid);
-            }
+        return moveGenerator.legalMoves(chessboard, startPosition, enPassantVictim(piece.getTeamColor()));
+    }
+
+    /**
+     * Gets every valid move for one team
+     *
+     * @param teamColor the team to get valid moves for
+     * @return Collection of every valid move that team could make
+     */
+    public Collection<ChessMove> legalMoves(TeamColor teamColor) {
+        if (teamColor == teamTurn) {
+            refreshCache();
+            return cachedMoves;
         }
+        return moveGenerator.legalMoves(chessboard, teamColor, enPassantVictim(teamColor));
+    }
 
-        addEnPassant(myPiece, startPosition, valid);
-        return valid;
+    /**
+     * Works out whether the team whose turn it is is in check, checkmate or stalemate, generating
+     * its moves only once. The result is kept until a move is made or the position otherwise changes.
+     *
+     * @return the status of the team whose turn it is
+     */
+    public GameStatus evaluateStatus() {
+        refreshCache();
+        return cachedStatus;
     }
 
     /**
@@ -110,8 +126,10 @@ public class ChessGame {
         }
 
         if (valid.contains(move)) {
-            checkPawnMoveAndUpdate(move);
             chessboard.makeMove(move);
+            if (teamTurn == TeamColor.BLACK) {
+                fullmoveNumber++;
+            }
             setTeamTurn(teamTurn == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE);
         } else {
             throw new InvalidMoveException("Invalid move provided: " + move);
@@ -140,9 +158,10 @@ public class ChessGame {
      * @return True if the specified team is in checkmate
      */
     public boolean isInCheckmate(TeamColor teamColor) {
-        ChessPosition kingPosition = findKing(chessboard, teamColor);
-        Collection<ChessMove> kingMoves = validMoves(kingPosition);
-        return isInCheck(teamColor) && kingMoves.isEmpty() && !checkKingProtection(teamColor);
+        if (teamColor == teamTurn) {
+            return evaluateStatus() == GameStatus.CHECKMATE;
+        }
+        return isInCheck(teamColor) && legalMoves(teamColor).isEmpty();
     }
 
     /**
@@ -153,22 +172,10 @@ public class ChessGame {
      * @return True if the specified team is in stalemate, otherwise false
      */
     public boolean isInStalemate(TeamColor teamColor) {
-        // find all the valid moves
-        for (int i = 1; i < 9; i++) {
-            for (int j = 1; j < 9; j++) {
-                ChessPosition currentPosition = new ChessPosition(i, j);
-                ChessPiece currentPiece = chessboard.getPiece(currentPosition);
-                if (currentPiece == null || currentPiece.getTeamColor() != teamColor) {
-                    continue;
-                }
-                Collection<ChessMove> valid = validMoves(currentPosition);
-                if (!valid.isEmpty()) {
-                    return false;
-                }
-            }
+        if (teamColor == teamTurn) {
+            return evaluateStatus() == GameStatus.STALEMATE;
         }
-
-        return !isInCheck(teamColor);
+        return legalMoves(teamColor).isEmpty() && !isInCheck(teamColor);
     }
 
     /**
@@ -189,191 +196,122 @@ public class ChessGame {
         return chessboard;
     }
 
-    @Override
-    public String toString() {
-        return String.format("ChessGame{Turn: %s, board: %s}", teamTurn.toString(), chessboard.gameToString());
-    }
-
-    @Override
-    public boolean equals(Object o) {
-        if (o instanceof ChessGame that) {
-            return chessboard.equals(that.chessboard) && teamTurn == that.teamTurn;
-        }
-        return false;
-    }
-
-    @Override
-    public int hashCode() {
-        return Objects.hash(chessboard.hashCode(), teamTurn);
-    }
-
     /**
-     * Checks if a pawn is moving, and if it is a double move that could result in an en passant.
-     * Updates trackers accordingly.
-     *
-     * @param move move to be made
+     * @return the move number, starting at 1 and going up after each of black's moves
      */
-    private void checkPawnMoveAndUpdate(ChessMove move) {
-        ChessPiece myPiece = chessboard.getPiece(move.getStartPosition());
-        int startRow = move.getStartPosition().getRow();
-        int endRow = move.getEndPosition().getRow();
-
-        if (myPiece.getPieceType() == ChessPiece.PieceType.PAWN && startRow + 2 == endRow || startRow - 2 == endRow) {
-            enPassantPossible = true;
-            doubleMovedPawn = move.getEndPosition();
-        } else {
-            enPassantPossible = false;
-            doubleMovedPawn = null;
-        }
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
     }
 
     /**
-     * Checks if a move is valid, and if it is, adds it to the Collection
+     * Sets the move number, for loading a position
      *
-     * @param currentMove  move to be made
-     * @param kingPosition king's current position
-     * @param myColor      team color
-     * @param valid        Collection of valid ChessMoves
+     * @param fullmoveNumber the move number
      */
-    private void addValidMove(ChessMove currentMove, ChessPosition kingPosition, TeamColor myColor, Collection<ChessMove> valid) {
-        ChessBoard tempBoard = makeMoveForceful(currentMove);
-        if (!moveFilter.checkIfInCheck(tempBoard, kingPosition, myColor)) {
-            valid.add(currentMove);
-        }
+    void setFullmoveNumber(int fullmoveNumber) {
+        this.fullmoveNumber = fullmoveNumber;
     }
 
     /**
-     * Checks if a castle is possible, and if it is, adds the moves to the Collection
+     * Creates a game from a FEN string: piece placement, side to move, castling rights, en passant
+     * square and, optionally, the halfmove clock and fullmove number
      *
-     * @param currentMove castle move
-     * @param myColor     team color
-     * @param valid       Collection of valid ChessMoves
+     * @param fen position in Forsyth-Edwards Notation
+     * @return a game set to that position
+     * @throws IllegalArgumentException if the string is not valid FEN
      */
-    private void addCastle(ChessMove currentMove, TeamColor myColor, Collection<ChessMove> valid) {
-        if (moveFilter.checkIfInCheck(chessboard, currentMove.getStartPosition(), myColor)) {
-            return;
-        }
-
-        ChessMove expanded = expandCastleMove(currentMove);
-        ChessBoard tempBoard = makeMoveForceful(expanded);
-        ChessPosition kingPosition = expanded.getEndPosition();
-
-        ChessBoard tempBoard2 = makeMoveForceful(currentMove);
-        ChessPosition kingPosition2 = currentMove.getEndPosition();
-        if (!moveFilter.checkIfInCheck(tempBoard, kingPosition, myColor) && !moveFilter.checkIfInCheck(tempBoard2, kingPosition2, myColor)) {
-            valid.add(currentMove);
-        }
+    public static ChessGame fromFen(String fen) {
+        return Fen.parse(fen);
     }
 
     /**
-     * Checks the pawns position, to see if an enPassant is possible
+     * Writes the game's position as a FEN string
      *
-     * @param pawnPosition pawns position
-     * @return true if an enPassant is possible, false if not
+     * @return position in Forsyth-Edwards Notation
      */
-    private boolean checkPawnPosition(ChessPosition pawnPosition) {
-        int pawnRow = pawnPosition.getRow();
-        int pawnCol = pawnPosition.getColumn();
-        int doubleMovedPawnRow = doubleMovedPawn.getRow();
-        int doubleMovedPawnCol = doubleMovedPawn.getColumn();
-        return (pawnCol == doubleMovedPawnCol - 1 || pawnCol == doubleMovedPawnCol + 1) && pawnRow == doubleMovedPawnRow;
+    public String toFen() {
+        return Fen.format(this);
     }
 
     /**
-     * Adds the enPassant move if it is valid
+     * Returns the Zobrist key of the whole position: the board's key, which covers the pieces, castling
+     * rights and en passant, plus the side to move. Two games with the same key can be treated as the
+     * same position, which is what repetition detection and position caches need.
      *
-     * @param myPiece       the current ChessPiece
-     * @param startPosition the ChessPiece's start position
-     * @param valid         collection of valid ChessMoves
+     * @return 64-bit position key
      */
-    private void addEnPassant(ChessPiece myPiece, ChessPosition startPosition, Collection<ChessMove> valid) {
-        boolean pawnFlag = myPiece.getPieceType() == ChessPiece.PieceType.PAWN;
-        if (pawnFlag && enPassantPossible) {
-            if (checkPawnPosition(startPosition)) {
-                int newRow = doubleMovedPawn.getRow() == 4 ? 3 : 6;
-                valid.add(new ChessMove(startPosition, new ChessPosition(newRow, doubleMovedPawn.getColumn()), null));
-            }
+    public long getZobristKey() {
+        long key = chessboard.getZobristKey();
+        if (teamTurn == TeamColor.BLACK) {
+            key ^= Zobrist.blackToMove();
         }
+        return key;
     }
 
-    /**
-     * Finds the king of the given color on a given board
-     *
-     * @param board   current board
-     * @param myColor color of the king to find
-     * @return the ChessPosition containing the king, null if it cannot be found
-     */
-    private ChessPosition findKing(ChessBoard board, TeamColor myColor) {
-        for (int i = 1; i < 9; i++) {
-            for (int j = 1; j < 9; j++) {
-                ChessPosition currentPosition = new ChessPosition(i, j);
-                ChessPiece currentPiece = board.getPiece(currentPosition);
-                if (currentPiece == null) {
-                    continue;
-                }
-                if (currentPiece.getPieceType() == ChessPiece.PieceType.KING && currentPiece.getTeamColor() == myColor) {
-                    return currentPosition;
-                }
-            }
+    @Override
+    public String toString() {
+        return String.format("ChessGame{Turn: %s, board: %s}", teamTurn.toString(), chessboard.gameToString());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof ChessGame that) {
+            return getZobristKey() == that.getZobristKey() && teamTurn == that.teamTurn
+                    && chessboard.equals(that.chessboard);
         }
-        return null;
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(getZobristKey());
     }
 
     /**
-     * Returns true if there is a possible move to protect the king
-     *
-     * @param myColor King's color
-     * @return true if there is a move to protect the king, false otherwise
+     * Regenerates the side to move's legal moves and status if the position has changed since they were
+     * last worked out. The Zobrist key covers the pieces, turn, castling rights and en passant, so edits made
+     * through getBoard or setBoard are noticed as well as moves.
      */
-    private boolean checkKingProtection(TeamColor myColor) {
-        for (int i = 1; i < 9; i++) {
-            for (int j = 1; j < 9; j++) {
-                ChessPosition currentPosition = new ChessPosition(i, j);
-                ChessPiece currentPiece = chessboard.getPiece(currentPosition);
-                if (currentPiece == null || currentPiece.getTeamColor() != myColor
-                        || currentPiece.getPieceType() == ChessPiece.PieceType.KING) {
-                    continue;
-                }
-
-                Collection<ChessMove> possibleMoves = currentPiece.pieceMoves(chessboard, currentPosition);
-
-                for (ChessMove move : possibleMoves) {
-                    ChessBoard tempBoard = makeMoveForceful(move);
-                    ChessPosition kingPosition = findKing(tempBoard, myColor);
-                    if (!moveFilter.checkIfInCheck(tempBoard, kingPosition, myColor)) {
-                        return true;
-                    }
-                }
-            }
+    private void refreshCache() {
+        long key = getZobristKey();
+        if (cachedMoves != null && cachedKey == key) {
+            return;
         }
-        return false;
+        Collection<ChessMove> moves = moveGenerator.legalMoves(chessboard, teamTurn, enPassantVictim(teamTurn));
+        boolean inCheck = isInCheck(teamTurn);
+        if (moves.isEmpty()) {
+            cachedStatus = inCheck ? GameStatus.CHECKMATE : GameStatus.STALEMATE;
+        } else {
+            cachedStatus = inCheck ? GameStatus.CHECK : GameStatus.IN_PROGRESS;
+        }
+        cachedMoves = Collections.unmodifiableCollection(moves);
+        cachedKey = key;
     }
 
     /**
-     * Make a new ChessBoard with a new move made, no checks are made for if the move is valid.
+     * Finds the pawn a team could capture en passant. Only the team whose turn it is can capture.
      *
-     * @param move ChessMove to make
-     * @return ChessBoard with the given move made
+     * @param teamColor team that would make the capture
+     * @return position of the capturable pawn, or null if there is none
      */
-    private ChessBoard makeMoveForceful(ChessMove move) {
-        ChessBoard newBoard = new ChessBoard();
-        newBoard.setGivenBoard(chessboard);
-        newBoard.makeMove(move);
-        return newBoard;
+    private ChessPosition enPassantVictim(TeamColor teamColor) {
+        int square = chessboard.getEnPassantSquare(teamColor);
+        return teamColor == teamTurn && square >= 0 ? ChessPosition.of(square) : null;
     }
 
     /**
-     * Returns the additional move that must be checked for a castle to be safe
+     * Finds the king of the given color on a given board
      *
-     * @param castleMove ChessMove that represents a castle
-     * @return the ChessMove that represents the square the king crosses
+     * @param board   current board
+     * @param myColor color of the king to find
+     * @return the ChessPosition containing the king, null if it cannot be found
      */
-    private ChessMove expandCastleMove(ChessMove castleMove) {
-        int row = castleMove.getStartPosition().getRow();
-        if (castleMove.getEndPosition().getColumn() == 7) {
-            return new ChessMove(castleMove.getStartPosition(), new ChessPosition(row, 6), null);
-        } else {
-            return new ChessMove(castleMove.getStartPosition(), new ChessPosition(row, 4), null);
+    private ChessPosition findKing(ChessBoard board, TeamColor myColor) {
+        long kings = board.getPieceBitboard(myColor, ChessPiece.PieceType.KING);
+        if (kings == 0) {
+            return null;
         }
+        int square = Long.numberOfTrailingZeros(kings);
+        return ChessPosition.of(square);
     }
 }
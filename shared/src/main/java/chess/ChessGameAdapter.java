@@ -0,0 +1,161 @@
+package chess;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Streams a ChessGame as its FEN, for example
+ * {"fen":"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1"}. FEN covers everything
+ * ChessGame.equals looks at, in a fraction of the size of the reflective form.
+ * <p>
+ * Games stored before the board moved to bitboards were written reflectively, as
+ * {"chessboard":{"board":[[...]]},"teamTurn":...}; those are still read, and come back as FEN from then on.
+ */
+public final class ChessGameAdapter extends TypeAdapter<ChessGame> {
+
+    @Override
+    public void write(JsonWriter out, ChessGame game) throws IOException {
+        out.beginObject();
+        out.name("fen").value(game.toFen());
+        out.endObject();
+    }
+
+    @Override
+    public ChessGame read(JsonReader in) throws IOException {
+        String fen = null;
+        JsonObject legacyBoard = null;
+        String teamTurn = null;
+        boolean enPassantPossible = false;
+        JsonElement doubleMovedPawn = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "fen" -> fen = in.nextString();
+                case "chessboard" -> legacyBoard = JsonParser.parseReader(in).getAsJsonObject();
+                case "teamTurn" -> teamTurn = in.nextString();
+                case "enPassantPossible" -> enPassantPossible = in.nextBoolean();
+                case "doubleMovedPawn" -> doubleMovedPawn = JsonParser.parseReader(in);
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        if (fen == null && legacyBoard != null) {
+            fen = legacyFen(legacyBoard, teamTurn, enPassantPossible ? doubleMovedPawn : null);
+        }
+        if (fen == null) {
+            throw new JsonParseException("Chess game needs a fen");
+        }
+        try {
+            return ChessGame.fromFen(fen);
+        } catch (IllegalArgumentException ex) {
+            throw new JsonParseException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Converts a game in the old reflective form to FEN. That form kept a hasMoved flag on each piece
+     * instead of castling rights, so a side may castle on a side whose king and rook never moved, and
+     * it kept the square of the pawn that last moved two rows instead of an en passant square.
+     *
+     * @param chessboard      the old chessboard object, holding board[row - 1][col - 1]
+     * @param teamTurn        WHITE or BLACK, the side to move
+     * @param doubleMovedPawn square of the pawn that just moved two rows, or null if there isn't one
+     * @return the same position as FEN, with the move counters reset
+     */
+    private static String legacyFen(JsonObject chessboard, String teamTurn, JsonElement doubleMovedPawn) {
+        if (!chessboard.has("board") || !chessboard.get("board").isJsonArray()) {
+            throw new JsonParseException("Chess game needs a fen");
+        }
+        var pieces = new JsonObject[9][9];
+        var rows = chessboard.getAsJsonArray("board");
+        for (int row = 1; row <= 8 && row <= rows.size(); row++) {
+            var cols = rows.get(row - 1).getAsJsonArray();
+            for (int col = 1; col <= 8 && col <= cols.size(); col++) {
+                JsonElement piece = cols.get(col - 1);
+                pieces[row][col] = piece.isJsonObject() ? piece.getAsJsonObject() : null;
+            }
+        }
+
+        var fen = new StringBuilder(90);
+        for (int row = 8; row >= 1; row--) {
+            int empty = 0;
+            for (int col = 1; col <= 8; col++) {
+                if (pieces[row][col] == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    fen.append(empty);
+                    empty = 0;
+                }
+                fen.append(legacyLetter(pieces[row][col]));
+            }
+            if (empty > 0) {
+                fen.append(empty);
+            }
+            if (row > 1) {
+                fen.append('/');
+            }
+        }
+
+        boolean whiteToMove = !"BLACK".equals(teamTurn);
+        fen.append(whiteToMove ? " w " : " b ");
+
+        int length = fen.length();
+        if (unmoved(pieces, 1, 5, 'K') && unmoved(pieces, 1, 8, 'R')) {
+            fen.append('K');
+        }
+        if (unmoved(pieces, 1, 5, 'K') && unmoved(pieces, 1, 1, 'R')) {
+            fen.append('Q');
+        }
+        if (unmoved(pieces, 8, 5, 'k') && unmoved(pieces, 8, 8, 'r')) {
+            fen.append('k');
+        }
+        if (unmoved(pieces, 8, 5, 'k') && unmoved(pieces, 8, 1, 'r')) {
+            fen.append('q');
+        }
+        if (fen.length() == length) {
+            fen.append('-');
+        }
+
+        // the old game also flagged non-pawns that moved two rows, so only a pawn of the side that just moved counts
+        String enPassant = "-";
+        if (doubleMovedPawn != null && doubleMovedPawn.isJsonObject()) {
+            int row = doubleMovedPawn.getAsJsonObject().get("row").getAsInt();
+            int col = doubleMovedPawn.getAsJsonObject().get("col").getAsInt();
+            int pawnRow = whiteToMove ? 5 : 4;
+            char pawn = whiteToMove ? 'p' : 'P';
+            if (row == pawnRow && col >= 1 && col <= 8 && pieces[row][col] != null
+                    && legacyLetter(pieces[row][col]) == pawn) {
+                enPassant = "" + (char) ('a' + col - 1) + (whiteToMove ? '6' : '3');
+            }
+        }
+        return fen.append(' ').append(enPassant).append(" 0 1").toString();
+    }
+
+    private static boolean unmoved(JsonObject[][] pieces, int row, int col, char letter) {
+        JsonObject piece = pieces[row][col];
+        return piece != null && legacyLetter(piece) == letter
+                && !(piece.has("hasMoved") && piece.get("hasMoved").getAsBoolean());
+    }
+
+    private static char legacyLetter(JsonObject piece) {
+        char letter = switch (piece.get("type").getAsString()) {
+            case "KING" -> 'k';
+            case "QUEEN" -> 'q';
+            case "BISHOP" -> 'b';
+            case "KNIGHT" -> 'n';
+            case "ROOK" -> 'r';
+            case "PAWN" -> 'p';
+            default -> throw new JsonParseException("Unknown piece type " + piece.get("type"));
+        };
+        return "WHITE".equals(piece.get("pieceColor").getAsString()) ? Character.toUpperCase(letter) : letter;
+    }
+}
@@ -60,6 +60,6 @@ public class ChessMove {
 
     @Override
     public int hashCode() {
-        return Objects.hash(startPosition, endPosition, promotionPiece);
+        return (startPosition.hashCode() * 31 + endPosition.hashCode()) * 31 + Objects.hashCode(promotionPiece);
     }
 }
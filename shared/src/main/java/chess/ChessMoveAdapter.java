@@ -0,0 +1,53 @@
+package chess;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import serialization.JsonEnums;
+
+import java.io.IOException;
+
+/**
+ * Streams a ChessMove as {"startPosition":{...},"endPosition":{...},"promotionPiece":"QUEEN"},
+ * leaving out promotionPiece when there is none. This matches what reflective Gson writes, so
+ * clients that don't register the adapters can still send moves.
+ */
+public final class ChessMoveAdapter extends TypeAdapter<ChessMove> {
+
+    private final ChessPositionAdapter positionAdapter = new ChessPositionAdapter();
+
+    @Override
+    public void write(JsonWriter out, ChessMove move) throws IOException {
+        out.beginObject();
+        out.name("startPosition");
+        positionAdapter.write(out, move.getStartPosition());
+        out.name("endPosition");
+        positionAdapter.write(out, move.getEndPosition());
+        if (move.getPromotionPiece() != null) {
+            out.name("promotionPiece").value(move.getPromotionPiece().name());
+        }
+        out.endObject();
+    }
+
+    @Override
+    public ChessMove read(JsonReader in) throws IOException {
+        ChessPosition start = null;
+        ChessPosition end = null;
+        ChessPiece.PieceType promotion = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "startPosition" -> start = positionAdapter.read(in);
+                case "endPosition" -> end = positionAdapter.read(in);
+                case "promotionPiece" -> promotion = JsonEnums.valueOf(ChessPiece.PieceType.class, in.nextString());
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        if (start == null || end == null) {
+            throw new JsonParseException("Chess move needs a startPosition and an endPosition");
+        }
+        return new ChessMove(start, end, promotion);
+    }
+}
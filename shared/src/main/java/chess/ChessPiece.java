@@ -11,14 +11,35 @@ import java.util.Objects;
  */
 public class ChessPiece {
 
+    // one shared, immutable instance per color and type, indexed like the board's bitboards
+    private static final ChessPiece[] PIECES = new ChessPiece[12];
+
+    static {
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (PieceType type : PieceType.values()) {
+                PIECES[Bitboards.pieceIndex(color, type)] = new ChessPiece(color, type);
+            }
+        }
+    }
+
     private final ChessGame.TeamColor pieceColor;
     private final PieceType type;
-    private boolean hasMoved;
 
     public ChessPiece(ChessGame.TeamColor pieceColor, PieceType type) {
         this.pieceColor = pieceColor;
         this.type = type;
-        hasMoved = false;
+    }
+
+    /**
+     * Returns the shared instance for a color and type. Pieces are immutable, so the board
+     * uses these instead of allocating a new piece every time one is placed.
+     *
+     * @param pieceColor piece color
+     * @param type       piece type
+     * @return the canonical ChessPiece
+     */
+    public static ChessPiece of(ChessGame.TeamColor pieceColor, PieceType type) {
+        return PIECES[Bitboards.pieceIndex(pieceColor, type)];
     }
 
     /**
@@ -48,32 +69,37 @@ public class ChessPiece {
     }
 
     /**
-     * Calculates all the positions a chess piece can move to
-     * Does not take into account moves that are illegal due to leaving the king in
-     * danger
+     * Pieces used to carry a flag for castling. They are now shared between squares and boards, so
+     * castling rights are kept on the board instead, and making a king or rook move updates them.
+     * This does nothing.
      *
-     * @return Collection of valid moves
+     * @deprecated use {@link ChessBoard#hasCastlingRight(ChessGame.TeamColor, boolean)}
      */
-    public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition) {
-        return board.getMoveManager().pieceMoves(board, myPosition);
+    @Deprecated
+    public void setHasMoved() {
+
     }
 
     /**
-     * Sets the hasMoved variable to true if it was previously false
+     * A shared piece can't know whether it has moved; see setHasMoved.
+     *
+     * @return always false
+     * @deprecated use {@link ChessBoard#hasCastlingRight(ChessGame.TeamColor, boolean)}
      */
-    public void setHasMoved() {
-        if (!hasMoved) {
-            hasMoved = true;
-        }
+    @Deprecated
+    public boolean getHasMoved() {
+        return false;
     }
 
     /**
-     * Returns the hasMoved variable
+     * Calculates all the positions a chess piece can move to
+     * Does not take into account moves that are illegal due to leaving the king in
+     * danger
      *
-     * @return hasMoved boolean
+     * @return Collection of valid moves
      */
-    public boolean getHasMoved() {
-        return hasMoved;
+    public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition) {
+        return board.getMoveManager().pieceMoves(board, myPosition);
     }
 
     @Override
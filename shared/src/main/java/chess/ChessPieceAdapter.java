@@ -0,0 +1,43 @@
+package chess;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import serialization.JsonEnums;
+
+import java.io.IOException;
+
+/**
+ * Streams a ChessPiece as {"pieceColor":"WHITE","type":"KING"} and reads it back into the shared
+ * instance for that color and type
+ */
+public final class ChessPieceAdapter extends TypeAdapter<ChessPiece> {
+
+    @Override
+    public void write(JsonWriter out, ChessPiece piece) throws IOException {
+        out.beginObject();
+        out.name("pieceColor").value(piece.getTeamColor().name());
+        out.name("type").value(piece.getPieceType().name());
+        out.endObject();
+    }
+
+    @Override
+    public ChessPiece read(JsonReader in) throws IOException {
+        ChessGame.TeamColor color = null;
+        ChessPiece.PieceType type = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "pieceColor" -> color = JsonEnums.valueOf(ChessGame.TeamColor.class, in.nextString());
+                case "type" -> type = JsonEnums.valueOf(ChessPiece.PieceType.class, in.nextString());
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        if (color == null || type == null) {
+            throw new JsonParseException("Chess piece needs a pieceColor and a type");
+        }
+        return ChessPiece.of(color, type);
+    }
+}
@@ -1,7 +1,5 @@
 package chess;
 
-import java.util.Objects;
-
 /**
  * Represents a single square position on a chess board
  * <p>
@@ -10,6 +8,15 @@ import java.util.Objects;
  */
 public class ChessPosition {
 
+    // one shared instance per square on the board, indexed by square
+    private static final ChessPosition[] POSITIONS = new ChessPosition[64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            POSITIONS[square] = new ChessPosition(Bitboards.rowOf(square), Bitboards.colOf(square));
+        }
+    }
+
     private final int row;
     private final int col;
 
@@ -18,6 +25,31 @@ public class ChessPosition {
         this.col = col;
     }
 
+    /**
+     * Returns the shared instance for a row and column. Positions off the board are
+     * still allowed, but get a new instance each time.
+     *
+     * @param row row number
+     * @param col column number
+     * @return the ChessPosition for that row and column
+     */
+    public static ChessPosition of(int row, int col) {
+        if (!Bitboards.withinBounds(row, col)) {
+            return new ChessPosition(row, col);
+        }
+        return POSITIONS[Bitboards.square(row, col)];
+    }
+
+    /**
+     * Returns the shared instance for a square index
+     *
+     * @param square square index 0-63
+     * @return the ChessPosition for that square
+     */
+    public static ChessPosition of(int square) {
+        return POSITIONS[square];
+    }
+
     /**
      * @return which row this position is in
      * 1 codes for the bottom row
@@ -49,6 +81,6 @@ public class ChessPosition {
 
     @Override
     public int hashCode() {
-        return Objects.hash(row, col);
+        return row * 31 + col;
     }
 }
@@ -0,0 +1,42 @@
+package chess;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Streams a ChessPosition as {"row":2,"col":5}, the same shape reflective Gson uses, and reads it
+ * back into the shared instance for that square
+ */
+public final class ChessPositionAdapter extends TypeAdapter<ChessPosition> {
+
+    @Override
+    public void write(JsonWriter out, ChessPosition position) throws IOException {
+        out.beginObject();
+        out.name("row").value(position.getRow());
+        out.name("col").value(position.getColumn());
+        out.endObject();
+    }
+
+    @Override
+    public ChessPosition read(JsonReader in) throws IOException {
+        Integer row = null;
+        Integer col = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "row" -> row = in.nextInt();
+                case "col" -> col = in.nextInt();
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        if (row == null || col == null) {
+            throw new JsonParseException("Chess position needs a row and a col");
+        }
+        return ChessPosition.of(row, col);
+    }
+}
@@ -0,0 +1,294 @@
+package chess;
+
+/**
+ * Reads and writes positions in Forsyth-Edwards Notation, for example the starting position
+ * {@code rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1}.
+ * <p>
+ * The parser walks the string one character at a time and places the shared ChessPiece instances
+ * directly, so apart from the game itself it allocates nothing.
+ */
+final class Fen {
+
+    private static final String PIECE_LETTERS = "kqbnrp";
+
+    private Fen() {
+
+    }
+
+    /**
+     * Builds a game from a FEN string. The halfmove clock and fullmove number may be left off.
+     *
+     * @param fen position in Forsyth-Edwards Notation
+     * @return a game set to that position
+     * @throws IllegalArgumentException if the string is not valid FEN, or the position doesn't have one
+     *                                  king a side or leaves the side not to move in check
+     */
+    static ChessGame parse(String fen) {
+        if (fen == null) {
+            throw new IllegalArgumentException("FEN must not be null");
+        }
+        ChessGame game = new ChessGame();
+        ChessBoard board = game.getBoard();
+        board.clear();
+
+        int index = parsePlacement(fen, board);
+        index = expect(fen, index, ' ');
+
+        if (index >= fen.length() || (fen.charAt(index) != 'w' && fen.charAt(index) != 'b')) {
+            throw invalid(fen, "side to move must be w or b");
+        }
+        ChessGame.TeamColor sideToMove = fen.charAt(index) == 'w' ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+        index = expect(fen, index + 1, ' ');
+
+        int castlingRights = 0;
+        if (index < fen.length() && fen.charAt(index) == '-') {
+            index++;
+        } else {
+            int start = index;
+            while (index < fen.length() && fen.charAt(index) != ' ') {
+                castlingRights |= castlingBit(fen, fen.charAt(index));
+                index++;
+            }
+            if (index == start) {
+                throw invalid(fen, "missing castling rights");
+            }
+        }
+        index = expect(fen, index, ' ');
+
+        int enPassantFile = 0;
+        if (index < fen.length() && fen.charAt(index) == '-') {
+            index++;
+        } else {
+            // the square is behind a pawn the other side just pushed two rows: row 6 if white is to move, 3 if black
+            char enPassantRow = sideToMove == ChessGame.TeamColor.WHITE ? '6' : '3';
+            if (index + 1 >= fen.length() || fen.charAt(index) < 'a' || fen.charAt(index) > 'h'
+                    || fen.charAt(index + 1) != enPassantRow) {
+                throw invalid(fen, "en passant square must be - or a square on row " + enPassantRow);
+            }
+            enPassantFile = fen.charAt(index) - 'a' + 1;
+            index += 2;
+        }
+
+        int halfmoveClock = 0;
+        int fullmoveNumber = 1;
+        if (index < fen.length()) {
+            index = expect(fen, index, ' ');
+            int end = numberEnd(fen, index);
+            halfmoveClock = parseNumber(fen, index, end);
+            index = expect(fen, end, ' ');
+            end = numberEnd(fen, index);
+            fullmoveNumber = Math.max(parseNumber(fen, index, end), 1);
+            if (end != fen.length()) {
+                throw invalid(fen, "unexpected text after the fullmove number");
+            }
+        }
+
+        board.setState(castlingRights, enPassantFile, sideToMove, halfmoveClock);
+        game.setTeamTurn(sideToMove);
+        game.setFullmoveNumber(fullmoveNumber);
+        // the move generator and the check tests assume one king a side, and a side can't be left in check
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            if (Long.bitCount(board.getPieceBitboard(color, ChessPiece.PieceType.KING)) != 1) {
+                throw invalid(fen, color.toString().toLowerCase() + " must have exactly one king");
+            }
+        }
+        ChessGame.TeamColor waiting =
+                sideToMove == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        if (game.isInCheck(waiting)) {
+            throw invalid(fen, "the side not to move is in check");
+        }
+        return game;
+    }
+
+    /**
+     * Writes a game's position as FEN. The en passant square is only written when a pawn can
+     * actually make the capture.
+     *
+     * @param game game to write
+     * @return position in Forsyth-Edwards Notation
+     */
+    static String format(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        var fen = new StringBuilder(90);
+        formatPlacement(board, fen);
+
+        ChessGame.TeamColor sideToMove = game.getTeamTurn();
+        fen.append(sideToMove == ChessGame.TeamColor.WHITE ? " w " : " b ");
+
+        int rights = board.getCastlingRights();
+        if (rights == 0) {
+            fen.append('-');
+        } else {
+            appendIf(fen, rights, 1, 'K');
+            appendIf(fen, rights, 2, 'Q');
+            appendIf(fen, rights, 4, 'k');
+            appendIf(fen, rights, 8, 'q');
+        }
+
+        int file = board.getEnPassantFile();
+        if (file == 0) {
+            fen.append(" -");
+        } else {
+            fen.append(' ').append((char) ('a' + file - 1)).append(sideToMove == ChessGame.TeamColor.WHITE ? '6' : '3');
+        }
+
+        fen.append(' ').append(board.getHalfmoveClock()).append(' ').append(game.getFullmoveNumber());
+        return fen.toString();
+    }
+
+    /**
+     * Writes the piece placement field, row 8 first
+     *
+     * @param board board to write
+     * @param fen   builder to append to
+     */
+    static void formatPlacement(ChessBoard board, StringBuilder fen) {
+        for (int row = 8; row >= 1; row--) {
+            int empty = 0;
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = board.getPiece(Bitboards.square(row, col));
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    fen.append(empty);
+                    empty = 0;
+                }
+                char letter = PIECE_LETTERS.charAt(piece.getPieceType().ordinal());
+                fen.append(piece.getTeamColor() == ChessGame.TeamColor.WHITE ? Character.toUpperCase(letter) : letter);
+            }
+            if (empty > 0) {
+                fen.append(empty);
+            }
+            if (row > 1) {
+                fen.append('/');
+            }
+        }
+    }
+
+    /**
+     * Reads the piece placement field onto an empty board
+     *
+     * @param fen   FEN string
+     * @param board board to place pieces on
+     * @return index of the first character after the placement field
+     */
+    static int parsePlacement(String fen, ChessBoard board) {
+        int row = 8;
+        int col = 1;
+        int index = 0;
+        while (index < fen.length() && fen.charAt(index) != ' ') {
+            char c = fen.charAt(index++);
+            if (c == '/') {
+                if (col != 9 || row == 1) {
+                    throw invalid(fen, "row " + row + " does not have 8 squares");
+                }
+                row--;
+                col = 1;
+            } else if (c >= '1' && c <= '8') {
+                col += c - '0';
+            } else {
+                int type = PIECE_LETTERS.indexOf(Character.toLowerCase(c));
+                if (type < 0 || col > 8) {
+                    throw invalid(fen, "unexpected '" + c + "' in piece placement");
+                }
+                ChessGame.TeamColor color = Character.isUpperCase(c) ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+                board.addPiece(ChessPosition.of(row, col), ChessPiece.of(color, ChessPiece.PieceType.values()[type]));
+                col++;
+            }
+            if (col > 9) {
+                throw invalid(fen, "row " + row + " has more than 8 squares");
+            }
+        }
+        if (row != 1 || col != 9) {
+            throw invalid(fen, "piece placement must cover 8 rows of 8 squares");
+        }
+        return index;
+    }
+
+    /**
+     * @param fen    FEN string
+     * @param letter one of KQkq
+     * @return the castling rights bit for that letter
+     */
+    private static int castlingBit(String fen, char letter) {
+        return switch (letter) {
+            case 'K' -> 1;
+            case 'Q' -> 2;
+            case 'k' -> 4;
+            case 'q' -> 8;
+            default -> throw invalid(fen, "unexpected '" + letter + "' in castling rights");
+        };
+    }
+
+    /**
+     * Appends a castling letter if its right is set
+     *
+     * @param fen    FEN being written
+     * @param rights castling rights bits
+     * @param bit    bit for this right
+     * @param letter letter for this right
+     */
+    private static void appendIf(StringBuilder fen, int rights, int bit, char letter) {
+        if ((rights & bit) != 0) {
+            fen.append(letter);
+        }
+    }
+
+    /**
+     * Checks that a character is at an index
+     *
+     * @param fen      FEN string
+     * @param index    index to check
+     * @param expected character that should be there
+     * @return the index just past it
+     */
+    private static int expect(String fen, int index, char expected) {
+        if (index >= fen.length() || fen.charAt(index) != expected) {
+            throw invalid(fen, "expected '" + expected + "' at index " + index);
+        }
+        return index + 1;
+    }
+
+    /**
+     * @param fen   FEN string
+     * @param start index of the first digit
+     * @return index just past the last digit
+     */
+    private static int numberEnd(String fen, int start) {
+        int end = start;
+        while (end < fen.length() && fen.charAt(end) >= '0' && fen.charAt(end) <= '9') {
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * Parses the digits between two indices without creating a substring
+     *
+     * @param fen   FEN string
+     * @param start index of the first digit
+     * @param end   index just past the last digit
+     * @return the number
+     */
+    private static int parseNumber(String fen, int start, int end) {
+        if (start == end || end - start > 6) {
+            throw invalid(fen, "expected a number at index " + start);
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            value = value * 10 + fen.charAt(i) - '0';
+        }
+        return value;
+    }
+
+    /**
+     * @param fen    the string that failed to parse
+     * @param reason what was wrong with it
+     * @return exception to throw
+     */
+    private static IllegalArgumentException invalid(String fen, String reason) {
+        return new IllegalArgumentException("Invalid FEN \"" + fen + "\": " + reason);
+    }
+}
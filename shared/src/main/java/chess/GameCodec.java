@@ -0,0 +1,134 @@
+package chess;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed-size binary encoding of a ChessGame, for storing and sending games without JSON.
+ * <p>
+ * A snapshot is {@link #SIZE} bytes: a version byte, a byte holding the side to move, the board's
+ * state word and the fullmove number as shorts, then the 64 squares packed two to a byte. Each
+ * square is a nibble holding 0 for empty or the piece index plus one, low nibble first. That is
+ * everything ChessGame.equals looks at, so a decoded game equals the one that was encoded and
+ * has the same Zobrist key. The move history is not kept by the game and is not encoded.
+ */
+public final class GameCodec {
+
+    public static final int SIZE = 38;
+
+    private static final byte VERSION = 1;
+    private static final int BLACK_TO_MOVE = 1;
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+    private static final ChessGame.TeamColor[] COLORS = ChessGame.TeamColor.values();
+
+    private GameCodec() {
+
+    }
+
+    /**
+     * Writes a game at the buffer's position, advancing it by SIZE bytes
+     *
+     * @param game   game to encode
+     * @param buffer buffer with at least SIZE bytes remaining
+     */
+    public static void encode(ChessGame game, ByteBuffer buffer) {
+        ChessBoard board = game.getBoard();
+        buffer.put(VERSION);
+        buffer.put((byte) (game.getTeamTurn() == ChessGame.TeamColor.BLACK ? BLACK_TO_MOVE : 0));
+        buffer.putShort((short) board.getState());
+        buffer.putShort((short) Math.min(game.getFullmoveNumber(), 0xFFFF));
+        for (int square = 0; square < 64; square += 2) {
+            buffer.put((byte) (nibble(board.getPiece(square)) | nibble(board.getPiece(square + 1)) << 4));
+        }
+    }
+
+    /**
+     * @param game game to encode
+     * @return a new array holding the encoded game
+     */
+    public static byte[] encode(ChessGame game) {
+        byte[] bytes = new byte[SIZE];
+        encode(game, ByteBuffer.wrap(bytes));
+        return bytes;
+    }
+
+    /**
+     * Reads a game from the buffer's position, advancing it by SIZE bytes
+     *
+     * @param buffer buffer holding an encoded game
+     * @return the decoded game
+     * @throws IllegalArgumentException if the bytes are not an encoded game
+     */
+    public static ChessGame decode(ByteBuffer buffer) {
+        ChessGame game = new ChessGame();
+        decode(buffer, game);
+        return game;
+    }
+
+    /**
+     * @param bytes an encoded game
+     * @return the decoded game
+     * @throws IllegalArgumentException if the bytes are not an encoded game
+     */
+    public static ChessGame decode(byte[] bytes) {
+        return decode(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Reads a game from the buffer's position into an existing game, replacing its position.
+     * Reusing one game this way decodes without allocating.
+     *
+     * @param buffer buffer holding an encoded game
+     * @param game   game to overwrite
+     * @throws IllegalArgumentException if the bytes are not an encoded game
+     */
+    public static void decode(ByteBuffer buffer, ChessGame game) {
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unknown game encoding version " + version);
+        }
+        ChessGame.TeamColor sideToMove = (buffer.get() & BLACK_TO_MOVE) != 0
+                ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        int state = buffer.getShort() & 0xFFFF;
+        int fullmoveNumber = buffer.getShort() & 0xFFFF;
+
+        ChessBoard board = game.getBoard();
+        board.clear();
+        for (int square = 0; square < 64; square += 2) {
+            int packed = buffer.get();
+            placeNibble(board, square, packed & 0xF);
+            placeNibble(board, square + 1, packed >>> 4 & 0xF);
+        }
+        board.setState(state & 0xF, state >>> 4 & 0xF, sideToMove, state >>> 8 & 0xFF);
+        game.setTeamTurn(sideToMove);
+        game.setFullmoveNumber(Math.max(fullmoveNumber, 1));
+    }
+
+    /**
+     * @param piece piece on a square, or null
+     * @return the square's nibble: 0 for empty, otherwise the piece index plus one
+     */
+    private static int nibble(ChessPiece piece) {
+        if (piece == null) {
+            return 0;
+        }
+        return Bitboards.pieceIndex(piece.getTeamColor(), piece.getPieceType()) + 1;
+    }
+
+    /**
+     * Places the piece a nibble stands for, if any
+     *
+     * @param board  board being decoded
+     * @param square square index
+     * @param nibble the square's nibble
+     */
+    private static void placeNibble(ChessBoard board, int square, int nibble) {
+        if (nibble == 0) {
+            return;
+        }
+        if (nibble > 12) {
+            throw new IllegalArgumentException("Invalid piece " + nibble + " on square " + square);
+        }
+        int index = nibble - 1;
+        board.addPiece(ChessPosition.of(square), ChessPiece.of(COLORS[index / 6], TYPES[index % 6]));
+    }
+}
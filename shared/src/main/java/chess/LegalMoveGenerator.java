@@ -0,0 +1,379 @@
+package chess;
+
+import chess.movemanagers.AttackTables;
+
+import java.util.Collection;
+
+/**
+ * Generates only legal moves, without playing candidates on a trial board.
+ * <p>
+ * The checkers and pinned pieces are worked out once per position. In double check only the king may move.
+ * In single check every other piece is limited to capturing the checker or blocking its ray, and a pinned
+ * piece is limited to the line through its king. King moves are tested with the king lifted off the board,
+ * so it cannot hide behind itself from a slider. En passant is checked by simulating the capture, since
+ * removing two pawns from one rank can uncover the king.
+ */
+public class LegalMoveGenerator {
+
+    private static final ChessPiece.PieceType[] PROMOTION_TYPES = {
+            ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.ROOK,
+            ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.KNIGHT
+    };
+
+    public LegalMoveGenerator() {
+
+    }
+
+    /**
+     * Generates every legal move for one side
+     *
+     * @param board           current chessboard
+     * @param color           side to generate moves for
+     * @param enPassantVictim position of a pawn that just double moved, or null if en passant is not possible
+     * @return Collection of legal ChessMoves
+     */
+    public Collection<ChessMove> legalMoves(ChessBoard board, ChessGame.TeamColor color, ChessPosition enPassantVictim) {
+        var moves = new MoveList();
+        generate(board, color, -1L, victimSquare(enPassantVictim), false, moves);
+        return moves.toChessMoves();
+    }
+
+    /**
+     * Fills a MoveList with every legal move for one side, as packed moves. The list is cleared first.
+     *
+     * @param board    current chessboard
+     * @param color    side to generate moves for
+     * @param epVictim square index of a pawn that just double moved, or -1 if en passant is not possible
+     * @param moves    list to fill
+     */
+    public void generate(ChessBoard board, ChessGame.TeamColor color, int epVictim, MoveList moves) {
+        moves.clear();
+        generate(board, color, -1L, epVictim, false, moves);
+    }
+
+    /**
+     * Fills a MoveList with only the legal captures and promotions for one side, for a quiescence search.
+     * The list is cleared first. An empty list does not mean mate or stalemate.
+     *
+     * @param board    current chessboard
+     * @param color    side to generate moves for
+     * @param epVictim square index of a pawn that just double moved, or -1 if en passant is not possible
+     * @param moves    list to fill
+     */
+    public void generateCaptures(ChessBoard board, ChessGame.TeamColor color, int epVictim, MoveList moves) {
+        moves.clear();
+        generate(board, color, -1L, epVictim, true, moves);
+    }
+
+    /**
+     * Generates the legal moves of the piece on one square
+     *
+     * @param board           current chessboard
+     * @param startPosition   position of the piece to move
+     * @param enPassantVictim position of a pawn that just double moved, or null if en passant is not possible
+     * @return Collection of legal ChessMoves, or null if there is no piece at startPosition
+     */
+    public Collection<ChessMove> legalMoves(ChessBoard board, ChessPosition startPosition, ChessPosition enPassantVictim) {
+        ChessPiece piece = board.getPiece(startPosition);
+        if (piece == null) {
+            return null;
+        }
+        var moves = new MoveList(32);
+        generate(board, piece.getTeamColor(), Bitboards.bit(Bitboards.square(startPosition)), victimSquare(enPassantVictim),
+                false, moves);
+        return moves.toChessMoves();
+    }
+
+    /**
+     * Returns every piece of the given color that attacks a square, given an occupancy
+     *
+     * @param board     current chessboard
+     * @param square    square index being attacked
+     * @param byColor   color of the attackers
+     * @param occupancy blockers to use for sliding pieces
+     * @return bitboard of attacking pieces
+     */
+    public long attackersTo(ChessBoard board, int square, ChessGame.TeamColor byColor, long occupancy) {
+        long queens = board.getPieceBitboard(byColor, ChessPiece.PieceType.QUEEN);
+        return (AttackTables.pawnAttacks(square, opposite(byColor)) & board.getPieceBitboard(byColor, ChessPiece.PieceType.PAWN))
+                | (AttackTables.knightAttacks(square) & board.getPieceBitboard(byColor, ChessPiece.PieceType.KNIGHT))
+                | (AttackTables.kingAttacks(square) & board.getPieceBitboard(byColor, ChessPiece.PieceType.KING))
+                | (AttackTables.bishopAttacks(square, occupancy) & (queens | board.getPieceBitboard(byColor, ChessPiece.PieceType.BISHOP)))
+                | (AttackTables.rookAttacks(square, occupancy) & (queens | board.getPieceBitboard(byColor, ChessPiece.PieceType.ROOK)));
+    }
+
+    /**
+     * Generates legal moves for the pieces of one side that sit on the given squares
+     *
+     * @param board    current chessboard
+     * @param us       side to move
+     * @param fromMask     bitboard of origin squares to generate for
+     * @param epVictim     square of a pawn capturable en passant, or -1
+     * @param capturesOnly true to leave out quiet moves other than promotions
+     * @param moves        list to add moves to
+     */
+    private void generate(ChessBoard board, ChessGame.TeamColor us, long fromMask, int epVictim, boolean capturesOnly,
+                          MoveList moves) {
+        ChessGame.TeamColor them = opposite(us);
+        long ours = board.getTeamOccupancy(us);
+        // squares a piece other than a pawn may move to
+        long targetMask = capturesOnly ? board.getTeamOccupancy(them) : ~ours;
+        long occupancy = board.getOccupancy();
+        long kingBoard = board.getPieceBitboard(us, ChessPiece.PieceType.KING);
+        int king = kingBoard == 0 ? -1 : Long.numberOfTrailingZeros(kingBoard);
+
+        long checkMask = -1L;
+        long pinned = 0L;
+        if (king >= 0) {
+            long checkers = attackersTo(board, king, them, occupancy);
+            if ((fromMask & kingBoard) != 0) {
+                addKingMoves(board, king, them, targetMask, moves);
+                if (checkers == 0 && !capturesOnly) {
+                    addCastles(board, king, us, them, moves);
+                }
+            }
+            if (Long.bitCount(checkers) > 1) {
+                return;
+            }
+            if (checkers != 0) {
+                checkMask = AttackTables.between(king, Long.numberOfTrailingZeros(checkers)) | checkers;
+            }
+            pinned = pinnedPieces(board, king, us, them);
+        }
+
+        long pieces = ours & ~kingBoard & fromMask;
+        while (pieces != 0) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+
+            long allowed = checkMask;
+            if ((pinned & Bitboards.bit(from)) != 0) {
+                allowed &= AttackTables.line(king, from);
+            }
+
+            ChessPiece.PieceType type = board.getPiece(from).getPieceType();
+            if (type == ChessPiece.PieceType.PAWN) {
+                addPawnMoves(board, from, us, allowed, king, epVictim, capturesOnly, moves);
+                continue;
+            }
+
+            long targets = switch (type) {
+                case KNIGHT -> AttackTables.knightAttacks(from);
+                case BISHOP -> AttackTables.bishopAttacks(from, occupancy);
+                case ROOK -> AttackTables.rookAttacks(from, occupancy);
+                case QUEEN -> AttackTables.queenAttacks(from, occupancy);
+                default -> 0L;
+            };
+            addMoves(board, them, from, targets & targetMask & allowed, moves);
+        }
+    }
+
+    /**
+     * Adds king steps to squares the enemy does not attack, with the king removed from the occupancy
+     *
+     * @param board      current chessboard
+     * @param king       king's square index
+     * @param them       enemy color
+     * @param targetMask squares the king may step to, before checking they are safe
+     * @param moves      list to add moves to
+     */
+    private void addKingMoves(ChessBoard board, int king, ChessGame.TeamColor them, long targetMask,
+                              MoveList moves) {
+        long occupancy = board.getOccupancy() ^ Bitboards.bit(king);
+        long targets = AttackTables.kingAttacks(king) & targetMask;
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            if (attackersTo(board, to, them, occupancy) == 0) {
+                moves.add(Moves.encode(king, to, captureFlag(board, them, to)));
+            }
+        }
+    }
+
+    /**
+     * Adds castling moves when the side still has the right, the squares between king and rook are empty,
+     * and the squares the king crosses and lands on are not attacked. Only called when not in check.
+     *
+     * @param board current chessboard
+     * @param king  king's square index
+     * @param us    king's color
+     * @param them  enemy color
+     * @param moves list to add moves to
+     */
+    private void addCastles(ChessBoard board, int king, ChessGame.TeamColor us, ChessGame.TeamColor them,
+                            MoveList moves) {
+        int homeRow = us == ChessGame.TeamColor.WHITE ? 1 : 8;
+        if (king != Bitboards.square(homeRow, 5)) {
+            return;
+        }
+        long occupancy = board.getOccupancy();
+        if (board.hasCastlingRight(us, true)
+                && (AttackTables.between(king, king + 3) & occupancy) == 0
+                && attackersTo(board, king + 1, them, occupancy) == 0
+                && attackersTo(board, king + 2, them, occupancy) == 0) {
+            moves.add(Moves.encode(king, king + 2, Moves.CASTLE));
+        }
+        if (board.hasCastlingRight(us, false)
+                && (AttackTables.between(king, king - 4) & occupancy) == 0
+                && attackersTo(board, king - 1, them, occupancy) == 0
+                && attackersTo(board, king - 2, them, occupancy) == 0) {
+            moves.add(Moves.encode(king, king - 2, Moves.CASTLE));
+        }
+    }
+
+    /**
+     * Adds pushes, double pushes, captures, promotions and en passant for one pawn
+     *
+     * @param board        current chessboard
+     * @param from         pawn's square index
+     * @param us           pawn's color
+     * @param allowed      destination squares permitted by checks and pins
+     * @param king         own king's square index, or -1
+     * @param epVictim     square of a pawn capturable en passant, or -1
+     * @param capturesOnly true to push the pawn only when it promotes
+     * @param moves        list to add moves to
+     */
+    private void addPawnMoves(ChessBoard board, int from, ChessGame.TeamColor us, long allowed, int king, int epVictim,
+                              boolean capturesOnly, MoveList moves) {
+        long occupancy = board.getOccupancy();
+        int forward = us == ChessGame.TeamColor.WHITE ? 8 : -8;
+        int startRow = us == ChessGame.TeamColor.WHITE ? 2 : 7;
+        int promotionRow = us == ChessGame.TeamColor.WHITE ? 8 : 1;
+
+        int oneStep = from + forward;
+        if (oneStep >= 0 && oneStep < 64 && (occupancy & Bitboards.bit(oneStep)) == 0
+                && (!capturesOnly || Bitboards.rowOf(oneStep) == promotionRow)) {
+            addPawnMove(from, oneStep, 0, allowed, moves);
+            int twoStep = oneStep + forward;
+            if (Bitboards.rowOf(from) == startRow && (occupancy & Bitboards.bit(twoStep)) == 0) {
+                addPawnMove(from, twoStep, Moves.DOUBLE_PUSH, allowed, moves);
+            }
+        }
+
+        long attacks = AttackTables.pawnAttacks(from, us);
+        long captures = attacks & board.getTeamOccupancy(opposite(us));
+        while (captures != 0) {
+            int to = Long.numberOfTrailingZeros(captures);
+            captures &= captures - 1;
+            addPawnMove(from, to, Moves.CAPTURE, allowed, moves);
+        }
+
+        if (epVictim >= 0) {
+            int epTarget = epVictim + forward;
+            ChessPiece victim = board.getPiece(epVictim);
+            boolean capturable = victim != null && victim.getPieceType() == ChessPiece.PieceType.PAWN
+                    && victim.getTeamColor() != us && (attacks & Bitboards.bit(epTarget)) != 0
+                    && (occupancy & Bitboards.bit(epTarget)) == 0;
+            if (capturable && enPassantIsSafe(board, from, epTarget, epVictim, us, king)) {
+                moves.add(Moves.encode(from, epTarget, Moves.CAPTURE | Moves.EN_PASSANT));
+            }
+        }
+    }
+
+    /**
+     * Simulates an en passant capture on the occupancy and checks that no enemy piece attacks the king afterward
+     *
+     * @param board  current chessboard
+     * @param from   capturing pawn's square index
+     * @param to     square the capturing pawn lands on
+     * @param victim square of the captured pawn
+     * @param us     capturing side
+     * @param king   own king's square index, or -1
+     * @return true if the capture leaves the king safe
+     */
+    private boolean enPassantIsSafe(ChessBoard board, int from, int to, int victim, ChessGame.TeamColor us, int king) {
+        if (king < 0) {
+            return true;
+        }
+        long occupancy = (board.getOccupancy() ^ Bitboards.bit(from) ^ Bitboards.bit(victim)) | Bitboards.bit(to);
+        return (attackersTo(board, king, opposite(us), occupancy) & ~Bitboards.bit(victim)) == 0;
+    }
+
+    /**
+     * Adds a pawn move if it is allowed, expanding it into the four promotions on the last row
+     *
+     * @param from    pawn's square index
+     * @param to      destination square index
+     * @param flags   flags for the packed move
+     * @param allowed destination squares permitted by checks and pins
+     * @param moves   list to add moves to
+     */
+    private void addPawnMove(int from, int to, int flags, long allowed, MoveList moves) {
+        if ((allowed & Bitboards.bit(to)) == 0) {
+            return;
+        }
+        int row = Bitboards.rowOf(to);
+        if (row == 8 || row == 1) {
+            for (ChessPiece.PieceType promotion : PROMOTION_TYPES) {
+                moves.add(Moves.encode(from, to, promotion, flags));
+            }
+        } else {
+            moves.add(Moves.encode(from, to, flags));
+        }
+    }
+
+    /**
+     * Adds one move per set bit in targets
+     *
+     * @param board   current chessboard
+     * @param them    enemy color
+     * @param from    origin square index
+     * @param targets bitboard of destination squares
+     * @param moves   list to add moves to
+     */
+    private void addMoves(ChessBoard board, ChessGame.TeamColor them, int from, long targets, MoveList moves) {
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            moves.add(Moves.encode(from, to, captureFlag(board, them, to)));
+        }
+    }
+
+    /**
+     * @param board current chessboard
+     * @param them  enemy color
+     * @param to    destination square index
+     * @return Moves.CAPTURE if an enemy piece stands on the square, 0 otherwise
+     */
+    private int captureFlag(ChessBoard board, ChessGame.TeamColor them, int to) {
+        return (board.getTeamOccupancy(them) & Bitboards.bit(to)) != 0 ? Moves.CAPTURE : 0;
+    }
+
+    /**
+     * Finds our pieces that are the only blocker between the king and an enemy slider
+     *
+     * @param board current chessboard
+     * @param king  king's square index
+     * @param us    king's color
+     * @param them  enemy color
+     * @return bitboard of pinned pieces
+     */
+    private long pinnedPieces(ChessBoard board, int king, ChessGame.TeamColor us, ChessGame.TeamColor them) {
+        long theirs = board.getTeamOccupancy(them);
+        long queens = board.getPieceBitboard(them, ChessPiece.PieceType.QUEEN);
+        // look through our own pieces to find enemy sliders lined up on the king
+        long snipers = (AttackTables.rookAttacks(king, theirs) & (queens | board.getPieceBitboard(them, ChessPiece.PieceType.ROOK)))
+                | (AttackTables.bishopAttacks(king, theirs) & (queens | board.getPieceBitboard(them, ChessPiece.PieceType.BISHOP)));
+
+        long pinned = 0L;
+        long occupancy = board.getOccupancy();
+        long ours = board.getTeamOccupancy(us);
+        while (snipers != 0) {
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+            long blockers = AttackTables.between(king, sniper) & occupancy;
+            if (Long.bitCount(blockers) == 1 && (blockers & ours) != 0) {
+                pinned |= blockers;
+            }
+        }
+        return pinned;
+    }
+
+    private int victimSquare(ChessPosition enPassantVictim) {
+        return enPassantVictim == null ? -1 : Bitboards.square(enPassantVictim);
+    }
+
+    private ChessGame.TeamColor opposite(ChessGame.TeamColor color) {
+        return color == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+    }
+}
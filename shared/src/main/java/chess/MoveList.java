@@ -0,0 +1,94 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A growable list of packed moves (see {@link Moves}) backed by an int array.
+ * <p>
+ * A search keeps one list per ply and clears it before each use, so after the first few positions
+ * generating moves allocates nothing.
+ */
+public class MoveList {
+
+    private int[] moves;
+    private int size;
+
+    public MoveList() {
+        this(64);
+    }
+
+    public MoveList(int capacity) {
+        moves = new int[Math.max(capacity, 1)];
+    }
+
+    /**
+     * Adds a packed move to the end of the list
+     *
+     * @param move packed move
+     */
+    public void add(int move) {
+        if (size == moves.length) {
+            moves = Arrays.copyOf(moves, size * 2);
+        }
+        moves[size++] = move;
+    }
+
+    /**
+     * @param index position in the list
+     * @return the packed move at that position
+     */
+    public int get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        return moves[index];
+    }
+
+    /**
+     * Replaces the packed move at a position, for reordering moves in place
+     *
+     * @param index position in the list
+     * @param move  packed move
+     */
+    public void set(int index, int move) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        moves[index] = move;
+    }
+
+    /**
+     * @return number of moves in the list
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if the list holds no moves
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Empties the list, keeping its buffer for reuse
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Unpacks every move into a ChessMove, for the public API
+     *
+     * @return ArrayList of ChessMoves in list order
+     */
+    public ArrayList<ChessMove> toChessMoves() {
+        var chessMoves = new ArrayList<ChessMove>(size);
+        for (int i = 0; i < size; i++) {
+            chessMoves.add(Moves.toChessMove(moves[i]));
+        }
+        return chessMoves;
+    }
+}
@@ -0,0 +1,112 @@
+package chess;
+
+/**
+ * Static helpers for moves packed into a single int, so move generation and search can work on
+ * primitive arrays instead of ChessMove objects.
+ * <p>
+ * Bits 0-5 hold the start square and bits 6-11 the end square (see {@link Bitboards} for numbering),
+ * bits 12-14 the promotion piece (PieceType ordinal + 1, or 0 for none), and the bits above that
+ * are flags describing the move. ChessMove is only created from a packed move at the API boundary.
+ */
+public final class Moves {
+
+    public static final int NONE = 0;
+
+    public static final int CAPTURE = 1 << 15;
+    public static final int DOUBLE_PUSH = 1 << 16;
+    public static final int EN_PASSANT = 1 << 17;
+    public static final int CASTLE = 1 << 18;
+
+    private static final int TO_SHIFT = 6;
+    private static final int PROMOTION_SHIFT = 12;
+    private static final int SQUARE_MASK = 0x3F;
+    private static final int PROMOTION_MASK = 0x7;
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    private Moves() {
+
+    }
+
+    /**
+     * Packs a move with no promotion
+     *
+     * @param from  start square index
+     * @param to    end square index
+     * @param flags any of CAPTURE, DOUBLE_PUSH, EN_PASSANT and CASTLE
+     * @return packed move
+     */
+    public static int encode(int from, int to, int flags) {
+        return from | to << TO_SHIFT | flags;
+    }
+
+    /**
+     * Packs a move
+     *
+     * @param from      start square index
+     * @param to        end square index
+     * @param promotion piece to promote to, or null
+     * @param flags     any of CAPTURE, DOUBLE_PUSH, EN_PASSANT and CASTLE
+     * @return packed move
+     */
+    public static int encode(int from, int to, ChessPiece.PieceType promotion, int flags) {
+        int promotionBits = promotion == null ? 0 : promotion.ordinal() + 1;
+        return encode(from, to, flags) | promotionBits << PROMOTION_SHIFT;
+    }
+
+    /**
+     * Packs a ChessMove. The result carries no flags, which makeMove works out from the board.
+     *
+     * @param move move to pack
+     * @return packed move
+     */
+    public static int of(ChessMove move) {
+        return encode(Bitboards.square(move.getStartPosition()), Bitboards.square(move.getEndPosition()),
+                move.getPromotionPiece(), 0);
+    }
+
+    /**
+     * @param move packed move
+     * @return start square index
+     */
+    public static int from(int move) {
+        return move & SQUARE_MASK;
+    }
+
+    /**
+     * @param move packed move
+     * @return end square index
+     */
+    public static int to(int move) {
+        return move >>> TO_SHIFT & SQUARE_MASK;
+    }
+
+    /**
+     * @param move packed move
+     * @return the piece to promote to, or null if the move is not a promotion
+     */
+    public static ChessPiece.PieceType promotion(int move) {
+        int promotionBits = move >>> PROMOTION_SHIFT & PROMOTION_MASK;
+        return promotionBits == 0 ? null : TYPES[promotionBits - 1];
+    }
+
+    /**
+     * Checks whether a packed move has a flag set
+     *
+     * @param move packed move
+     * @param flag one of CAPTURE, DOUBLE_PUSH, EN_PASSANT and CASTLE
+     * @return true if the flag is set, false otherwise
+     */
+    public static boolean has(int move, int flag) {
+        return (move & flag) != 0;
+    }
+
+    /**
+     * Unpacks a move into a ChessMove for the public API
+     *
+     * @param move packed move
+     * @return equivalent ChessMove
+     */
+    public static ChessMove toChessMove(int move) {
+        return new ChessMove(ChessPosition.of(from(move)), ChessPosition.of(to(move)), promotion(move));
+    }
+}
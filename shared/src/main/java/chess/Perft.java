@@ -0,0 +1,156 @@
+package chess;
+
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts the leaf nodes of the legal move tree to a fixed depth. The totals for well known positions
+ * are published, so a matching count is strong evidence the move generator, makeMove and unmakeMove
+ * are all correct, and nodes per second is a direct measure of their speed.
+ * <p>
+ * Counting plays moves on a copy of the board, so the game passed in is never changed. Divide mode
+ * gives the count below each root move, and works out the root moves in parallel on a ForkJoinPool.
+ */
+public final class Perft {
+
+    private Perft() {
+
+    }
+
+    /**
+     * Counts the positions reachable in exactly depth moves
+     *
+     * @param game  starting position
+     * @param depth number of moves to look ahead
+     * @return number of leaf nodes
+     */
+    public static long count(ChessGame game, int depth) {
+        var board = new ChessBoard();
+        board.setGivenBoard(game.getBoard());
+        return count(board, game.getTeamTurn(), depth);
+    }
+
+    /**
+     * Counts the positions reachable in exactly depth moves. The board is played on and restored.
+     *
+     * @param board      starting position
+     * @param sideToMove side to move first
+     * @param depth      number of moves to look ahead
+     * @return number of leaf nodes
+     */
+    public static long count(ChessBoard board, ChessGame.TeamColor sideToMove, int depth) {
+        if (depth <= 0) {
+            return 1;
+        }
+        MoveList[] lists = new MoveList[depth];
+        for (int i = 0; i < depth; i++) {
+            lists[i] = new MoveList();
+        }
+        return count(board, sideToMove, depth, new LegalMoveGenerator(), lists);
+    }
+
+    /**
+     * Counts the leaf nodes below each root move, splitting the root moves across a pool
+     *
+     * @param game  starting position
+     * @param depth number of moves to look ahead, including the root move
+     * @param pool  pool to run on
+     * @return node count below each root move, in generation order
+     */
+    public static Map<ChessMove, Long> divide(ChessGame game, int depth, ForkJoinPool pool) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("Divide needs a depth of at least 1");
+        }
+        ChessBoard root = game.getBoard();
+        ChessGame.TeamColor sideToMove = game.getTeamTurn();
+        var moves = new MoveList();
+        new LegalMoveGenerator().generate(root, sideToMove, root.getEnPassantSquare(sideToMove), moves);
+
+        List<RootMoveTask> tasks = new ArrayList<>(moves.size());
+        for (int i = 0; i < moves.size(); i++) {
+            tasks.add(new RootMoveTask(root, sideToMove, moves.get(i), depth - 1));
+        }
+        pool.invoke(new RecursiveTask<Void>() {
+            @Override
+            protected Void compute() {
+                invokeAll(tasks);
+                return null;
+            }
+        });
+
+        Map<ChessMove, Long> counts = new LinkedHashMap<>();
+        for (RootMoveTask task : tasks) {
+            counts.put(Moves.toChessMove(task.move), task.join());
+        }
+        return counts;
+    }
+
+    /**
+     * Recursive node count, generating into one preallocated list per ply
+     *
+     * @param board      position to count from, restored before returning
+     * @param sideToMove side to move
+     * @param depth      remaining depth, at least 1
+     * @param generator  move generator
+     * @param lists      one move list per remaining ply
+     * @return number of leaf nodes
+     */
+    private static long count(ChessBoard board, ChessGame.TeamColor sideToMove, int depth,
+                              LegalMoveGenerator generator, MoveList[] lists) {
+        MoveList moves = lists[depth - 1];
+        generator.generate(board, sideToMove, board.getEnPassantSquare(sideToMove), moves);
+        if (depth == 1) {
+            return moves.size();
+        }
+        ChessGame.TeamColor next = sideToMove == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            board.makeMove(moves.get(i));
+            nodes += count(board, next, depth - 1, generator, lists);
+            board.unmakeMove();
+        }
+        return nodes;
+    }
+
+    /**
+     * Counts the subtree below one root move on its own copy of the board
+     */
+    private static final class RootMoveTask extends RecursiveTask<Long> {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        // tasks are never serialized; the board is only shared between threads of one pool
+        private final transient ChessBoard root;
+        private final ChessGame.TeamColor sideToMove;
+        private final int move;
+        private final int depth;
+
+        /**
+         * @param root       position before the root move, only read
+         * @param sideToMove side making the root move
+         * @param move       packed root move
+         * @param depth      depth remaining after the root move
+         */
+        private RootMoveTask(ChessBoard root, ChessGame.TeamColor sideToMove, int move, int depth) {
+            this.root = root;
+            this.sideToMove = sideToMove;
+            this.move = move;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            var board = new ChessBoard();
+            board.setGivenBoard(root);
+            board.makeMove(move);
+            ChessGame.TeamColor next = sideToMove == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+            return count(board, next, depth);
+        }
+    }
+}
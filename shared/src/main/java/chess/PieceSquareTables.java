@@ -0,0 +1,172 @@
+package chess;
+
+/**
+ * Piece values and piece-square tables for a tapered evaluation, in centipawns.
+ * <p>
+ * Every piece on a square is worth its material value plus a bonus or penalty for where it stands, with one
+ * table for the middlegame and one for the endgame. The board keeps running sums of both as pieces are
+ * placed and cleared, the same way it keeps its Zobrist key, along with a game phase counted from the
+ * minor and major pieces left. An evaluation then blends the two sums by phase without looking at a single
+ * square. Scores are from white's point of view: black pieces count negatively, on the mirrored square.
+ */
+public final class PieceSquareTables {
+
+    // phase of the starting position; fewer pieces moves it towards 0, the pure endgame
+    public static final int MAX_PHASE = 24;
+
+    // indexed by PieceType ordinal: KING, QUEEN, BISHOP, KNIGHT, ROOK, PAWN
+    private static final int[] PIECE_VALUES = {0, 900, 330, 320, 500, 100};
+    private static final int[] PHASE_WEIGHTS = {0, 4, 1, 1, 2, 0};
+
+    // tables are written as a board is drawn, from white's side: the first row is row 8, a8 to h8
+    private static final int[] KING_MIDDLEGAME = {
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -20, -30, -30, -40, -40, -30, -30, -20,
+            -10, -20, -20, -20, -20, -20, -20, -10,
+            20, 20, 0, 0, 0, 0, 20, 20,
+            20, 30, 10, 0, 0, 10, 30, 20,
+    };
+    private static final int[] KING_ENDGAME = {
+            -50, -40, -30, -20, -20, -30, -40, -50,
+            -30, -20, -10, 0, 0, -10, -20, -30,
+            -30, -10, 20, 30, 30, 20, -10, -30,
+            -30, -10, 30, 40, 40, 30, -10, -30,
+            -30, -10, 30, 40, 40, 30, -10, -30,
+            -30, -10, 20, 30, 30, 20, -10, -30,
+            -30, -30, 0, 0, 0, 0, -30, -30,
+            -50, -30, -30, -30, -30, -30, -30, -50,
+    };
+    private static final int[] QUEEN = {
+            -20, -10, -10, -5, -5, -10, -10, -20,
+            -10, 0, 0, 0, 0, 0, 0, -10,
+            -10, 0, 5, 5, 5, 5, 0, -10,
+            -5, 0, 5, 5, 5, 5, 0, -5,
+            0, 0, 5, 5, 5, 5, 0, -5,
+            -10, 5, 5, 5, 5, 5, 0, -10,
+            -10, 0, 5, 0, 0, 0, 0, -10,
+            -20, -10, -10, -5, -5, -10, -10, -20,
+    };
+    private static final int[] BISHOP = {
+            -20, -10, -10, -10, -10, -10, -10, -20,
+            -10, 0, 0, 0, 0, 0, 0, -10,
+            -10, 0, 5, 10, 10, 5, 0, -10,
+            -10, 5, 5, 10, 10, 5, 5, -10,
+            -10, 0, 10, 10, 10, 10, 0, -10,
+            -10, 10, 10, 10, 10, 10, 10, -10,
+            -10, 5, 0, 0, 0, 0, 5, -10,
+            -20, -10, -10, -10, -10, -10, -10, -20,
+    };
+    private static final int[] KNIGHT = {
+            -50, -40, -30, -30, -30, -30, -40, -50,
+            -40, -20, 0, 0, 0, 0, -20, -40,
+            -30, 0, 10, 15, 15, 10, 0, -30,
+            -30, 5, 15, 20, 20, 15, 5, -30,
+            -30, 0, 15, 20, 20, 15, 0, -30,
+            -30, 5, 10, 15, 15, 10, 5, -30,
+            -40, -20, 0, 5, 5, 0, -20, -40,
+            -50, -40, -30, -30, -30, -30, -40, -50,
+    };
+    private static final int[] ROOK = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            5, 10, 10, 10, 10, 10, 10, 5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            0, 0, 0, 5, 5, 0, 0, 0,
+    };
+    private static final int[] PAWN_MIDDLEGAME = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            50, 50, 50, 50, 50, 50, 50, 50,
+            10, 10, 20, 30, 30, 20, 10, 10,
+            5, 5, 10, 25, 25, 10, 5, 5,
+            0, 0, 0, 20, 20, 0, 0, 0,
+            5, -5, -10, 0, 0, -10, -5, 5,
+            5, 10, 10, -20, -20, 10, 10, 5,
+            0, 0, 0, 0, 0, 0, 0, 0,
+    };
+    // with the pieces gone a passed pawn is worth more the closer it gets, on any file
+    private static final int[] PAWN_ENDGAME = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            80, 80, 80, 80, 80, 80, 80, 80,
+            50, 50, 50, 50, 50, 50, 50, 50,
+            30, 30, 30, 30, 30, 30, 30, 30,
+            20, 20, 20, 20, 20, 20, 20, 20,
+            10, 10, 10, 10, 10, 10, 10, 10,
+            0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0,
+    };
+
+    // value plus table, signed for white, by piece index (see Bitboards.pieceIndex) and square
+    private static final int[][] MIDDLEGAME = new int[12][64];
+    private static final int[][] ENDGAME = new int[12][64];
+
+    static {
+        int[][] middlegame = {KING_MIDDLEGAME, QUEEN, BISHOP, KNIGHT, ROOK, PAWN_MIDDLEGAME};
+        int[][] endgame = {KING_ENDGAME, QUEEN, BISHOP, KNIGHT, ROOK, PAWN_ENDGAME};
+        for (int type = 0; type < 6; type++) {
+            for (int square = 0; square < 64; square++) {
+                // square 0 is a1, the first table entry is a8, so white flips the row and black reads it as is
+                MIDDLEGAME[type][square] = PIECE_VALUES[type] + middlegame[type][square ^ 56];
+                ENDGAME[type][square] = PIECE_VALUES[type] + endgame[type][square ^ 56];
+                MIDDLEGAME[6 + type][square] = -(PIECE_VALUES[type] + middlegame[type][square]);
+                ENDGAME[6 + type][square] = -(PIECE_VALUES[type] + endgame[type][square]);
+            }
+        }
+    }
+
+    private PieceSquareTables() {
+
+    }
+
+    /**
+     * @param type piece type
+     * @return the piece's material value in centipawns, 0 for the king
+     */
+    public static int value(ChessPiece.PieceType type) {
+        return PIECE_VALUES[type.ordinal()];
+    }
+
+    /**
+     * @param pieceIndex piece index, see Bitboards.pieceIndex
+     * @param square     square index
+     * @return middlegame worth of the piece on the square, positive for white and negative for black
+     */
+    public static int middlegame(int pieceIndex, int square) {
+        return MIDDLEGAME[pieceIndex][square];
+    }
+
+    /**
+     * @param pieceIndex piece index, see Bitboards.pieceIndex
+     * @param square     square index
+     * @return endgame worth of the piece on the square, positive for white and negative for black
+     */
+    public static int endgame(int pieceIndex, int square) {
+        return ENDGAME[pieceIndex][square];
+    }
+
+    /**
+     * @param pieceIndex piece index, see Bitboards.pieceIndex
+     * @return how much the piece counts towards the game phase
+     */
+    public static int phase(int pieceIndex) {
+        return PHASE_WEIGHTS[pieceIndex % 6];
+    }
+
+    /**
+     * Blends middlegame and endgame scores by how many pieces are left
+     *
+     * @param middlegame middlegame score
+     * @param endgame    endgame score
+     * @param phase      game phase, capped at MAX_PHASE since promotions can push it higher
+     * @return the tapered score
+     */
+    public static int taper(int middlegame, int endgame, int phase) {
+        int weight = Math.min(phase, MAX_PHASE);
+        return (middlegame * weight + endgame * (MAX_PHASE - weight)) / MAX_PHASE;
+    }
+}
@@ -1,6 +1,6 @@
 package chess;
 
-import java.util.Collection;
+import chess.movemanagers.AttackTables;
 
 public class ValidMoveFilter {
     public ValidMoveFilter() {
@@ -15,21 +15,58 @@ public class ValidMoveFilter {
      * @return true if the king is in check, false otherwise
      */
     public boolean checkIfInCheck(ChessBoard board, ChessPosition kingPosition, ChessGame.TeamColor kingColor) {
-        for (int i = 1; i < 9; i++) {
-            for (int j = 1; j < 9; j++) {
-                ChessPosition currentPosition = new ChessPosition(i, j);
-                ChessPiece currentPiece = board.getPiece(currentPosition);
-                if (currentPiece == null || currentPiece.getTeamColor() == kingColor) {
-                    continue;
-                }
-                Collection<ChessMove> currentMoves = currentPiece.pieceMoves(board, currentPosition);
-                for (ChessMove move : currentMoves) {
-                    if (move.getEndPosition().equals(kingPosition)) {
-                        return true;
-                    }
-                }
-            }
+        return isSquareAttacked(board, Bitboards.square(kingPosition), opposite(kingColor));
+    }
+
+    /**
+     * Determines whether any piece of the given color attacks a square. Works outward from the square:
+     * a rook/queen must sit on one of its rook rays, a bishop/queen on one of its diagonals, and so on,
+     * so each piece type costs a single table lookup and mask test.
+     *
+     * @param board   current chessboard
+     * @param square  square index being tested
+     * @param byColor color of the attacking side
+     * @return true if the square is attacked, false otherwise
+     */
+    public boolean isSquareAttacked(ChessBoard board, int square, ChessGame.TeamColor byColor) {
+        // a pawn of byColor attacks the square exactly when a pawn of the other color on the square would attack it
+        if ((AttackTables.pawnAttacks(square, opposite(byColor)) & board.getPieceBitboard(byColor, ChessPiece.PieceType.PAWN)) != 0) {
+            return true;
+        }
+        if ((AttackTables.knightAttacks(square) & board.getPieceBitboard(byColor, ChessPiece.PieceType.KNIGHT)) != 0) {
+            return true;
+        }
+        if ((AttackTables.kingAttacks(square) & board.getPieceBitboard(byColor, ChessPiece.PieceType.KING)) != 0) {
+            return true;
+        }
+
+        long occupancy = board.getOccupancy();
+        long queens = board.getPieceBitboard(byColor, ChessPiece.PieceType.QUEEN);
+        long diagonalAttackers = queens | board.getPieceBitboard(byColor, ChessPiece.PieceType.BISHOP);
+        if ((AttackTables.bishopAttacks(square, occupancy) & diagonalAttackers) != 0) {
+            return true;
         }
-        return false;
+        long straightAttackers = queens | board.getPieceBitboard(byColor, ChessPiece.PieceType.ROOK);
+        return (AttackTables.rookAttacks(square, occupancy) & straightAttackers) != 0;
+    }
+
+    /**
+     * Determines whether any piece of the given color attacks a position
+     *
+     * @param board    current chessboard
+     * @param position position being tested
+     * @param byColor  color of the attacking side
+     * @return true if the position is attacked, false otherwise
+     */
+    public boolean isSquareAttacked(ChessBoard board, ChessPosition position, ChessGame.TeamColor byColor) {
+        return isSquareAttacked(board, Bitboards.square(position), byColor);
+    }
+
+    /**
+     * @param color a team color
+     * @return the other team's color
+     */
+    private ChessGame.TeamColor opposite(ChessGame.TeamColor color) {
+        return color == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
     }
 }
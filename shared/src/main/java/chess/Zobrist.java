@@ -0,0 +1,91 @@
+package chess;
+
+import java.util.Random;
+
+/**
+ * Random keys for Zobrist hashing.
+ * <p>
+ * A position's key is the XOR of one key per piece on the board, plus keys for the side to move,
+ * each castling right still held and the file of a pawn that can be captured en passant. Moving a
+ * piece is then two XORs rather than a rescan of the board. The keys come from a fixed seed, so a
+ * key means the same position in every JVM and can be stored alongside saved games.
+ */
+public final class Zobrist {
+
+    private static final long SEED = 0x5EED_C0FFEEL;
+
+    private static final long[][] PIECE_KEYS = new long[12][64];
+    private static final long SIDE_KEY;
+    private static final long[] CASTLING_KEYS = new long[4];
+    private static final long[] EN_PASSANT_KEYS = new long[8];
+    // XOR of CASTLING_KEYS for every combination of the four rights
+    private static final long[] CASTLING_RIGHTS_KEYS = new long[16];
+
+    static {
+        Random random = new Random(SEED);
+        for (long[] pieceKeys : PIECE_KEYS) {
+            for (int square = 0; square < 64; square++) {
+                pieceKeys[square] = random.nextLong();
+            }
+        }
+        SIDE_KEY = random.nextLong();
+        for (int i = 0; i < CASTLING_KEYS.length; i++) {
+            CASTLING_KEYS[i] = random.nextLong();
+        }
+        for (int i = 0; i < EN_PASSANT_KEYS.length; i++) {
+            EN_PASSANT_KEYS[i] = random.nextLong();
+        }
+        for (int rights = 0; rights < CASTLING_RIGHTS_KEYS.length; rights++) {
+            for (int i = 0; i < CASTLING_KEYS.length; i++) {
+                if ((rights & 1 << i) != 0) {
+                    CASTLING_RIGHTS_KEYS[rights] ^= CASTLING_KEYS[i];
+                }
+            }
+        }
+    }
+
+    private Zobrist() {
+
+    }
+
+    /**
+     * @param piece  piece on the square
+     * @param square square index
+     * @return the key for that piece standing on that square
+     */
+    public static long piece(ChessPiece piece, int square) {
+        return PIECE_KEYS[Bitboards.pieceIndex(piece.getTeamColor(), piece.getPieceType())][square];
+    }
+
+    /**
+     * @return the key XORed in when black is to move
+     */
+    public static long blackToMove() {
+        return SIDE_KEY;
+    }
+
+    /**
+     * @param color    side holding the right
+     * @param kingside true for the kingside right, false for queenside
+     * @return the key for one castling right
+     */
+    public static long castling(ChessGame.TeamColor color, boolean kingside) {
+        return CASTLING_KEYS[color.ordinal() * 2 + (kingside ? 0 : 1)];
+    }
+
+    /**
+     * @param rights castling rights bits, as in ChessBoard.getCastlingRights
+     * @return the combined key for every right that is set
+     */
+    public static long castlingRights(int rights) {
+        return CASTLING_RIGHTS_KEYS[rights];
+    }
+
+    /**
+     * @param column column (1-8) of the pawn that can be captured en passant, or 0 for none
+     * @return the key for en passant on that file, or 0 for none
+     */
+    public static long enPassant(int column) {
+        return column == 0 ? 0L : EN_PASSANT_KEYS[column - 1];
+    }
+}
@@ -0,0 +1,81 @@
+package chess.engine;
+
+import chess.Bitboards;
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.PieceSquareTables;
+
+/**
+ * Scores a position in centipawns from the point of view of the side to move, so that negamax
+ * can negate it at every ply. The score is material plus piece-square bonuses, tapered between
+ * middlegame and endgame tables by the pieces left (see PieceSquareTables).
+ * <p>
+ * The board keeps the middlegame sum, the endgame sum and the phase up to date as moves are made
+ * and unmade, so evaluate only blends three ints. evaluateByScan works the same score out from
+ * the piece bitboards, as a check on the running sums.
+ */
+public class Evaluator {
+
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    public Evaluator() {
+
+    }
+
+    /**
+     * @param type piece type
+     * @return the piece's material value in centipawns, 0 for the king
+     */
+    public static int value(ChessPiece.PieceType type) {
+        return PieceSquareTables.value(type);
+    }
+
+    /**
+     * @param board      position to score
+     * @param sideToMove side the score is for
+     * @return positive if the side to move is ahead, negative if behind
+     */
+    public int evaluate(ChessBoard board, ChessGame.TeamColor sideToMove) {
+        int score = whiteScore(board);
+        return sideToMove == ChessGame.TeamColor.WHITE ? score : -score;
+    }
+
+    /**
+     * Scores a position for display, where the side to move doesn't matter
+     *
+     * @param board position to score
+     * @return positive if white is ahead, negative if black is
+     */
+    public int whiteScore(ChessBoard board) {
+        return PieceSquareTables.taper(board.getMiddlegameScore(), board.getEndgameScore(), board.getGamePhase());
+    }
+
+    /**
+     * Works the evaluation out from every piece on the board instead of the board's running sums
+     *
+     * @param board      position to score
+     * @param sideToMove side the score is for
+     * @return the same score as evaluate
+     */
+    public int evaluateByScan(ChessBoard board, ChessGame.TeamColor sideToMove) {
+        int middlegame = 0;
+        int endgame = 0;
+        int phase = 0;
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (ChessPiece.PieceType type : TYPES) {
+                int index = Bitboards.pieceIndex(color, type);
+                long pieces = board.getPieceBitboard(color, type);
+                while (pieces != 0) {
+                    int square = Long.numberOfTrailingZeros(pieces);
+                    pieces &= pieces - 1;
+                    middlegame += PieceSquareTables.middlegame(index, square);
+                    endgame += PieceSquareTables.endgame(index, square);
+                    phase += PieceSquareTables.phase(index);
+                }
+            }
+        }
+        int score = PieceSquareTables.taper(middlegame, endgame, phase);
+        return sideToMove == ChessGame.TeamColor.WHITE ? score : -score;
+    }
+}
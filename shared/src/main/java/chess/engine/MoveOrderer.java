@@ -0,0 +1,318 @@
+package chess.engine;
+
+import chess.*;
+import chess.movemanagers.AttackTables;
+
+import java.util.Arrays;
+
+/**
+ * Puts the moves at each ply of a search in the order most likely to cause a cutoff early:
+ * <ol>
+ *     <li>the transposition table's move</li>
+ *     <li>captures that don't lose material by static exchange evaluation, and promotions, most valuable
+ *     victim first and least valuable attacker first among those</li>
+ *     <li>the two killer moves, quiet moves that caused a cutoff at the same ply elsewhere in the tree</li>
+ *     <li>captures that lose material, which still refute a bad move more often than a random quiet move</li>
+ *     <li>other quiet moves, by how often the same piece move has caused a cutoff before (the history table)</li>
+ * </ol>
+ * Each ply's moves are scored once into a preallocated array and picked lazily, so the moves after a cutoff
+ * are never sorted. Killers and history live in flat int arrays, so ordering allocates nothing per node.
+ */
+class MoveOrderer {
+
+    // ordering score tiers; a tier's own score is added on top
+    private static final int HASH_MOVE = Integer.MAX_VALUE;
+    private static final int GOOD_CAPTURE = 1 << 30;
+    private static final int FIRST_KILLER = (1 << 29) + 1;
+    private static final int SECOND_KILLER = 1 << 29;
+    private static final int BAD_CAPTURE = 1 << 28;
+    // history scores are halved once any of them passes this, keeping them below the bad capture tier
+    private static final int HISTORY_LIMIT = 1 << 20;
+
+    // no position has more legal moves than this
+    private static final int MAX_MOVES = 256;
+    private static final int KILLERS_PER_PLY = 2;
+    // exchange value of a king, so that trading one away never looks good
+    private static final int KING_EXCHANGE_VALUE = 20000;
+    // least valuable first, the order attackers join an exchange
+    private static final ChessPiece.PieceType[] EXCHANGE_ORDER = {
+            ChessPiece.PieceType.PAWN, ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.BISHOP,
+            ChessPiece.PieceType.ROOK, ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.KING
+    };
+
+    private final ChessBoard board;
+    private final LegalMoveGenerator generator;
+    private final int[][] scores;
+    // KILLERS_PER_PLY slots per ply, newest first
+    private final int[] killers;
+    // butterfly table indexed by color, from square and to square
+    private final int[] history = new int[2 * 64 * 64];
+    // material balance after each capture of an exchange, reused by staticExchange
+    private final int[] gains = new int[33];
+
+    /**
+     * @param board     board the search plays on
+     * @param generator generator used for attack queries
+     * @param maxPly    deepest ply the search reaches
+     */
+    MoveOrderer(ChessBoard board, LegalMoveGenerator generator, int maxPly) {
+        this.board = board;
+        this.generator = generator;
+        scores = new int[maxPly + 1][MAX_MOVES];
+        killers = new int[(maxPly + 1) * KILLERS_PER_PLY];
+    }
+
+    /**
+     * Forgets the killers and ages the history, ahead of a new search. History is kept at half strength,
+     * since the same piece moves tend to be good in the positions that follow.
+     */
+    void newSearch() {
+        Arrays.fill(killers, 0);
+        for (int i = 0; i < history.length; i++) {
+            history[i] >>= 1;
+        }
+    }
+
+    /**
+     * Scores every move at a ply, ahead of picking them with pickNext
+     *
+     * @param moves      moves generated for the current board
+     * @param ply        distance from the root
+     * @param hashMove   best move stored for this position, or 0
+     * @param sideToMove side making the moves
+     */
+    void score(MoveList moves, int ply, int hashMove, ChessGame.TeamColor sideToMove) {
+        int[] plyScores = scores[ply];
+        int killer = ply * KILLERS_PER_PLY;
+        int color = sideToMove.ordinal();
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            int score;
+            if (move == hashMove) {
+                score = HASH_MOVE;
+            } else if (Moves.has(move, Moves.CAPTURE)) {
+                // assumed good until pickNext reaches it and checks the exchange
+                score = GOOD_CAPTURE + mvvLva(move);
+            } else if (Moves.promotion(move) != null) {
+                score = GOOD_CAPTURE + 10 * Evaluator.value(Moves.promotion(move));
+            } else if (move == killers[killer]) {
+                score = FIRST_KILLER;
+            } else if (move == killers[killer + 1]) {
+                score = SECOND_KILLER;
+            } else {
+                score = history[historyIndex(color, move)];
+            }
+            plyScores[i] = score;
+        }
+    }
+
+    /**
+     * Scores the captures and promotions at a quiescence ply by MVV-LVA alone, leaving quiet moves last.
+     * Exchange evaluation costs more there than the few nodes it saves.
+     *
+     * @param moves moves generated for the current board
+     * @param ply   distance from the root
+     */
+    void scoreCaptures(MoveList moves, int ply) {
+        int[] plyScores = scores[ply];
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            int score = -1;
+            if (Moves.has(move, Moves.CAPTURE)) {
+                score = mvvLva(move);
+            } else if (Moves.promotion(move) != null) {
+                score = 10 * Evaluator.value(Moves.promotion(move));
+            }
+            plyScores[i] = score;
+        }
+    }
+
+    /**
+     * Swaps the highest scored remaining move into position i and returns it. A capture picked from the
+     * good capture tier that turns out to lose material is moved down to the bad capture tier instead,
+     * and the pick is made again, so the exchange is only worked out for captures the search reaches.
+     *
+     * @param moves moves scored with score at this ply
+     * @param ply   distance from the root
+     * @param i     index of the next move to search
+     * @return the move now at index i
+     */
+    int pickNext(MoveList moves, int ply, int i) {
+        int[] plyScores = scores[ply];
+        int best;
+        int move;
+        while (true) {
+            best = i;
+            for (int j = i + 1; j < moves.size(); j++) {
+                if (plyScores[j] > plyScores[best]) {
+                    best = j;
+                }
+            }
+            move = moves.get(best);
+            int score = plyScores[best];
+            if (score < GOOD_CAPTURE || score == HASH_MOVE || !Moves.has(move, Moves.CAPTURE) || isWinningCapture(move)) {
+                break;
+            }
+            plyScores[best] = score - GOOD_CAPTURE + BAD_CAPTURE;
+        }
+        if (best != i) {
+            moves.set(best, moves.get(i));
+            moves.set(i, move);
+            int score = plyScores[best];
+            plyScores[best] = plyScores[i];
+            plyScores[i] = score;
+        }
+        return move;
+    }
+
+    /**
+     * Remembers a move that caused a beta cutoff. Only quiet moves are kept, since captures are
+     * already ordered well by the exchange they start.
+     *
+     * @param move       packed move
+     * @param ply        distance from the root
+     * @param depth      remaining depth of the cutoff, deeper cutoffs counting for more
+     * @param sideToMove side that made the move
+     */
+    void recordCutoff(int move, int ply, int depth, ChessGame.TeamColor sideToMove) {
+        if (Moves.has(move, Moves.CAPTURE) || Moves.promotion(move) != null) {
+            return;
+        }
+        int killer = ply * KILLERS_PER_PLY;
+        if (killers[killer] != move) {
+            killers[killer + 1] = killers[killer];
+            killers[killer] = move;
+        }
+        int index = historyIndex(sideToMove.ordinal(), move);
+        history[index] += depth * depth;
+        if (history[index] > HISTORY_LIMIT) {
+            for (int i = 0; i < history.length; i++) {
+                history[i] >>= 1;
+            }
+        }
+    }
+
+    /**
+     * Works out what a capture wins or loses once every piece attacking the square has had its turn to
+     * recapture, least valuable first, with either side free to stop when going on would lose more.
+     * Pieces behind a capturer join in as the squares in front of them empty.
+     *
+     * @param move packed capture
+     * @return material won by the side making the capture, negative if it loses material
+     */
+    int staticExchange(int move) {
+        int from = Moves.from(move);
+        int to = Moves.to(move);
+        ChessPiece attacker = board.getPiece(from);
+        ChessPiece victim = board.getPiece(to);
+        long occupancy = board.getOccupancy() & ~Bitboards.bit(from);
+        if (victim == null) {
+            // en passant: the captured pawn is beside the target square, not on it
+            occupancy &= ~Bitboards.bit(to + (attacker.getTeamColor() == ChessGame.TeamColor.WHITE ? -8 : 8));
+        }
+        long diagonal = board.getPieceBitboard(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP)
+                | board.getPieceBitboard(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP)
+                | board.getPieceBitboard(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN)
+                | board.getPieceBitboard(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN);
+        long straight = board.getPieceBitboard(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK)
+                | board.getPieceBitboard(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK)
+                | board.getPieceBitboard(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN)
+                | board.getPieceBitboard(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN);
+        long attackers = (generator.attackersTo(board, to, ChessGame.TeamColor.WHITE, occupancy)
+                | generator.attackersTo(board, to, ChessGame.TeamColor.BLACK, occupancy)) & occupancy;
+
+        int depth = 0;
+        gains[0] = victim == null ? Evaluator.value(ChessPiece.PieceType.PAWN) : Evaluator.value(victim.getPieceType());
+        int onSquare = exchangeValue(attacker.getPieceType());
+        ChessGame.TeamColor side = opposite(attacker.getTeamColor());
+        while (depth < gains.length - 1) {
+            // what side would be up if it took the piece now on the square, before knowing whether it can
+            depth++;
+            gains[depth] = onSquare - gains[depth - 1];
+            if (Math.max(-gains[depth - 1], gains[depth]) < 0) {
+                // neither taking nor stopping changes who comes out ahead
+                break;
+            }
+            long ours = attackers & board.getTeamOccupancy(side);
+            if (ours == 0) {
+                break;
+            }
+            ChessPiece.PieceType type = null;
+            long piece = 0;
+            for (ChessPiece.PieceType candidate : EXCHANGE_ORDER) {
+                long ofType = ours & board.getPieceBitboard(side, candidate);
+                if (ofType != 0) {
+                    type = candidate;
+                    piece = ofType & -ofType;
+                    break;
+                }
+            }
+            occupancy &= ~piece;
+            // only a slider can be uncovered behind the piece that just left
+            if (type == ChessPiece.PieceType.PAWN || type == ChessPiece.PieceType.BISHOP || type == ChessPiece.PieceType.QUEEN) {
+                attackers |= AttackTables.bishopAttacks(to, occupancy) & diagonal;
+            }
+            if (type == ChessPiece.PieceType.ROOK || type == ChessPiece.PieceType.QUEEN) {
+                attackers |= AttackTables.rookAttacks(to, occupancy) & straight;
+            }
+            attackers &= occupancy;
+            onSquare = exchangeValue(type);
+            side = opposite(side);
+        }
+        // the last gain was never realised, so the exchange is rolled back from the one before it
+        while (--depth > 0) {
+            gains[depth - 1] = -Math.max(-gains[depth - 1], gains[depth]);
+        }
+        return gains[0];
+    }
+
+    /**
+     * @param move packed capture
+     * @return true unless the capture loses material; taking a piece worth at least the capturer can't,
+     * so only the rest pay for a full exchange evaluation
+     */
+    private boolean isWinningCapture(int move) {
+        ChessPiece victim = board.getPiece(Moves.to(move));
+        int victimValue = victim == null ? Evaluator.value(ChessPiece.PieceType.PAWN) : Evaluator.value(victim.getPieceType());
+        if (victimValue >= exchangeValue(board.getPiece(Moves.from(move)).getPieceType())) {
+            return true;
+        }
+        return staticExchange(move) >= 0;
+    }
+
+    /**
+     * @param move packed capture
+     * @return most valuable victim, least valuable attacker score, higher first
+     */
+    private int mvvLva(int move) {
+        ChessPiece victim = board.getPiece(Moves.to(move));
+        // an en passant capture lands on an empty square
+        int victimValue = victim == null ? Evaluator.value(ChessPiece.PieceType.PAWN) : Evaluator.value(victim.getPieceType());
+        return 10 * victimValue - exchangeValue(board.getPiece(Moves.from(move)).getPieceType()) / 100;
+    }
+
+    /**
+     * @param type piece type
+     * @return the piece's value in an exchange, the king's high enough that losing it is never worth it
+     */
+    private static int exchangeValue(ChessPiece.PieceType type) {
+        return type == ChessPiece.PieceType.KING ? KING_EXCHANGE_VALUE : Evaluator.value(type);
+    }
+
+    /**
+     * @param color color ordinal of the side moving
+     * @param move  packed move
+     * @return index of the move in the history table
+     */
+    private static int historyIndex(int color, int move) {
+        return (color << 12) | (Moves.from(move) << 6) | Moves.to(move);
+    }
+
+    /**
+     * @param color a team color
+     * @return the other team's color
+     */
+    private static ChessGame.TeamColor opposite(ChessGame.TeamColor color) {
+        return color == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+    }
+}
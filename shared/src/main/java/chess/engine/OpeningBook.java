@@ -0,0 +1,183 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.Moves;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * Read-only opening book: the moves played from known positions, with a weight for how good each has been.
+ * <p>
+ * The file is an 8 byte header (the magic number, then the entry count) followed by 16 byte entries of
+ * position key (a long, ChessGame.getZobristKey), move (an int, bits 0-14 of the packed move) and weight
+ * (an int), sorted by key and then by weight, highest first. OpeningBookBuilder writes it. The file is
+ * mapped into memory rather than read, and looked up by binary search straight from the mapping, so
+ * opening a book copies nothing onto the heap and the operating system shares its pages.
+ * <p>
+ * Lookups only use absolute reads of the mapping, so one OpeningBook can be shared by every thread.
+ */
+public final class OpeningBook {
+
+    // "CBK1"
+    static final int MAGIC = 0x43424B31;
+    static final int HEADER_BYTES = 8;
+    static final int ENTRY_BYTES = 16;
+    // from, to and promotion bits of a packed move; flags are worked out again when the move is played
+    static final int MOVE_MASK = (1 << 15) - 1;
+
+    private static final OpeningBook EMPTY = new OpeningBook(ByteBuffer.allocate(0), 0);
+
+    private final ByteBuffer entries;
+    private final int size;
+
+    /**
+     * @param entries buffer holding the entries, starting at index 0
+     * @param size    number of entries
+     */
+    private OpeningBook(ByteBuffer entries, int size) {
+        this.entries = entries;
+        this.size = size;
+    }
+
+    /**
+     * Maps a book file into memory. The file is closed straight away; the mapping stays valid
+     * until the book is garbage collected.
+     *
+     * @param path book file written by OpeningBookBuilder
+     * @return the book
+     * @throws IOException              if the file can't be read
+     * @throws IllegalArgumentException if the file is not a book
+     */
+    public static OpeningBook open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < HEADER_BYTES) {
+                throw new IllegalArgumentException("Not an opening book: " + path);
+            }
+            MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            int count = mapping.getInt(4);
+            if (mapping.getInt(0) != MAGIC || count < 0 || HEADER_BYTES + (long) count * ENTRY_BYTES != length) {
+                throw new IllegalArgumentException("Not an opening book: " + path);
+            }
+            return new OpeningBook(mapping.slice(HEADER_BYTES, count * ENTRY_BYTES), count);
+        }
+    }
+
+    /**
+     * @return a book with no positions in it, for when no book file is configured
+     */
+    public static OpeningBook empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @return number of entries in the book
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Looks the game's position up
+     *
+     * @param game position to look up
+     * @return the book moves that are legal in the position, highest weight first, empty if it's not in the book
+     */
+    public List<BookMove> moves(ChessGame game) {
+        List<BookMove> moves = new ArrayList<>();
+        long key = game.getZobristKey();
+        Collection<ChessMove> legal = null;
+        for (int i = firstIndex(key); i < size && keyAt(i) == key; i++) {
+            if (legal == null) {
+                legal = game.legalMoves(game.getTeamTurn());
+            }
+            ChessMove move = Moves.toChessMove(entries.getInt(i * ENTRY_BYTES + 8) & MOVE_MASK);
+            // another position with the same key would leave moves that don't fit this one
+            if (legal.contains(move)) {
+                moves.add(new BookMove(move, entries.getInt(i * ENTRY_BYTES + 12)));
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * Picks a book move at random, in proportion to the moves' weights, so play varies from game to game
+     *
+     * @param game   position to look up
+     * @param random source of randomness
+     * @return a book move, or null if the position is not in the book
+     */
+    public ChessMove pick(ChessGame game, RandomGenerator random) {
+        List<BookMove> moves = moves(game);
+        long total = 0;
+        for (BookMove move : moves) {
+            total += move.weight();
+        }
+        if (total <= 0) {
+            return moves.isEmpty() ? null : moves.get(0).move();
+        }
+        long roll = random.nextLong(total);
+        for (BookMove move : moves) {
+            roll -= move.weight();
+            if (roll < 0) {
+                return move.move();
+            }
+        }
+        return moves.get(0).move();
+    }
+
+    /**
+     * @param game position to look up
+     * @return the highest weighted book move, or null if the position is not in the book
+     */
+    public ChessMove bestMove(ChessGame game) {
+        List<BookMove> moves = moves(game);
+        return moves.isEmpty() ? null : moves.get(0).move();
+    }
+
+    /**
+     * @param key position key
+     * @return index of the first entry with a key of at least key, or size if there is none
+     */
+    private int firstIndex(long key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keyAt(mid) < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param index entry index
+     * @return the entry's position key
+     */
+    private long keyAt(int index) {
+        return entries.getLong(index * ENTRY_BYTES);
+    }
+
+    /**
+     * A move from the book and its weight
+     *
+     * @param move   the move
+     * @param weight how strongly the book recommends it, relative to the other moves from the same position
+     */
+    public record BookMove(ChessMove move, int weight) {
+
+    }
+}
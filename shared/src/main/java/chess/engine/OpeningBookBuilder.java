@@ -0,0 +1,427 @@
+package chess.engine;
+
+import chess.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the moves played in the first plies of many games and writes them out as an OpeningBook file.
+ * <p>
+ * Games come either as move lists, each move weighted 1, or as PGN, where the winner's moves count 2,
+ * both sides' moves in a draw or unfinished game count 1 and the loser's moves aren't added, so the book
+ * leans towards moves that have done well. A PGN game with a move that can't be read or isn't legal is
+ * added up to that move and then skipped.
+ * <p>
+ * Run with: java -cp shared.jar chess.engine.OpeningBookBuilder games.pgn book.bin [maxPly]
+ */
+public class OpeningBookBuilder {
+
+    public static final int DEFAULT_MAX_PLY = 16;
+
+    private static final int WIN_WEIGHT = 2;
+    private static final int DRAW_WEIGHT = 1;
+
+    private final int maxPly;
+    // weight of each move from each position, the move's bits as in the book file
+    private final Map<Long, Map<Integer, Integer>> weights = new HashMap<>();
+    private final LegalMoveGenerator generator = new LegalMoveGenerator();
+    private final MoveList moves = new MoveList();
+    private int games;
+    private int skippedGames;
+
+    /**
+     * @param maxPly number of plies from the start of each game to add
+     */
+    public OpeningBookBuilder(int maxPly) {
+        if (maxPly < 1) {
+            throw new IllegalArgumentException("An opening book needs at least one ply");
+        }
+        this.maxPly = maxPly;
+    }
+
+    /**
+     * Adds one move from one position
+     *
+     * @param game   position the move is played from
+     * @param move   move played
+     * @param weight amount to add to the move's weight
+     */
+    public void add(ChessGame game, ChessMove move, int weight) {
+        add(game.getZobristKey(), Moves.of(move), weight);
+    }
+
+    /**
+     * Adds the first plies of a game played from the starting position, each move weighted 1
+     *
+     * @param gameMoves the game's moves in order
+     * @throws IllegalArgumentException if a move is not legal
+     */
+    public void addGame(List<ChessMove> gameMoves) {
+        var board = new ChessBoard();
+        board.resetBoard();
+        ChessGame.TeamColor sideToMove = ChessGame.TeamColor.WHITE;
+        for (int ply = 0; ply < Math.min(maxPly, gameMoves.size()); ply++) {
+            int move = legalMove(board, sideToMove, Moves.of(gameMoves.get(ply)));
+            if (move == 0) {
+                throw new IllegalArgumentException("Illegal book move " + gameMoves.get(ply) + " at ply " + (ply + 1));
+            }
+            add(key(board, sideToMove), move, 1);
+            board.makeMove(move);
+            sideToMove = opposite(sideToMove);
+        }
+        games++;
+    }
+
+    /**
+     * Adds every game in a PGN file. Only games from the standard starting position are read.
+     *
+     * @param reader PGN text
+     * @throws IOException if the text can't be read
+     */
+    public void addPgn(Reader reader) throws IOException {
+        var lines = new BufferedReader(reader);
+        var movetext = new StringBuilder();
+        boolean customStart = false;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            line = line.strip();
+            if (line.startsWith("[")) {
+                if (!movetext.isEmpty()) {
+                    addPgnGame(movetext, customStart);
+                    movetext.setLength(0);
+                    customStart = false;
+                }
+                customStart |= line.startsWith("[FEN ") || line.startsWith("[SetUp \"1\"");
+            } else if (!line.startsWith("%")) {
+                // a semicolon comments out the rest of the line
+                int comment = line.indexOf(';');
+                movetext.append(comment >= 0 ? line.substring(0, comment) : line).append(' ');
+            }
+        }
+        if (!movetext.isEmpty()) {
+            addPgnGame(movetext, customStart);
+        }
+    }
+
+    /**
+     * @return number of games added
+     */
+    public int games() {
+        return games;
+    }
+
+    /**
+     * @return number of PGN games that had to be cut short or left out
+     */
+    public int skippedGames() {
+        return skippedGames;
+    }
+
+    /**
+     * Writes the book out, replacing any existing file
+     *
+     * @param path file to write
+     * @return number of entries written
+     * @throws IOException if the file can't be written
+     */
+    public int write(Path path) throws IOException {
+        int count = 0;
+        for (Map<Integer, Integer> positionMoves : weights.values()) {
+            count += positionMoves.size();
+        }
+        long[] keys = new long[weights.size()];
+        int k = 0;
+        for (long key : weights.keySet()) {
+            keys[k++] = key;
+        }
+        Arrays.sort(keys);
+
+        ByteBuffer buffer = ByteBuffer.allocate(OpeningBook.HEADER_BYTES + count * OpeningBook.ENTRY_BYTES);
+        buffer.putInt(OpeningBook.MAGIC).putInt(count);
+        for (long key : keys) {
+            List<Map.Entry<Integer, Integer>> positionMoves = new ArrayList<>(weights.get(key).entrySet());
+            positionMoves.sort(Map.Entry.<Integer, Integer>comparingByValue().reversed());
+            for (Map.Entry<Integer, Integer> entry : positionMoves) {
+                buffer.putLong(key).putInt(entry.getKey()).putInt(entry.getValue());
+            }
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        return count;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: OpeningBookBuilder games.pgn book.bin [maxPly]");
+            System.exit(2);
+        }
+        int maxPly = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_MAX_PLY;
+        var builder = new OpeningBookBuilder(maxPly);
+        try (Reader reader = Files.newBufferedReader(Path.of(args[0]))) {
+            builder.addPgn(reader);
+        }
+        int entries = builder.write(Path.of(args[1]));
+        System.out.printf("%d games, %d skipped, %d entries written to %s%n", builder.games(), builder.skippedGames(),
+                entries, args[1]);
+    }
+
+    /**
+     * Plays through one PGN game's movetext, adding the first maxPly moves
+     *
+     * @param movetext    moves, comments and result of one game
+     * @param customStart true if the game starts from a set up position
+     */
+    private void addPgnGame(CharSequence movetext, boolean customStart) {
+        List<String> tokens = tokenize(movetext);
+        if (tokens.isEmpty()) {
+            return;
+        }
+        if (customStart) {
+            skippedGames++;
+            return;
+        }
+        // an unfinished or unknown result counts like a draw
+        String result = tokens.get(tokens.size() - 1);
+        int whiteWeight = result.equals("1-0") ? WIN_WEIGHT : result.equals("0-1") ? 0 : DRAW_WEIGHT;
+        int blackWeight = result.equals("0-1") ? WIN_WEIGHT : result.equals("1-0") ? 0 : DRAW_WEIGHT;
+
+        var board = new ChessBoard();
+        board.resetBoard();
+        ChessGame.TeamColor sideToMove = ChessGame.TeamColor.WHITE;
+        int ply = 0;
+        for (String token : tokens) {
+            if (ply == maxPly || isResult(token)) {
+                break;
+            }
+            int move = parseSan(board, sideToMove, token);
+            if (move == 0) {
+                skippedGames++;
+                return;
+            }
+            int weight = sideToMove == ChessGame.TeamColor.WHITE ? whiteWeight : blackWeight;
+            if (weight > 0) {
+                add(key(board, sideToMove), move, weight);
+            }
+            board.makeMove(move);
+            sideToMove = opposite(sideToMove);
+            ply++;
+        }
+        games++;
+    }
+
+    /**
+     * Splits movetext into moves and a final result, dropping move numbers, comments, variations and
+     * annotation glyphs
+     *
+     * @param movetext PGN movetext
+     * @return the SAN moves, followed by the result if there is one
+     */
+    private static List<String> tokenize(CharSequence movetext) {
+        List<String> tokens = new ArrayList<>();
+        int variationDepth = 0;
+        int i = 0;
+        while (i < movetext.length()) {
+            char c = movetext.charAt(i);
+            if (c == '{') {
+                while (i < movetext.length() && movetext.charAt(i) != '}') {
+                    i++;
+                }
+                i++;
+            } else if (c == '(') {
+                variationDepth++;
+                i++;
+            } else if (c == ')') {
+                variationDepth--;
+                i++;
+            } else if (Character.isWhitespace(c)) {
+                i++;
+            } else {
+                int start = i;
+                while (i < movetext.length() && !Character.isWhitespace(movetext.charAt(i))
+                        && "{}();".indexOf(movetext.charAt(i)) < 0) {
+                    i++;
+                }
+                String token = movetext.subSequence(start, i).toString();
+                // "12." and "12..." may be written against the move that follows
+                token = token.replaceFirst("^\\d+\\.+", "");
+                if (variationDepth == 0 && !token.isEmpty() && !token.startsWith("$")) {
+                    tokens.add(token);
+                }
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * @param token PGN token
+     * @return true if the token ends a game
+     */
+    private static boolean isResult(String token) {
+        return token.equals("1-0") || token.equals("0-1") || token.equals("1/2-1/2") || token.equals("*");
+    }
+
+    /**
+     * Finds the legal move a SAN string describes, such as "e4", "Nbd7", "exd6", "O-O" or "e8=Q+"
+     *
+     * @param board      position the move is played from
+     * @param sideToMove side making the move
+     * @param san        move in standard algebraic notation
+     * @return the packed legal move, or 0 if san doesn't describe exactly one legal move
+     */
+    int parseSan(ChessBoard board, ChessGame.TeamColor sideToMove, String san) {
+        String text = san.replaceAll("[+#!?]", "");
+        generator.generate(board, sideToMove, board.getEnPassantSquare(sideToMove), moves);
+
+        if (text.equals("O-O") || text.equals("0-0") || text.equals("O-O-O") || text.equals("0-0-0")) {
+            int homeRow = sideToMove == ChessGame.TeamColor.WHITE ? 0 : 7;
+            int kingTo = homeRow * 8 + (text.length() == 3 ? 6 : 2);
+            for (int i = 0; i < moves.size(); i++) {
+                int move = moves.get(i);
+                if (Moves.from(move) == homeRow * 8 + 4 && Moves.to(move) == kingTo
+                        && board.getPiece(Moves.from(move)).getPieceType() == ChessPiece.PieceType.KING) {
+                    return move;
+                }
+            }
+            return 0;
+        }
+
+        ChessPiece.PieceType promotion = null;
+        int equals = text.indexOf('=');
+        if (equals >= 0) {
+            if (equals + 1 >= text.length()) {
+                return 0;
+            }
+            promotion = pieceType(text.charAt(equals + 1));
+            if (promotion == null) {
+                return 0;
+            }
+            text = text.substring(0, equals);
+        } else if (text.length() > 2 && Character.isLowerCase(text.charAt(0)) && Character.isUpperCase(text.charAt(text.length() - 1))) {
+            // a pawn promotion written without the equals sign, as in e8Q
+            promotion = pieceType(text.charAt(text.length() - 1));
+            if (promotion == null) {
+                return 0;
+            }
+            text = text.substring(0, text.length() - 1);
+        }
+        ChessPiece.PieceType type = ChessPiece.PieceType.PAWN;
+        if (!text.isEmpty() && Character.isUpperCase(text.charAt(0))) {
+            type = pieceType(text.charAt(0));
+            if (type == null) {
+                return 0;
+            }
+            text = text.substring(1);
+        }
+        text = text.replace("x", "");
+        if (text.length() < 2 || text.length() > 4) {
+            return 0;
+        }
+        int toCol = text.charAt(text.length() - 2) - 'a';
+        int toRow = text.charAt(text.length() - 1) - '1';
+        if (toCol < 0 || toCol > 7 || toRow < 0 || toRow > 7) {
+            return 0;
+        }
+        int to = toRow * 8 + toCol;
+        // whatever is left before the destination tells apart two pieces that could both get there
+        int fromCol = -1;
+        int fromRow = -1;
+        for (char c : text.substring(0, text.length() - 2).toCharArray()) {
+            if (c >= 'a' && c <= 'h') {
+                fromCol = c - 'a';
+            } else if (c >= '1' && c <= '8') {
+                fromRow = c - '1';
+            } else {
+                return 0;
+            }
+        }
+
+        int found = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            int from = Moves.from(move);
+            if (Moves.to(move) == to && board.getPiece(from).getPieceType() == type && Moves.promotion(move) == promotion
+                    && (fromCol < 0 || from % 8 == fromCol) && (fromRow < 0 || from / 8 == fromRow)) {
+                if (found != 0) {
+                    return 0;
+                }
+                found = move;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @param board      position
+     * @param sideToMove side to move
+     * @param move       packed move, flags optional
+     * @return the generated legal move with the same squares and promotion, or 0 if the move isn't legal
+     */
+    private int legalMove(ChessBoard board, ChessGame.TeamColor sideToMove, int move) {
+        generator.generate(board, sideToMove, board.getEnPassantSquare(sideToMove), moves);
+        for (int i = 0; i < moves.size(); i++) {
+            if ((moves.get(i) & OpeningBook.MOVE_MASK) == (move & OpeningBook.MOVE_MASK)) {
+                return moves.get(i);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @param key    position key, side to move included
+     * @param move   packed move
+     * @param weight amount to add to the move's weight
+     */
+    private void add(long key, int move, int weight) {
+        weights.computeIfAbsent(key, unused -> new HashMap<>()).merge(move & OpeningBook.MOVE_MASK, weight, Integer::sum);
+    }
+
+    /**
+     * @param board      position
+     * @param sideToMove side to move
+     * @return the position's key, matching ChessGame.getZobristKey
+     */
+    private static long key(ChessBoard board, ChessGame.TeamColor sideToMove) {
+        long key = board.getZobristKey();
+        return sideToMove == ChessGame.TeamColor.BLACK ? key ^ Zobrist.blackToMove() : key;
+    }
+
+    /**
+     * @param letter SAN piece letter
+     * @return the piece type, or null for anything that isn't a piece letter
+     */
+    private static ChessPiece.PieceType pieceType(char letter) {
+        return switch (letter) {
+            case 'K' -> ChessPiece.PieceType.KING;
+            case 'Q' -> ChessPiece.PieceType.QUEEN;
+            case 'R' -> ChessPiece.PieceType.ROOK;
+            case 'B' -> ChessPiece.PieceType.BISHOP;
+            case 'N' -> ChessPiece.PieceType.KNIGHT;
+            default -> null;
+        };
+    }
+
+    /**
+     * @param color a team color
+     * @return the other team's color
+     */
+    private static ChessGame.TeamColor opposite(ChessGame.TeamColor color) {
+        return color == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+    }
+}
@@ -0,0 +1,133 @@
+package chess.engine;
+
+import chess.ChessGame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Searches one position on several threads at once with Lazy SMP. Every thread runs an ordinary Search of
+ * the same root against one shared TranspositionTable; there is no other communication between them.
+ * Helpers start their iterative deepening at staggered depths, so they explore different parts of the
+ * tree and leave results in the table that speed the others up. The calling thread's search decides when
+ * to finish, and every helper is stopped as soon as it does.
+ * <p>
+ * Handles one search at a time. The helper threads are kept for reuse; close the ParallelSearch to
+ * release them.
+ */
+public class ParallelSearch implements AutoCloseable {
+
+    private final TranspositionTable table;
+    private final Search[] searches;
+    private final ExecutorService helpers;
+
+    /**
+     * @param table      transposition table the threads share
+     * @param maxThreads most threads a single search may use, the calling thread included
+     */
+    public ParallelSearch(TranspositionTable table, int maxThreads) {
+        this(table, Tablebase.empty(), maxThreads);
+    }
+
+    /**
+     * @param table      transposition table the threads share
+     * @param tablebase  endgame tables the threads share
+     * @param maxThreads most threads a single search may use, the calling thread included
+     */
+    public ParallelSearch(TranspositionTable table, Tablebase tablebase, int maxThreads) {
+        if (maxThreads < 1) {
+            throw new IllegalArgumentException("ParallelSearch needs at least one thread");
+        }
+        this.table = table;
+        searches = new Search[maxThreads];
+        for (int i = 0; i < maxThreads; i++) {
+            searches[i] = new Search(table, tablebase);
+        }
+        helpers = maxThreads == 1 ? null : Executors.newFixedThreadPool(maxThreads - 1, runnable -> {
+            var thread = new Thread(runnable, "lazy-smp-helper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Searches with a number of threads until the time budget runs out, a forced mate is found or
+     * maxDepth is finished
+     *
+     * @param game         position to search; it is read by every thread and must not change meanwhile
+     * @param budgetMillis wall-clock time allowed
+     * @param maxDepth     deepest iteration to run, in plies
+     * @param threads      threads to use, the calling thread included; capped at maxThreads
+     * @return the result from whichever thread finished the deepest iteration, with the nodes of all of them
+     */
+    public synchronized SearchResult search(ChessGame game, long budgetMillis, int maxDepth, int threads) {
+        int count = Math.max(1, Math.min(threads, searches.length));
+        long start = System.nanoTime();
+        table.newSearch();
+
+        List<Future<SearchResult>> futures = new ArrayList<>(count - 1);
+        for (int i = 1; i < count; i++) {
+            Search helper = searches[i];
+            // half the helpers start a ply deeper than the main search
+            int startDepth = 1 + i % 2;
+            helper.clearStop();
+            futures.add(helpers.submit(() -> helper.run(game, start, budgetMillis, maxDepth, startDepth)));
+        }
+        SearchResult best;
+        try {
+            searches[0].clearStop();
+            best = searches[0].run(game, start, budgetMillis, maxDepth, 1);
+        } finally {
+            // the helpers stop with the main search even if it throws, so they are free for the next search
+            for (int i = 1; i < count; i++) {
+                searches[i].stop();
+            }
+        }
+
+        long nodes = best.nodes();
+        for (Future<SearchResult> future : futures) {
+            SearchResult result = waitFor(future);
+            nodes += result.nodes();
+            if (result.depth() > best.depth() && result.bestMove() != null) {
+                best = result;
+            }
+        }
+        return new SearchResult(best.bestMove(), best.score(), best.depth(), nodes, System.nanoTime() - start);
+    }
+
+    /**
+     * @return most threads a single search may use
+     */
+    public int maxThreads() {
+        return searches.length;
+    }
+
+    /**
+     * Stops the helper threads
+     */
+    @Override
+    public void close() {
+        if (helpers != null) {
+            helpers.shutdownNow();
+        }
+    }
+
+    /**
+     * @param future a helper's search
+     * @return the helper's result
+     */
+    private static SearchResult waitFor(Future<SearchResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for a helper search", ex);
+        } catch (ExecutionException ex) {
+            throw new RuntimeException("Helper search failed", ex.getCause());
+        }
+    }
+}
@@ -0,0 +1,487 @@
+package chess.engine;
+
+import chess.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds a good move for the side to move with negamax alpha-beta search, deepening one ply at a
+ * time until the time budget runs out. Leaf positions are settled with a capture-only quiescence
+ * search so that a move is never judged in the middle of an exchange. Moves are tried in the order
+ * MoveOrderer gives them, which decides how much of the tree alpha-beta can cut away.
+ * <p>
+ * The search plays packed moves on its own board with make/unmake and generates into one reusable
+ * MoveList per ply, so it allocates almost nothing once constructed. Results are kept in a
+ * TranspositionTable, which several searches can share. Positions a Tablebase covers are scored exactly
+ * from it instead of being searched. A Search itself is not thread-safe;
+ * give each thread its own and reuse it across searches.
+ */
+public class Search {
+
+    public static final int MATE = 30000;
+    public static final int MAX_PLY = 128;
+
+    private static final int INFINITY = 32000;
+    // how often, in nodes, the clock is read
+    private static final int TIME_CHECK_MASK = 2047;
+    private static final int FIFTY_MOVE_PLIES = 100;
+    private static final int DEFAULT_TABLE_MB = 4;
+    private static final int NOT_IN_TABLEBASE = Integer.MIN_VALUE;
+
+    private final ChessBoard board = new ChessBoard();
+    private final LegalMoveGenerator generator = new LegalMoveGenerator();
+    private final Evaluator evaluator = new Evaluator();
+    private final TranspositionTable table;
+    private final Tablebase tablebase;
+    private final MoveOrderer orderer = new MoveOrderer(board, generator, MAX_PLY);
+    private final MoveList[] moveLists = new MoveList[MAX_PLY + 1];
+    // board key at each ply of the current line, for spotting repetitions
+    private final long[] pathKeys = new long[MAX_PLY + 1];
+
+    private long nodes;
+    private long deadline;
+    private boolean aborted;
+    private volatile boolean stopRequested;
+    private int iterationBestMove;
+
+    /**
+     * Creates a search with its own small transposition table
+     */
+    public Search() {
+        this(new TranspositionTable(DEFAULT_TABLE_MB));
+    }
+
+    /**
+     * @param table transposition table, which may be shared with other searches
+     */
+    public Search(TranspositionTable table) {
+        this(table, Tablebase.empty());
+    }
+
+    /**
+     * @param table     transposition table, which may be shared with other searches
+     * @param tablebase endgame tables to score covered positions from, which may also be shared
+     */
+    public Search(TranspositionTable table, Tablebase tablebase) {
+        this.table = table;
+        this.tablebase = tablebase;
+        for (int i = 0; i < moveLists.length; i++) {
+            moveLists[i] = new MoveList();
+        }
+    }
+
+    /**
+     * Searches until the time budget runs out or a forced mate is found
+     *
+     * @param game         position to search; it is copied, not changed
+     * @param budgetMillis wall-clock time allowed
+     * @return the best move from the deepest finished iteration
+     */
+    public SearchResult search(ChessGame game, long budgetMillis) {
+        return search(game, budgetMillis, MAX_PLY);
+    }
+
+    /**
+     * Searches until the time budget runs out, a forced mate is found or maxDepth is finished.
+     * The budget is a hard limit: a search cut short in its first iteration still returns a legal move.
+     *
+     * @param game         position to search; it is copied, not changed
+     * @param budgetMillis wall-clock time allowed
+     * @param maxDepth     deepest iteration to run, in plies
+     * @return the best move from the deepest finished iteration
+     */
+    public SearchResult search(ChessGame game, long budgetMillis, int maxDepth) {
+        long start = System.nanoTime();
+        clearStop();
+        table.newSearch();
+        return run(game, start, budgetMillis, maxDepth, 1);
+    }
+
+    /**
+     * Reads the line the search expects from the transposition table: the best move, then the stored
+     * move of each position after it. Stops at a position with no stored move, a move that isn't legal
+     * there (another position with the same key may have overwritten the entry) or a repetition.
+     *
+     * @param game      position that was searched; it is copied, not changed
+     * @param bestMove  the search's best move, which starts the line
+     * @param maxLength most moves to return
+     * @return the expected line, empty if bestMove is null
+     */
+    public List<ChessMove> principalVariation(ChessGame game, ChessMove bestMove, int maxLength) {
+        List<ChessMove> line = new ArrayList<>();
+        if (bestMove == null) {
+            return line;
+        }
+        board.setGivenBoard(game.getBoard());
+        ChessGame.TeamColor sideToMove = game.getTeamTurn();
+        MoveList moves = moveLists[0];
+        int move = Moves.of(bestMove);
+        int length = Math.min(maxLength, MAX_PLY);
+        while (line.size() < length) {
+            generator.generate(board, sideToMove, board.getEnPassantSquare(sideToMove), moves);
+            int legal = 0;
+            for (int i = 0; i < moves.size(); i++) {
+                if (sameMove(moves.get(i), move)) {
+                    legal = moves.get(i);
+                    break;
+                }
+            }
+            if (legal == 0) {
+                break;
+            }
+            pathKeys[line.size()] = positionKey(sideToMove);
+            line.add(Moves.toChessMove(legal));
+            board.makeMove(legal);
+            sideToMove = opposite(sideToMove);
+            long key = positionKey(sideToMove);
+            for (int i = 0; i < line.size(); i++) {
+                if (pathKeys[i] == key) {
+                    return line;
+                }
+            }
+            long entry = table.probe(key);
+            if (entry == 0) {
+                break;
+            }
+            move = TranspositionTable.move(entry);
+        }
+        return line;
+    }
+
+    /**
+     * Asks a running search to stop as soon as possible. It still returns the best move so far.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /**
+     * Forgets an earlier stop request, ahead of a run
+     */
+    void clearStop() {
+        stopRequested = false;
+    }
+
+    /**
+     * Runs iterative deepening from startDepth. Lazy SMP helpers start at different depths so that
+     * they fill the shared table with different parts of the tree. Does not start a new table
+     * generation or clear a stop request, so a stop sent before the run starts is still seen.
+     *
+     * @param game         position to search; it is copied, not changed
+     * @param start        System.nanoTime() when the budget started
+     * @param budgetMillis wall-clock time allowed from start
+     * @param maxDepth     deepest iteration to run, in plies
+     * @param startDepth   first iteration to run
+     * @return the best move from the deepest finished iteration
+     */
+    SearchResult run(ChessGame game, long start, long budgetMillis, int maxDepth, int startDepth) {
+        board.setGivenBoard(game.getBoard());
+        ChessGame.TeamColor sideToMove = game.getTeamTurn();
+        nodes = 0;
+        deadline = start + budgetMillis * 1_000_000L;
+        aborted = false;
+        orderer.newSearch();
+
+        MoveList rootMoves = moveLists[0];
+        generator.generate(board, sideToMove, board.getEnPassantSquare(sideToMove), rootMoves);
+        if (rootMoves.isEmpty()) {
+            int score = inCheck(sideToMove) ? -MATE : 0;
+            return new SearchResult(null, score, 0, 0, System.nanoTime() - start);
+        }
+
+        int bestMove = rootMoves.get(0);
+        int bestScore = 0;
+        int completedDepth = 0;
+        for (int depth = Math.max(startDepth, 1); depth <= Math.min(maxDepth, MAX_PLY); depth++) {
+            int score = searchRoot(depth, sideToMove, bestMove);
+            if (aborted) {
+                if (completedDepth == 0 && score > -INFINITY) {
+                    // out of time before even one iteration finished: take the best of the moves that were searched
+                    bestMove = iterationBestMove;
+                    bestScore = score;
+                }
+                break;
+            }
+            bestMove = iterationBestMove;
+            bestScore = score;
+            completedDepth = depth;
+            table.store(positionKey(sideToMove), bestMove, score, depth, TranspositionTable.EXACT, 0);
+            // a mate won't get any shorter, and an iteration that started past half the budget rarely finishes
+            if (Math.abs(score) >= MATE - MAX_PLY || (System.nanoTime() - start) * 2 > budgetMillis * 1_000_000L) {
+                break;
+            }
+        }
+        return new SearchResult(Moves.toChessMove(bestMove), bestScore, completedDepth, nodes, System.nanoTime() - start);
+    }
+
+    /**
+     * Searches every root move to a depth, trying the previous iteration's best move first
+     *
+     * @param depth      depth in plies
+     * @param sideToMove side to move at the root
+     * @param firstMove  move to search first
+     * @return score of the best root move
+     */
+    private int searchRoot(int depth, ChessGame.TeamColor sideToMove, int firstMove) {
+        MoveList moves = moveLists[0];
+        orderer.score(moves, 0, firstMove, sideToMove);
+
+        pathKeys[0] = board.getZobristKey();
+        int alpha = -INFINITY;
+        iterationBestMove = firstMove;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = orderer.pickNext(moves, 0, i);
+            board.makeMove(move);
+            int score = -negamax(depth - 1, 1, -INFINITY, -alpha, opposite(sideToMove));
+            board.unmakeMove();
+            if (aborted) {
+                return alpha;
+            }
+            if (score > alpha) {
+                alpha = score;
+                iterationBestMove = move;
+            }
+        }
+        return alpha;
+    }
+
+    /**
+     * Alpha-beta search below the root
+     *
+     * @param depth      remaining depth in plies
+     * @param ply        distance from the root
+     * @param alpha      lower bound the side to move is already guaranteed
+     * @param beta       upper bound the opponent will allow
+     * @param sideToMove side to move
+     * @return score from the side to move's point of view, clamped to [alpha, beta]
+     */
+    private int negamax(int depth, int ply, int alpha, int beta, ChessGame.TeamColor sideToMove) {
+        if (timeUp()) {
+            return 0;
+        }
+        if (isDraw(ply)) {
+            return 0;
+        }
+        int known = tablebaseScore(ply, sideToMove);
+        if (known != NOT_IN_TABLEBASE) {
+            return Math.max(alpha, Math.min(beta, known));
+        }
+        if (depth <= 0 || ply >= MAX_PLY) {
+            return quiescence(ply, alpha, beta, sideToMove);
+        }
+
+        long key = positionKey(sideToMove);
+        long entry = table.probe(key);
+        int hashMove = 0;
+        if (entry != 0) {
+            hashMove = TranspositionTable.move(entry);
+            if (TranspositionTable.depth(entry) >= depth) {
+                int stored = TranspositionTable.score(entry, ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT) {
+                    return Math.max(alpha, Math.min(beta, stored));
+                }
+                if (bound == TranspositionTable.LOWER && stored >= beta) {
+                    return beta;
+                }
+                if (bound == TranspositionTable.UPPER && stored <= alpha) {
+                    return alpha;
+                }
+            }
+        }
+
+        MoveList moves = moveLists[ply];
+        generator.generate(board, sideToMove, board.getEnPassantSquare(sideToMove), moves);
+        if (moves.isEmpty()) {
+            return inCheck(sideToMove) ? -MATE + ply : 0;
+        }
+
+        ChessGame.TeamColor enemy = opposite(sideToMove);
+        int bestMove = 0;
+        int bound = TranspositionTable.UPPER;
+        orderer.score(moves, ply, hashMove, sideToMove);
+        for (int i = 0; i < moves.size(); i++) {
+            int move = orderer.pickNext(moves, ply, i);
+            board.makeMove(move);
+            int score = -negamax(depth - 1, ply + 1, -beta, -alpha, enemy);
+            board.unmakeMove();
+            if (aborted) {
+                return 0;
+            }
+            if (score >= beta) {
+                orderer.recordCutoff(move, ply, depth, sideToMove);
+                table.store(key, move, beta, depth, TranspositionTable.LOWER, ply);
+                return beta;
+            }
+            if (score > alpha) {
+                alpha = score;
+                bestMove = move;
+                bound = TranspositionTable.EXACT;
+            }
+        }
+        table.store(key, bestMove, alpha, depth, bound, ply);
+        return alpha;
+    }
+
+    /**
+     * Looks the position up in the tablebase, scoring a win or loss like a mate found by search
+     *
+     * @param ply        distance from the root
+     * @param sideToMove side to move
+     * @return score from the side to move's point of view, or NOT_IN_TABLEBASE if no table covers the position
+     */
+    private int tablebaseScore(int ply, ChessGame.TeamColor sideToMove) {
+        int value = tablebase.probeValue(board, sideToMove);
+        if (value < 0 || value == Tablebase.ILLEGAL) {
+            return NOT_IN_TABLEBASE;
+        }
+        if (value == Tablebase.DRAW) {
+            return 0;
+        }
+        return tablebaseMateScore(ply, value - 1);
+    }
+
+    /**
+     * Scores a tablebase win or loss like a mate found by the search. A long tablebase mate reached deep
+     * in the tree (KBNK takes up to 66 plies) would fall outside the mate band, where the transposition
+     * table and SearchResult.isMate would take it for an ordinary score, so the distance is capped
+     * just inside the band.
+     *
+     * @param ply   distance of the position from the root
+     * @param plies plies to mate from the position; odd if the side to move mates
+     * @return score from the side to move's point of view
+     */
+    static int tablebaseMateScore(int ply, int plies) {
+        int distance = Math.min(ply + plies, MAX_PLY - 1);
+        return plies % 2 == 1 ? MATE - distance : -MATE + distance;
+    }
+
+    /**
+     * Searches only captures and promotions until the position is quiet. The side to move may also
+     * "stand pat" and take the static evaluation instead of any capture. In check there is no standing
+     * pat, so every evasion is searched instead, and having none is mate.
+     *
+     * @param ply        distance from the root
+     * @param alpha      lower bound the side to move is already guaranteed
+     * @param beta       upper bound the opponent will allow
+     * @param sideToMove side to move
+     * @return score from the side to move's point of view, clamped to [alpha, beta]
+     */
+    private int quiescence(int ply, int alpha, int beta, ChessGame.TeamColor sideToMove) {
+        if (timeUp()) {
+            return 0;
+        }
+        if (ply >= MAX_PLY) {
+            return evaluator.evaluate(board, sideToMove);
+        }
+
+        MoveList moves = moveLists[ply];
+        int epVictim = board.getEnPassantSquare(sideToMove);
+        if (inCheck(sideToMove)) {
+            generator.generate(board, sideToMove, epVictim, moves);
+            if (moves.isEmpty()) {
+                return -MATE + ply;
+            }
+        } else {
+            int standPat = evaluator.evaluate(board, sideToMove);
+            if (standPat >= beta) {
+                return beta;
+            }
+            if (standPat > alpha) {
+                alpha = standPat;
+            }
+            generator.generateCaptures(board, sideToMove, epVictim, moves);
+        }
+
+        ChessGame.TeamColor enemy = opposite(sideToMove);
+        orderer.scoreCaptures(moves, ply);
+        for (int i = 0; i < moves.size(); i++) {
+            int move = orderer.pickNext(moves, ply, i);
+            board.makeMove(move);
+            int score = -quiescence(ply + 1, -beta, -alpha, enemy);
+            board.unmakeMove();
+            if (aborted) {
+                return 0;
+            }
+            if (score >= beta) {
+                return beta;
+            }
+            if (score > alpha) {
+                alpha = score;
+            }
+        }
+        return alpha;
+    }
+
+    /**
+     * Counts a node and checks, every few thousand nodes, whether the search has to stop
+     *
+     * @return true if the search is being abandoned
+     */
+    private boolean timeUp() {
+        nodes++;
+        if (!aborted && (stopRequested || ((nodes & TIME_CHECK_MASK) == 0 && System.nanoTime() > deadline))) {
+            aborted = true;
+        }
+        return aborted;
+    }
+
+    /**
+     * Checks for a draw by the fifty move rule, or by repeating a position earlier in the current line.
+     * A position can only repeat with the same side to move, and not across a capture or pawn move.
+     *
+     * @param ply distance from the root
+     * @return true if the position is a draw
+     */
+    private boolean isDraw(int ply) {
+        int clock = board.getHalfmoveClock();
+        if (clock >= FIFTY_MOVE_PLIES) {
+            return true;
+        }
+        long key = board.getZobristKey();
+        pathKeys[ply] = key;
+        for (int i = ply - 4; i >= 0 && i >= ply - clock; i -= 2) {
+            if (pathKeys[i] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param sideToMove side to move
+     * @return Zobrist key of the search board with the side to move included
+     */
+    private long positionKey(ChessGame.TeamColor sideToMove) {
+        long key = board.getZobristKey();
+        return sideToMove == ChessGame.TeamColor.BLACK ? key ^ Zobrist.blackToMove() : key;
+    }
+
+    /**
+     * @param color side to test
+     * @return true if that side's king is attacked
+     */
+    private boolean inCheck(ChessGame.TeamColor color) {
+        long king = board.getPieceBitboard(color, ChessPiece.PieceType.KING);
+        return king != 0 && generator.attackersTo(board, Long.numberOfTrailingZeros(king), opposite(color),
+                board.getOccupancy()) != 0;
+    }
+
+    /**
+     * @param a a packed move
+     * @param b another packed move
+     * @return true if they move between the same squares and promote to the same piece, whatever their flags
+     */
+    private static boolean sameMove(int a, int b) {
+        return Moves.from(a) == Moves.from(b) && Moves.to(a) == Moves.to(b) && Moves.promotion(a) == Moves.promotion(b);
+    }
+
+    /**
+     * @param color a side
+     * @return the other side
+     */
+    private static ChessGame.TeamColor opposite(ChessGame.TeamColor color) {
+        return color == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+    }
+}
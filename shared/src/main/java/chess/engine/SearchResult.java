@@ -0,0 +1,40 @@
+package chess.engine;
+
+import chess.ChessMove;
+
+/**
+ * Outcome of a search
+ *
+ * @param bestMove     best move found, or null if the side to move has no legal moves
+ * @param score        centipawns from the side to move's point of view; mate scores are near Search.MATE
+ * @param depth        deepest iteration that finished
+ * @param nodes        positions visited, quiescence included
+ * @param elapsedNanos wall-clock time spent
+ */
+public record SearchResult(ChessMove bestMove, int score, int depth, long nodes, long elapsedNanos) {
+
+    /**
+     * @return search speed, for sizing how many searches a core can run
+     */
+    public long nodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1_000_000_000L / elapsedNanos;
+    }
+
+    /**
+     * @return true if the score is a forced mate for either side
+     */
+    public boolean isMate() {
+        return Math.abs(score) >= Search.MATE - Search.MAX_PLY;
+    }
+
+    /**
+     * @return moves until mate, negative if the side to move is the one mated, or 0 if the score is not a mate
+     */
+    public int mateIn() {
+        if (!isMate()) {
+            return 0;
+        }
+        int moves = (Search.MATE - Math.abs(score) + 1) / 2;
+        return score > 0 ? moves : -moves;
+    }
+}
@@ -0,0 +1,289 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Exact results for endings with a lone king against a king and up to two pieces, such as KQK, KRK,
+ * KPK and KBNK, read from tables written by TablebaseGenerator.
+ * <p>
+ * Each material signature has its own file, named after the signature with a .tb extension: an 8 byte
+ * header (the magic number, then the entry count) and one byte per position. A byte is 0 for a draw,
+ * 255 for an index that isn't a legal position (two men on one square, a pawn on the first or last row,
+ * or the side not to move in check), or else the distance to mate in plies plus one, where an odd distance is a win for the
+ * side to move and an even one a loss. Positions are indexed with the side that has the pieces playing white, so a table covers
+ * both colors; the index is the side to move, then the squares of the strong king, the weak king and each
+ * piece in QRBNP order. Files are mapped into memory rather than read, and probing only does absolute
+ * reads, so one Tablebase can be shared by every thread.
+ */
+public final class Tablebase {
+
+    // "CTB1"
+    static final int MAGIC = 0x43544231;
+    static final int HEADER_BYTES = 8;
+    static final String EXTENSION = ".tb";
+    static final int DRAW = 0;
+    static final int ILLEGAL = 0xFF;
+    // the order pieces are listed in a signature and indexed in a table
+    static final ChessPiece.PieceType[] PIECE_ORDER = {
+            ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.ROOK, ChessPiece.PieceType.BISHOP,
+            ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.PAWN
+    };
+    // a third piece would take 2 * 64^5 entries, more than an array or a mapped buffer can index
+    static final int MAX_PIECES = 2;
+
+    private static final String LETTERS = "QRBNP";
+    // a material code packs the strong side's pieces three bits each, see materialCode
+    private static final int MATERIAL_CODES = 1 << (3 * MAX_PIECES);
+    private static final Tablebase EMPTY = new Tablebase(new ByteBuffer[MATERIAL_CODES], Set.of());
+
+    private final ByteBuffer[] tables;
+    private final Set<String> signatures;
+    private final int maxMen;
+
+    /**
+     * @param tables     table for each material code, or null
+     * @param signatures signatures of the tables present
+     */
+    private Tablebase(ByteBuffer[] tables, Set<String> signatures) {
+        this.tables = tables;
+        this.signatures = Collections.unmodifiableSet(signatures);
+        int most = 0;
+        for (String signature : signatures) {
+            most = Math.max(most, signature.length());
+        }
+        maxMen = most;
+    }
+
+    /**
+     * Maps every table file in a directory. The files are closed straight away; the mappings stay valid
+     * until the Tablebase is garbage collected.
+     *
+     * @param directory directory holding .tb files written by TablebaseGenerator
+     * @return the tablebase
+     * @throws IOException              if the directory or a file can't be read
+     * @throws IllegalArgumentException if a .tb file is not a table
+     */
+    public static Tablebase open(Path directory) throws IOException {
+        ByteBuffer[] tables = new ByteBuffer[MATERIAL_CODES];
+        Set<String> signatures = new TreeSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String signature = name.substring(0, name.length() - EXTENSION.length());
+                ChessPiece.PieceType[] pieces = parseSignature(signature);
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    long length = channel.size();
+                    MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+                    if (length < HEADER_BYTES || mapping.getInt(0) != MAGIC || mapping.getInt(4) != size(pieces.length)
+                            || length != HEADER_BYTES + size(pieces.length)) {
+                        throw new IllegalArgumentException("Not a " + signature + " table: " + file);
+                    }
+                    tables[materialCode(pieces)] = mapping.slice(HEADER_BYTES, size(pieces.length));
+                }
+                signatures.add(signature);
+            }
+        }
+        return new Tablebase(tables, signatures);
+    }
+
+    /**
+     * Wraps tables held in memory, for the generator to look up positions after a capture or promotion
+     *
+     * @param tables tables by signature, laid out as in a file without the header
+     * @return the tablebase
+     */
+    static Tablebase of(Map<String, byte[]> tables) {
+        ByteBuffer[] buffers = new ByteBuffer[MATERIAL_CODES];
+        for (Map.Entry<String, byte[]> table : tables.entrySet()) {
+            buffers[materialCode(parseSignature(table.getKey()))] = ByteBuffer.wrap(table.getValue());
+        }
+        return new Tablebase(buffers, new TreeSet<>(tables.keySet()));
+    }
+
+    /**
+     * @return a tablebase with no tables, for when none are configured
+     */
+    public static Tablebase empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @return signatures of the tables present, such as KQK
+     */
+    public Set<String> signatures() {
+        return signatures;
+    }
+
+    /**
+     * @param game position to look up
+     * @return the exact result, or null if no table covers the position
+     */
+    public Result probe(ChessGame game) {
+        return probe(game.getBoard(), game.getTeamTurn());
+    }
+
+    /**
+     * @param board      position to look up
+     * @param sideToMove side to move
+     * @return the exact result for the side to move, or null if no table covers the position or it is illegal
+     */
+    public Result probe(ChessBoard board, ChessGame.TeamColor sideToMove) {
+        int value = probeValue(board, sideToMove);
+        if (value < 0 || value == ILLEGAL) {
+            return null;
+        }
+        if (value == DRAW) {
+            return new Result(Outcome.DRAW, 0);
+        }
+        int plies = value - 1;
+        return new Result(plies % 2 == 1 ? Outcome.WIN : Outcome.LOSS, plies);
+    }
+
+    /**
+     * Looks a position up without allocating, for the search
+     *
+     * @param board      position to look up
+     * @param sideToMove side to move
+     * @return the stored byte (see the class comment), or -1 if no table covers the position
+     */
+    int probeValue(ChessBoard board, ChessGame.TeamColor sideToMove) {
+        long occupancy = board.getOccupancy();
+        int men = Long.bitCount(occupancy);
+        if (men > maxMen || board.getCastlingRights() != 0) {
+            return -1;
+        }
+        ChessGame.TeamColor strong;
+        if (Long.bitCount(board.getTeamOccupancy(ChessGame.TeamColor.BLACK)) == 1) {
+            strong = ChessGame.TeamColor.WHITE;
+        } else if (Long.bitCount(board.getTeamOccupancy(ChessGame.TeamColor.WHITE)) == 1) {
+            strong = ChessGame.TeamColor.BLACK;
+        } else {
+            return -1;
+        }
+        ChessGame.TeamColor weak = strong == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        // the table has the strong side as white, so a black strong side is turned upside down
+        int flip = strong == ChessGame.TeamColor.WHITE ? 0 : 56;
+
+        int code = 0;
+        long index = sideToMove == strong ? 0 : 1;
+        index = index * 64 + (Long.numberOfTrailingZeros(board.getPieceBitboard(strong, ChessPiece.PieceType.KING)) ^ flip);
+        index = index * 64 + (Long.numberOfTrailingZeros(board.getPieceBitboard(weak, ChessPiece.PieceType.KING)) ^ flip);
+        for (int type = 0; type < PIECE_ORDER.length; type++) {
+            long pieces = board.getPieceBitboard(strong, PIECE_ORDER[type]);
+            while (pieces != 0) {
+                index = index * 64 + (Long.numberOfTrailingZeros(pieces) ^ flip);
+                pieces &= pieces - 1;
+                code = code << 3 | type + 1;
+            }
+        }
+        ByteBuffer table = code < MATERIAL_CODES ? tables[code] : null;
+        if (table == null) {
+            return -1;
+        }
+        return table.get((int) index) & 0xFF;
+    }
+
+    /**
+     * @param pieces number of pieces besides the two kings
+     * @return number of positions in a table with that many pieces
+     */
+    static int size(int pieces) {
+        return 2 << (6 * (pieces + 2));
+    }
+
+    /**
+     * @param pieces the strong side's pieces besides its king, in PIECE_ORDER
+     * @return a small number that tells material signatures apart
+     */
+    static int materialCode(ChessPiece.PieceType[] pieces) {
+        int code = 0;
+        for (ChessPiece.PieceType piece : pieces) {
+            code = code << 3 | order(piece) + 1;
+        }
+        return code;
+    }
+
+    /**
+     * @param type piece type other than king
+     * @return its place in PIECE_ORDER
+     */
+    static int order(ChessPiece.PieceType type) {
+        for (int i = 0; i < PIECE_ORDER.length; i++) {
+            if (PIECE_ORDER[i] == type) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Kings aren't listed in a signature");
+    }
+
+    /**
+     * Reads a signature such as KBNK: a king and up to two pieces, in QRBNP order, against a lone king
+     *
+     * @param signature material signature
+     * @return the strong side's pieces besides its king
+     * @throws IllegalArgumentException if the signature isn't one a table can cover
+     */
+    static ChessPiece.PieceType[] parseSignature(String signature) {
+        if (signature.length() < 2 || signature.length() > MAX_PIECES + 2 || signature.charAt(0) != 'K'
+                || signature.charAt(signature.length() - 1) != 'K') {
+            throw new IllegalArgumentException("Unsupported tablebase signature " + signature);
+        }
+        ChessPiece.PieceType[] pieces = new ChessPiece.PieceType[signature.length() - 2];
+        int previous = 0;
+        for (int i = 0; i < pieces.length; i++) {
+            int letter = LETTERS.indexOf(signature.charAt(i + 1));
+            if (letter < previous) {
+                throw new IllegalArgumentException("Unsupported tablebase signature " + signature);
+            }
+            pieces[i] = PIECE_ORDER[letter];
+            previous = letter;
+        }
+        return pieces;
+    }
+
+    /**
+     * @param pieces the strong side's pieces besides its king, in PIECE_ORDER
+     * @return the signature, such as KBNK
+     */
+    static String signature(ChessPiece.PieceType[] pieces) {
+        var signature = new StringBuilder("K");
+        for (ChessPiece.PieceType piece : pieces) {
+            signature.append(LETTERS.charAt(order(piece)));
+        }
+        return signature.append('K').toString();
+    }
+
+    /**
+     * How a position ends with best play
+     */
+    public enum Outcome {
+        WIN,
+        DRAW,
+        LOSS
+    }
+
+    /**
+     * A tablebase result, from the side to move's point of view
+     *
+     * @param outcome     win, draw or loss with best play
+     * @param pliesToMate plies until mate with best play from both sides, 0 for a draw or a side already mated
+     */
+    public record Result(Outcome outcome, int pliesToMate) {
+
+    }
+}
@@ -0,0 +1,553 @@
+package chess.engine;
+
+import chess.Bitboards;
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.LegalMoveGenerator;
+import chess.MoveList;
+import chess.Moves;
+import chess.movemanagers.AttackTables;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds endgame tables for Tablebase by retrograde analysis.
+ * <p>
+ * Every position of a signature is first set up on a board and given its legal moves by the engine's own
+ * LegalMoveGenerator. Illegal positions are marked, checkmates are lost in 0 plies, and moves that capture
+ * or promote are looked up in the smaller tables they lead to, which are generated first. Then each pass
+ * takes the positions decided at one distance and walks their moves backwards: a position that can move
+ * into a loss is won one ply later, and a position whose moves have all been found to lose, once the last
+ * of them is counted off, is lost one ply after its longest defence. Whatever is left undecided is a draw.
+ * Both the setup and each pass split the table into ranges on a fork-join pool, so generation uses every
+ * core; positions are updated with atomic operations since two threads can reach the same predecessor.
+ */
+public class TablebaseGenerator {
+
+    public static final String[] DEFAULT_SIGNATURES = {"KQK", "KRK", "KPK", "KBNK"};
+
+    private static final VarHandle BYTES = MethodHandles.arrayElementVarHandle(byte[].class);
+    // positions handled by one fork-join task
+    private static final int SPLIT = 1 << 13;
+    // counts hold the in-table moves not yet known to lose in bits 0-6, and whether a capture or promotion draws in bit 7
+    private static final int COUNT_MASK = 0x7F;
+    private static final int DRAW_EXIT = 0x80;
+    private static final ChessPiece.PieceType[] PROMOTIONS = {
+            ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.ROOK, ChessPiece.PieceType.BISHOP,
+            ChessPiece.PieceType.KNIGHT
+    };
+
+    private final ForkJoinPool pool;
+    private final ChessBoard emptyBoard;
+    // every table generated so far, including the smaller ones the requested tables lead to
+    private final Map<String, byte[]> tables = new TreeMap<>();
+
+    /**
+     * Creates a generator that runs on the common fork-join pool
+     */
+    public TablebaseGenerator() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param pool pool to run generation on
+     */
+    public TablebaseGenerator(ForkJoinPool pool) {
+        this.pool = pool;
+        // a position without castling rights, so that no castling moves are generated
+        emptyBoard = ChessGame.fromFen("4k3/8/8/8/8/8/8/4K3 w - - 0 1").getBoard();
+        emptyBoard.addPiece(ChessPosition.of(1, 5), null);
+        emptyBoard.addPiece(ChessPosition.of(8, 5), null);
+    }
+
+    /**
+     * Generates the table for a signature, after the tables its captures and promotions lead to.
+     * Tables already generated are reused.
+     *
+     * @param signature material signature, such as KBNK
+     * @return the table, one byte per position as described in Tablebase
+     * @throws IllegalArgumentException if the signature isn't one a table can cover
+     */
+    public byte[] generate(String signature) {
+        ChessPiece.PieceType[] pieces = Tablebase.parseSignature(signature);
+        signature = Tablebase.signature(pieces);
+        byte[] table = tables.get(signature);
+        if (table != null) {
+            return table;
+        }
+        for (int i = 0; i < pieces.length; i++) {
+            generate(Tablebase.signature(without(pieces, i)));
+            if (pieces[i] == ChessPiece.PieceType.PAWN) {
+                for (ChessPiece.PieceType promotion : PROMOTIONS) {
+                    ChessPiece.PieceType[] promoted = pieces.clone();
+                    promoted[i] = promotion;
+                    generate(Tablebase.signature(sorted(promoted)));
+                }
+            }
+        }
+        table = new Build(pieces, Tablebase.of(tables)).run();
+        tables.put(signature, table);
+        return table;
+    }
+
+    /**
+     * Writes every table generated so far, replacing any existing files
+     *
+     * @param directory directory to write the .tb files to, created if missing
+     * @throws IOException if a file can't be written
+     */
+    public void write(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        for (Map.Entry<String, byte[]> table : tables.entrySet()) {
+            ByteBuffer header = ByteBuffer.allocate(Tablebase.HEADER_BYTES);
+            header.putInt(Tablebase.MAGIC).putInt(table.getValue().length).flip();
+            ByteBuffer body = ByteBuffer.wrap(table.getValue());
+            Path path = directory.resolve(table.getKey() + Tablebase.EXTENSION);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+                while (body.hasRemaining()) {
+                    channel.write(body);
+                }
+            }
+        }
+    }
+
+    /**
+     * Generates tables and writes them to a directory
+     *
+     * @param args the directory, then the signatures to generate (KQK, KRK, KPK and KBNK if none are given)
+     * @throws IOException if a file can't be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: TablebaseGenerator directory [signature...]");
+            System.exit(2);
+        }
+        String[] signatures = args.length > 1 ? Arrays.copyOfRange(args, 1, args.length) : DEFAULT_SIGNATURES;
+        var generator = new TablebaseGenerator();
+        for (String signature : signatures) {
+            long start = System.nanoTime();
+            byte[] table = generator.generate(signature);
+            System.out.printf("%s: longest mate %d plies, %d ms%n", signature, longestMate(table),
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+        generator.write(Path.of(args[0]));
+    }
+
+    /**
+     * @param table a generated table
+     * @return the most plies to mate of any position in it, 0 if nothing in it is won
+     */
+    static int longestMate(byte[] table) {
+        int longest = 0;
+        for (byte entry : table) {
+            int value = entry & 0xFF;
+            if (value != Tablebase.DRAW && value != Tablebase.ILLEGAL) {
+                longest = Math.max(longest, value - 1);
+            }
+        }
+        return longest;
+    }
+
+    /**
+     * @param pieces pieces of a signature
+     * @param index  piece to leave out
+     * @return the other pieces
+     */
+    private static ChessPiece.PieceType[] without(ChessPiece.PieceType[] pieces, int index) {
+        ChessPiece.PieceType[] rest = new ChessPiece.PieceType[pieces.length - 1];
+        System.arraycopy(pieces, 0, rest, 0, index);
+        System.arraycopy(pieces, index + 1, rest, index, rest.length - index);
+        return rest;
+    }
+
+    /**
+     * @param pieces pieces in any order
+     * @return the same array, sorted into signature order
+     */
+    private static ChessPiece.PieceType[] sorted(ChessPiece.PieceType[] pieces) {
+        Arrays.sort(pieces, (a, b) -> Integer.compare(Tablebase.order(a), Tablebase.order(b)));
+        return pieces;
+    }
+
+    /**
+     * Work that can be done on any range of table indices independently
+     */
+    private interface RangeWork {
+
+        /**
+         * @param from first index
+         * @param to   index after the last
+         */
+        void run(int from, int to);
+    }
+
+    /**
+     * Splits a range of indices in half until the pieces are small enough to run directly
+     */
+    private static final class Split extends RecursiveAction {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        // actions are never serialized; the work only runs on the generator's pool
+        private final transient RangeWork work;
+
+        /**
+         * @param from first index
+         * @param to   index after the last
+         * @param work what to do with each piece of the range
+         */
+        Split(int from, int to, RangeWork work) {
+            this.from = from;
+            this.to = to;
+            this.work = work;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT) {
+                work.run(from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Split(from, middle, work), new Split(middle, to, work));
+        }
+    }
+
+    /**
+     * The generation of one table
+     */
+    private final class Build {
+
+        private final ChessPiece.PieceType[] pieces;
+        private final Tablebase subtables;
+        private final int men;
+        // index bit that holds the side to move: 0 when white, the side with the pieces, is to move
+        private final int blackToMove;
+        private final byte[] values;
+        private final byte[] counts;
+        // for undecided positions with a capture or promotion that loses, the most plies it holds out for
+        private final Map<Integer, Integer> exitLosses = new ConcurrentHashMap<>();
+        private final AtomicInteger longest = new AtomicInteger();
+
+        /**
+         * @param pieces    white's pieces besides its king, in signature order
+         * @param subtables the tables captures and promotions lead to
+         */
+        Build(ChessPiece.PieceType[] pieces, Tablebase subtables) {
+            this.pieces = pieces;
+            this.subtables = subtables;
+            men = pieces.length + 2;
+            blackToMove = 1 << (6 * men);
+            values = new byte[Tablebase.size(pieces.length)];
+            counts = new byte[values.length];
+        }
+
+        /**
+         * @return the finished table
+         */
+        byte[] run() {
+            pool.invoke(new Split(0, values.length, this::setUp));
+            for (int plies = 0; plies <= longest.get(); plies++) {
+                int distance = plies;
+                pool.invoke(new Split(0, values.length, (from, to) -> retract(from, to, distance)));
+            }
+            return values;
+        }
+
+        /**
+         * Sets up a range of positions: marks the illegal ones and mates, decides the ones whose every move
+         * leaves the table, and counts the moves that stay in it
+         *
+         * @param from first index
+         * @param to   index after the last
+         */
+        private void setUp(int from, int to) {
+            var board = new ChessBoard();
+            board.setGivenBoard(emptyBoard);
+            var generator = new LegalMoveGenerator();
+            var moves = new MoveList(64);
+            int[] squares = new int[men];
+            for (int index = from; index < to; index++) {
+                ChessGame.TeamColor sideToMove = decode(index, squares);
+                if (!placeable(squares)) {
+                    values[index] = (byte) Tablebase.ILLEGAL;
+                    continue;
+                }
+                place(board, squares, true);
+                ChessGame.TeamColor other = opposite(sideToMove);
+                int otherKing = sideToMove == ChessGame.TeamColor.WHITE ? squares[1] : squares[0];
+                if (generator.attackersTo(board, otherKing, sideToMove, board.getOccupancy()) != 0) {
+                    values[index] = (byte) Tablebase.ILLEGAL;
+                } else {
+                    classify(index, board, sideToMove, other, generator, moves);
+                }
+                place(board, squares, false);
+            }
+        }
+
+        /**
+         * Decides a legal position from its moves where it can, or records what is needed to decide it later
+         *
+         * @param index      position index
+         * @param board      board with the position set up
+         * @param sideToMove side to move
+         * @param other      the other side
+         * @param generator  move generator
+         * @param moves      list to generate into
+         */
+        private void classify(int index, ChessBoard board, ChessGame.TeamColor sideToMove, ChessGame.TeamColor other,
+                              LegalMoveGenerator generator, MoveList moves) {
+            generator.generate(board, sideToMove, -1, moves);
+            if (moves.isEmpty()) {
+                int king = Long.numberOfTrailingZeros(board.getPieceBitboard(sideToMove, ChessPiece.PieceType.KING));
+                boolean inCheck = generator.attackersTo(board, king, other, board.getOccupancy()) != 0;
+                // checkmate is lost in 0 plies; stalemate is left as a draw
+                values[index] = inCheck ? (byte) 1 : (byte) Tablebase.DRAW;
+                return;
+            }
+            int inTable = 0;
+            int drawExit = 0;
+            int fastestWin = Integer.MAX_VALUE;
+            int slowestLoss = 0;
+            for (int i = 0; i < moves.size(); i++) {
+                int move = moves.get(i);
+                if (!Moves.has(move, Moves.CAPTURE) && Moves.promotion(move) == null) {
+                    inTable++;
+                    continue;
+                }
+                board.makeMove(move);
+                int value = subtables.probeValue(board, other);
+                board.unmakeMove();
+                if (value < 0) {
+                    throw new IllegalStateException("No table for the position after " + Moves.toChessMove(move));
+                }
+                if (value == Tablebase.DRAW) {
+                    drawExit = DRAW_EXIT;
+                } else if ((value - 1) % 2 == 0) {
+                    // the opponent is lost in value - 1 plies, so this side wins in value
+                    fastestWin = Math.min(fastestWin, value);
+                } else {
+                    slowestLoss = Math.max(slowestLoss, value);
+                }
+            }
+            if (fastestWin != Integer.MAX_VALUE) {
+                decide(index, fastestWin);
+            } else if (inTable == 0 && drawExit == 0) {
+                decide(index, slowestLoss);
+            } else {
+                counts[index] = (byte) (inTable | drawExit);
+                if (slowestLoss > 0) {
+                    exitLosses.put(index, slowestLoss);
+                }
+            }
+        }
+
+        /**
+         * Walks back from every position decided at one distance: predecessors of a loss are won, and
+         * predecessors of a win have one fewer move that might save them
+         *
+         * @param from  first index
+         * @param to    index after the last
+         * @param plies distance of the positions to walk back from
+         */
+        private void retract(int from, int to, int plies) {
+            int[] squares = new int[men];
+            boolean lost = plies % 2 == 0;
+            for (int index = from; index < to; index++) {
+                if ((values[index] & 0xFF) != plies + 1) {
+                    continue;
+                }
+                ChessGame.TeamColor sideToMove = decode(index, squares);
+                long occupancy = 0;
+                for (int square : squares) {
+                    occupancy |= Bitboards.bit(square);
+                }
+                int firstMover = sideToMove == ChessGame.TeamColor.WHITE ? 1 : 0;
+                int lastMover = sideToMove == ChessGame.TeamColor.WHITE ? 1 : men - 1;
+                for (int slot = firstMover; slot <= lastMover; slot++) {
+                    if (slot == 1 && sideToMove == ChessGame.TeamColor.BLACK) {
+                        continue;
+                    }
+                    int shift = 6 * (men - 1 - slot);
+                    long origins = origins(slot, squares[slot], occupancy);
+                    while (origins != 0) {
+                        int origin = Long.numberOfTrailingZeros(origins);
+                        origins &= origins - 1;
+                        int predecessor = (index ^ blackToMove) + ((origin - squares[slot]) << shift);
+                        if (lost) {
+                            win(predecessor, plies + 1);
+                        } else {
+                            countLoss(predecessor, plies + 1);
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Squares a piece could have moved from without capturing, to reach its square
+         *
+         * @param slot      which piece: 0 white's king, 1 black's king, then white's pieces
+         * @param square    the square it stands on
+         * @param occupancy every occupied square
+         * @return bitboard of empty squares it could have come from
+         */
+        private long origins(int slot, int square, long occupancy) {
+            ChessPiece.PieceType type = slot < 2 ? ChessPiece.PieceType.KING : pieces[slot - 2];
+            long empty = ~occupancy;
+            return switch (type) {
+                case KING -> AttackTables.kingAttacks(square) & empty;
+                case QUEEN -> AttackTables.queenAttacks(square, occupancy) & empty;
+                case BISHOP -> AttackTables.bishopAttacks(square, occupancy) & empty;
+                case KNIGHT -> AttackTables.knightAttacks(square) & empty;
+                case ROOK -> AttackTables.rookAttacks(square, occupancy) & empty;
+                case PAWN -> {
+                    // white pawns only; one on the second row can't have come from the first
+                    if (square < 16 || (occupancy & Bitboards.bit(square - 8)) != 0) {
+                        yield 0L;
+                    }
+                    long from = Bitboards.bit(square - 8);
+                    if (square >= 24 && square < 32 && (occupancy & Bitboards.bit(square - 16)) == 0) {
+                        from |= Bitboards.bit(square - 16);
+                    }
+                    yield from;
+                }
+            };
+        }
+
+        /**
+         * Marks a position won, unless it is already won at least as quickly
+         *
+         * @param index position index
+         * @param plies plies to mate
+         */
+        private void win(int index, int plies) {
+            int value;
+            do {
+                value = (byte) BYTES.getVolatile(values, index) & 0xFF;
+                if (value == Tablebase.ILLEGAL || (value != Tablebase.DRAW && value <= plies + 1)) {
+                    return;
+                }
+            } while (!BYTES.compareAndSet(values, index, (byte) value, (byte) (plies + 1)));
+            extend(plies);
+        }
+
+        /**
+         * Counts off a move that turned out to lose, and marks the position lost once none are left
+         *
+         * @param index position index
+         * @param plies plies to mate after that move
+         */
+        private void countLoss(int index, int plies) {
+            if (((byte) BYTES.getVolatile(values, index) & 0xFF) != Tablebase.DRAW) {
+                return;
+            }
+            int before = (byte) BYTES.getAndAdd(counts, index, (byte) -1);
+            if ((before & COUNT_MASK) == 1 && (before & DRAW_EXIT) == 0) {
+                decide(index, Math.max(plies, exitLosses.getOrDefault(index, 0)));
+            }
+        }
+
+        /**
+         * @param index position index
+         * @param plies plies to mate
+         */
+        private void decide(int index, int plies) {
+            if (plies + 1 >= Tablebase.ILLEGAL) {
+                throw new IllegalStateException("Mate is too far away to store: " + plies + " plies");
+            }
+            BYTES.setVolatile(values, index, (byte) (plies + 1));
+            extend(plies);
+        }
+
+        /**
+         * @param plies a distance just assigned, which the passes need to reach
+         */
+        private void extend(int plies) {
+            longest.accumulateAndGet(plies, Math::max);
+        }
+
+        /**
+         * @param index   position index
+         * @param squares filled with white's king, black's king and white's pieces
+         * @return the side to move
+         */
+        private ChessGame.TeamColor decode(int index, int[] squares) {
+            for (int slot = men - 1; slot >= 0; slot--) {
+                squares[slot] = index & 63;
+                index >>>= 6;
+            }
+            return index == 0 ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+        }
+
+        /**
+         * @param squares squares of the pieces
+         * @return false if two pieces share a square or a pawn is on the first or last row
+         */
+        private boolean placeable(int[] squares) {
+            long seen = 0;
+            for (int slot = 0; slot < men; slot++) {
+                long bit = Bitboards.bit(squares[slot]);
+                if ((seen & bit) != 0) {
+                    return false;
+                }
+                seen |= bit;
+                if (slot >= 2 && pieces[slot - 2] == ChessPiece.PieceType.PAWN
+                        && (squares[slot] < 8 || squares[slot] >= 56)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Puts the pieces of a position on the board, or takes them off again
+         *
+         * @param board   board to change
+         * @param squares squares of the pieces
+         * @param add     true to put the pieces on, false to clear their squares
+         */
+        private void place(ChessBoard board, int[] squares, boolean add) {
+            for (int slot = 0; slot < men; slot++) {
+                ChessPiece piece = null;
+                if (add) {
+                    ChessPiece.PieceType type = slot < 2 ? ChessPiece.PieceType.KING : pieces[slot - 2];
+                    piece = ChessPiece.of(slot == 1 ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE, type);
+                }
+                board.addPiece(ChessPosition.of(squares[slot]), piece);
+            }
+        }
+
+        /**
+         * @param color a side
+         * @return the other side
+         */
+        private ChessGame.TeamColor opposite(ChessGame.TeamColor color) {
+            return color == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        }
+    }
+}
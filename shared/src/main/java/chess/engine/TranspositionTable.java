@@ -0,0 +1,265 @@
+package chess.engine;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size hash table of search results keyed by Zobrist key, shared by any number of searches at once.
+ * <p>
+ * Entries live in one long[], two longs each: the key XORed with the data, then the data. Threads read and
+ * write without locks, so two writers can interleave and leave one entry's key next to another's data. A
+ * probe recomputes key ^ data and only trusts the entry if it gives back the key it asked for, so a torn
+ * entry reads as a miss instead of a wrong result.
+ * <p>
+ * Each key maps to a bucket of two entries. The first keeps the deepest result, since that cost the most to
+ * work out; the second always takes the newest. Every search bumps a generation number stored in the
+ * entries, and results from earlier searches lose their depth preference, so old positions age out.
+ */
+public class TranspositionTable {
+
+    public static final int UPPER = 1;
+    public static final int LOWER = 2;
+    public static final int EXACT = 3;
+
+    private static final int LONGS_PER_ENTRY = 2;
+    private static final int ENTRIES_PER_BUCKET = 2;
+    private static final int BYTES_PER_BUCKET = LONGS_PER_ENTRY * ENTRIES_PER_BUCKET * Long.BYTES;
+    // buckets looked at to estimate fill
+    private static final int FILL_SAMPLE = 1000;
+
+    // data layout: bits 0-18 move, 19-34 score, 35-42 depth, 43-44 bound, 45-52 generation
+    private static final long MOVE_MASK = (1L << 19) - 1;
+    private static final int SCORE_SHIFT = 19;
+    private static final int DEPTH_SHIFT = 35;
+    private static final int BOUND_SHIFT = 43;
+    private static final int GENERATION_SHIFT = 45;
+    private static final long BYTE_MASK = 0xFF;
+    private static final long BOUND_MASK = 0x3;
+
+    private final long[] table;
+    private final int bucketMask;
+    private volatile int generation;
+
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+
+    /**
+     * @param megabytes memory to use, rounded down to a power of two number of buckets
+     */
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("Transposition table needs at least 1 MB");
+        }
+        long buckets = Long.highestOneBit((long) megabytes * 1024 * 1024 / BYTES_PER_BUCKET);
+        if (buckets * LONGS_PER_ENTRY * ENTRIES_PER_BUCKET > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Transposition table of " + megabytes + " MB is too large");
+        }
+        table = new long[(int) buckets * LONGS_PER_ENTRY * ENTRIES_PER_BUCKET];
+        bucketMask = (int) buckets - 1;
+    }
+
+    /**
+     * Starts a new search generation. Entries written before this call can be replaced regardless of depth.
+     */
+    public void newSearch() {
+        generation = (generation + 1) & (int) BYTE_MASK;
+    }
+
+    /**
+     * Looks a position up
+     *
+     * @param key Zobrist key of the position, side to move included
+     * @return the stored data, read with the static accessors, or 0 if the position isn't stored
+     */
+    public long probe(long key) {
+        probes.increment();
+        int index = bucketIndex(key);
+        for (int slot = 0; slot < ENTRIES_PER_BUCKET; slot++) {
+            int entry = index + slot * LONGS_PER_ENTRY;
+            long data = table[entry + 1];
+            if (data != 0 && (table[entry] ^ data) == key) {
+                hits.increment();
+                return data;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Stores a search result, replacing the shallower or older of the two entries in the position's bucket
+     *
+     * @param key   Zobrist key of the position, side to move included
+     * @param move  best move found as a packed move, or 0
+     * @param score score from the side to move's point of view
+     * @param depth depth searched
+     * @param bound UPPER, LOWER or EXACT
+     * @param ply   distance from the root, so mate scores can be stored relative to this position
+     */
+    public void store(long key, int move, int score, int depth, int bound, int ply) {
+        stores.increment();
+        int index = bucketIndex(key);
+        int gen = generation;
+
+        // an entry for the same position is always updated in place, keeping its move if there's no new one
+        int target = -1;
+        for (int slot = 0; slot < ENTRIES_PER_BUCKET; slot++) {
+            int entry = index + slot * LONGS_PER_ENTRY;
+            long data = table[entry + 1];
+            if (data != 0 && (table[entry] ^ data) == key) {
+                if (move == 0) {
+                    move = move(data);
+                }
+                target = entry;
+                break;
+            }
+        }
+        if (target < 0) {
+            long deepest = table[index + 1];
+            boolean keepDeepest = deepest != 0 && generation(deepest) == gen && depth(deepest) > depth;
+            target = keepDeepest ? index + LONGS_PER_ENTRY : index;
+        }
+
+        long data = (move & MOVE_MASK)
+                | (toStoredScore(score, ply) & 0xFFFFL) << SCORE_SHIFT
+                | (Math.max(depth, 0) & BYTE_MASK) << DEPTH_SHIFT
+                | (bound & BOUND_MASK) << BOUND_SHIFT
+                | (gen & BYTE_MASK) << GENERATION_SHIFT;
+        table[target] = key ^ data;
+        table[target + 1] = data;
+    }
+
+    /**
+     * Empties the table and resets its metrics
+     */
+    public void clear() {
+        Arrays.fill(table, 0L);
+        probes.reset();
+        hits.reset();
+        stores.reset();
+    }
+
+    /**
+     * @param data data returned by probe
+     * @return the stored packed move, or 0 if none
+     */
+    public static int move(long data) {
+        return (int) (data & MOVE_MASK);
+    }
+
+    /**
+     * @param data data returned by probe
+     * @param ply  distance of the probing position from the root
+     * @return the stored score, with mate scores adjusted to count from the root
+     */
+    public static int score(long data, int ply) {
+        int score = (short) (data >>> SCORE_SHIFT);
+        if (score >= Search.MATE - Search.MAX_PLY) {
+            return score - ply;
+        }
+        if (score <= -Search.MATE + Search.MAX_PLY) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    /**
+     * @param data data returned by probe
+     * @return the depth the stored result was searched to
+     */
+    public static int depth(long data) {
+        return (int) (data >>> DEPTH_SHIFT & BYTE_MASK);
+    }
+
+    /**
+     * @param data data returned by probe
+     * @return UPPER, LOWER or EXACT
+     */
+    public static int bound(long data) {
+        return (int) (data >>> BOUND_SHIFT & BOUND_MASK);
+    }
+
+    /**
+     * @return number of entries the table can hold
+     */
+    public int capacity() {
+        return table.length / LONGS_PER_ENTRY;
+    }
+
+    /**
+     * @return fraction of probes since the last clear that found their position
+     */
+    public double hitRate() {
+        long probeCount = probes.sum();
+        return probeCount == 0 ? 0 : (double) hits.sum() / probeCount;
+    }
+
+    /**
+     * @return number of probes since the last clear
+     */
+    public long probeCount() {
+        return probes.sum();
+    }
+
+    /**
+     * @return number of stores since the last clear
+     */
+    public long storeCount() {
+        return stores.sum();
+    }
+
+    /**
+     * Estimates how full the table is from a sample of buckets, counting only entries from the current search
+     *
+     * @return fraction of entries in use, 0 to 1
+     */
+    public double fill() {
+        int buckets = Math.min(FILL_SAMPLE, bucketMask + 1);
+        int gen = generation;
+        int used = 0;
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            for (int slot = 0; slot < ENTRIES_PER_BUCKET; slot++) {
+                long data = table[bucket * LONGS_PER_ENTRY * ENTRIES_PER_BUCKET + slot * LONGS_PER_ENTRY + 1];
+                if (data != 0 && generation(data) == gen) {
+                    used++;
+                }
+            }
+        }
+        return (double) used / (buckets * ENTRIES_PER_BUCKET);
+    }
+
+    /**
+     * @param key Zobrist key
+     * @return index in the table of the first long of the key's bucket
+     */
+    private int bucketIndex(long key) {
+        // the low bits pick the bucket; mixing in the high bits spreads keys that differ only there
+        return ((int) (key ^ key >>> 32) & bucketMask) * LONGS_PER_ENTRY * ENTRIES_PER_BUCKET;
+    }
+
+    /**
+     * @param data stored data
+     * @return the generation the data was stored in
+     */
+    private static int generation(long data) {
+        return (int) (data >>> GENERATION_SHIFT & BYTE_MASK);
+    }
+
+    /**
+     * Converts a score to be relative to the position it is stored for, so a mate found at one ply
+     * can be reused at another
+     *
+     * @param score score from the root's point of view of distance
+     * @param ply   distance of the position from the root
+     * @return score to store
+     */
+    private static int toStoredScore(int score, int ply) {
+        if (score >= Search.MATE - Search.MAX_PLY) {
+            return score + ply;
+        }
+        if (score <= -Search.MATE + Search.MAX_PLY) {
+            return score - ply;
+        }
+        return score;
+    }
+}
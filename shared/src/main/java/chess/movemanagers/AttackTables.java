@@ -0,0 +1,294 @@
+package chess.movemanagers;
+
+import chess.Bitboards;
+import chess.ChessGame;
+
+/**
+ * Precomputed attack tables shared by every board.
+ * <p>
+ * Knight, king and pawn attacks are plain per-square lookups. Rook and bishop attacks use magic bitboards:
+ * the blockers on a square's relevant rays are multiplied by a magic number, and the top bits of the product
+ * index straight into a table of attack sets. Everything is built once when the class loads.
+ * <p>
+ * The magic numbers were found offline with a seeded random search; any magic that maps every blocker
+ * subset without a destructive collision works, so they only need regenerating if the square layout changes.
+ */
+public final class AttackTables {
+
+    private static final int[][] KNIGHT_STEPS = {{2, -1}, {2, 1}, {-2, -1}, {-2, 1}, {1, -2}, {-1, -2}, {1, 2}, {-1, 2}};
+    private static final int[][] KING_STEPS = {{0, -1}, {0, 1}, {1, 0}, {-1, 0}, {1, -1}, {1, 1}, {-1, -1}, {-1, 1}};
+    private static final int[][] ROOK_DIRECTIONS = {{0, -1}, {0, 1}, {1, 0}, {-1, 0}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1, -1}, {1, 1}, {-1, -1}, {-1, 1}};
+
+    private static final long[] KNIGHT_ATTACKS = new long[64];
+    private static final long[] KING_ATTACKS = new long[64];
+    private static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final long[] ROOK_MAGICS = {
+            0x1080004008801020L, 0x0840092002C03000L, 0x1900200010400900L, 0x0880100008000480L,
+            0x4200100420080200L, 0x8100020100080400L, 0x0200040110886200L, 0x0200008040220411L,
+            0x0404800084400220L, 0x0000401000402000L, 0x0086001081220440L, 0x0408800800100280L,
+            0x000A001201040820L, 0x8848800200840080L, 0x4001000100040200L, 0x0442000102105084L,
+            0x9080010020804100L, 0x0040404000201009L, 0x0000808010002009L, 0x2200090021D00100L,
+            0x0008008008040080L, 0x0004004002010040L, 0x0011040008015042L, 0x00000A0001768104L,
+            0x0000800080204009L, 0x2010004140002001L, 0x9800200280100080L, 0x1000100080080080L,
+            0x0050500500080100L, 0x0000020080040080L, 0x0C10010400420810L, 0x1040008200005104L,
+            0x01808240088004A0L, 0x0882804004802000L, 0x0880402001001100L, 0x2000210409001000L,
+            0x2000480131001500L, 0x0000800400800200L, 0x000002380C001003L, 0x4600084882000431L,
+            0x0080002000504000L, 0x0300500020004002L, 0x0040408200220011L, 0x0010040008004040L,
+            0x0000080004008080L, 0x0010040002008080L, 0x2012004881020004L, 0x8300842444820011L,
+            0x0088403882010200L, 0x0820400080210100L, 0x0110910040A00300L, 0x0801100280080480L,
+            0x0242009008200600L, 0x1002000489500200L, 0x0040800200010080L, 0x0091800041000080L,
+            0x0000209300488001L, 0x04C1002414824001L, 0x020020000B001041L, 0x7000100004200901L,
+            0x8002002004100802L, 0x30010002084C0007L, 0x0888221800813004L, 0x4000002840840112L
+    };
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final int[] ROOK_OFFSETS = new int[64];
+
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final long[] BISHOP_MAGICS = {
+            0x20C0090901061081L, 0x0024040094030104L, 0x8210810200290200L, 0x0011040484620000L,
+            0x0081104002221000L, 0x0009012011001350L, 0x0081010802400380L, 0x0000420210010408L,
+            0x0008105002280050L, 0x0001028484040044L, 0x2A00880810408804L, 0x7020022282000100L,
+            0x0084040420100A50L, 0x000401010840E000L, 0x2020020210420888L, 0x0008084202012010L,
+            0x2010400810018800L, 0x0445122008020840L, 0x0804100808002008L, 0x0008002104110100L,
+            0x0061005820080800L, 0x2001000200820100L, 0x480C210084010800L, 0x3004442500480420L,
+            0x1010102240048100L, 0x00182009084220A3L, 0x8803090A10004205L, 0x0208080040202020L,
+            0x000C044084010040L, 0x00A1010002004106L, 0x6008210020640202L, 0x1600902112860801L,
+            0x00042008C1220200L, 0x010C042002440140L, 0x5022080200040820L, 0x0402004042940100L,
+            0x0860108400008020L, 0x000C080022021000L, 0x0264080652822100L, 0x4005031221010401L,
+            0x0004502410008400L, 0x000500B010A20400L, 0x0415094050080800L, 0x080000201800A104L,
+            0x4022A80304000110L, 0x4012140802028020L, 0x40200104010100A0L, 0x12810806008B0C41L,
+            0x0020441008080000L, 0x2002120084045420L, 0x0704020062080002L, 0x0000001084040001L,
+            0x0322200891240200L, 0xF040200210024800L, 0x0140824832008042L, 0x000210020A004602L,
+            0x0083042805141020L, 0x002C12009A011000L, 0x0041A00044140400L, 0x00004004020A0202L,
+            0x0000140010020210L, 0x2864160811012200L, 0x2060080841082A17L, 0xA010041108003100L
+    };
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final int[] BISHOP_OFFSETS = new int[64];
+
+    private static final long[] SLIDER_ATTACKS;
+
+    private static final long[][] BETWEEN = new long[64][64];
+    private static final long[][] LINE = new long[64][64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            KNIGHT_ATTACKS[square] = stepAttacks(square, KNIGHT_STEPS);
+            KING_ATTACKS[square] = stepAttacks(square, KING_STEPS);
+            PAWN_ATTACKS[ChessGame.TeamColor.WHITE.ordinal()][square] = stepAttacks(square, new int[][]{{1, -1}, {1, 1}});
+            PAWN_ATTACKS[ChessGame.TeamColor.BLACK.ordinal()][square] = stepAttacks(square, new int[][]{{-1, -1}, {-1, 1}});
+            ROOK_MASKS[square] = relevantMask(square, ROOK_DIRECTIONS);
+            BISHOP_MASKS[square] = relevantMask(square, BISHOP_DIRECTIONS);
+        }
+
+        int size = 0;
+        for (int square = 0; square < 64; square++) {
+            ROOK_OFFSETS[square] = size;
+            size += 1 << Long.bitCount(ROOK_MASKS[square]);
+        }
+        for (int square = 0; square < 64; square++) {
+            BISHOP_OFFSETS[square] = size;
+            size += 1 << Long.bitCount(BISHOP_MASKS[square]);
+        }
+        SLIDER_ATTACKS = new long[size];
+
+        for (int square = 0; square < 64; square++) {
+            fillSliderTable(square, ROOK_DIRECTIONS, ROOK_MASKS, ROOK_MAGICS, ROOK_SHIFTS, ROOK_OFFSETS);
+            fillSliderTable(square, BISHOP_DIRECTIONS, BISHOP_MASKS, BISHOP_MAGICS, BISHOP_SHIFTS, BISHOP_OFFSETS);
+        }
+
+        for (int from = 0; from < 64; from++) {
+            for (int to = 0; to < 64; to++) {
+                long toBit = Bitboards.bit(to);
+                long fromBit = Bitboards.bit(from);
+                if ((rookAttacks(from, 0L) & toBit) != 0) {
+                    BETWEEN[from][to] = rookAttacks(from, toBit) & rookAttacks(to, fromBit);
+                    LINE[from][to] = (rookAttacks(from, 0L) & rookAttacks(to, 0L)) | fromBit | toBit;
+                } else if ((bishopAttacks(from, 0L) & toBit) != 0) {
+                    BETWEEN[from][to] = bishopAttacks(from, toBit) & bishopAttacks(to, fromBit);
+                    LINE[from][to] = (bishopAttacks(from, 0L) & bishopAttacks(to, 0L)) | fromBit | toBit;
+                }
+            }
+        }
+    }
+
+    private AttackTables() {
+
+    }
+
+    /**
+     * @param square square index
+     * @return squares a knight on the square attacks
+     */
+    public static long knightAttacks(int square) {
+        return KNIGHT_ATTACKS[square];
+    }
+
+    /**
+     * @param square square index
+     * @return squares a king on the square attacks
+     */
+    public static long kingAttacks(int square) {
+        return KING_ATTACKS[square];
+    }
+
+    /**
+     * @param square square index
+     * @param color  color of the pawn
+     * @return the two (or one) diagonal squares a pawn of the given color attacks
+     */
+    public static long pawnAttacks(int square, ChessGame.TeamColor color) {
+        return PAWN_ATTACKS[color.ordinal()][square];
+    }
+
+    /**
+     * @param square    square index
+     * @param occupancy every occupied square on the board
+     * @return squares a rook attacks, including the first blocker on each ray
+     */
+    public static long rookAttacks(int square, long occupancy) {
+        int index = (int) (((occupancy & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square]);
+        return SLIDER_ATTACKS[ROOK_OFFSETS[square] + index];
+    }
+
+    /**
+     * @param square    square index
+     * @param occupancy every occupied square on the board
+     * @return squares a bishop attacks, including the first blocker on each ray
+     */
+    public static long bishopAttacks(int square, long occupancy) {
+        int index = (int) (((occupancy & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square]);
+        return SLIDER_ATTACKS[BISHOP_OFFSETS[square] + index];
+    }
+
+    /**
+     * @param square    square index
+     * @param occupancy every occupied square on the board
+     * @return squares a queen attacks, including the first blocker on each ray
+     */
+    public static long queenAttacks(int square, long occupancy) {
+        return rookAttacks(square, occupancy) | bishopAttacks(square, occupancy);
+    }
+
+    /**
+     * Returns the squares strictly between two squares that share a rank, file or diagonal
+     *
+     * @param from first square index
+     * @param to   second square index
+     * @return bitboard of the squares between them, or 0 if they are not aligned
+     */
+    public static long between(int from, int to) {
+        return BETWEEN[from][to];
+    }
+
+    /**
+     * Returns the whole rank, file or diagonal running through two squares
+     *
+     * @param from first square index
+     * @param to   second square index
+     * @return bitboard of the full line, edge to edge, or 0 if they are not aligned
+     */
+    public static long line(int from, int to) {
+        return LINE[from][to];
+    }
+
+    /**
+     * Builds the attack set for a piece that takes single steps
+     *
+     * @param square square index
+     * @param steps  int[][] of row and column offsets
+     * @return bitboard of every on-board destination
+     */
+    private static long stepAttacks(int square, int[][] steps) {
+        long attacks = 0L;
+        for (int[] step : steps) {
+            int row = Bitboards.rowOf(square) + step[0];
+            int col = Bitboards.colOf(square) + step[1];
+            if (Bitboards.withinBounds(row, col)) {
+                attacks |= Bitboards.bit(Bitboards.square(row, col));
+            }
+        }
+        return attacks;
+    }
+
+    /**
+     * Walks each ray from a square until it leaves the board or hits a blocker
+     *
+     * @param square     square index
+     * @param directions int[][] of ray directions
+     * @param occupancy  blockers
+     * @return bitboard of attacked squares
+     */
+    private static long slidingAttacks(int square, int[][] directions, long occupancy) {
+        long attacks = 0L;
+        for (int[] direction : directions) {
+            int row = Bitboards.rowOf(square) + direction[0];
+            int col = Bitboards.colOf(square) + direction[1];
+            while (Bitboards.withinBounds(row, col)) {
+                long bit = Bitboards.bit(Bitboards.square(row, col));
+                attacks |= bit;
+                if ((occupancy & bit) != 0) {
+                    break;
+                }
+                row += direction[0];
+                col += direction[1];
+            }
+        }
+        return attacks;
+    }
+
+    /**
+     * Returns the squares whose occupancy can change a slider's attacks: every ray square except the board edge
+     *
+     * @param square     square index
+     * @param directions int[][] of ray directions
+     * @return relevant occupancy mask
+     */
+    private static long relevantMask(int square, int[][] directions) {
+        long mask = 0L;
+        for (int[] direction : directions) {
+            int row = Bitboards.rowOf(square) + direction[0];
+            int col = Bitboards.colOf(square) + direction[1];
+            while (Bitboards.withinBounds(row + direction[0], col + direction[1])) {
+                mask |= Bitboards.bit(Bitboards.square(row, col));
+                row += direction[0];
+                col += direction[1];
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Fills one square's slice of the shared slider table, enumerating every blocker subset of its mask
+     *
+     * @param square     square index
+     * @param directions ray directions of the piece
+     * @param masks      relevant occupancy masks
+     * @param magics     magic numbers
+     * @param shifts     index shifts to fill in
+     * @param offsets    start of each square's slice of the shared table
+     */
+    private static void fillSliderTable(int square, int[][] directions, long[] masks, long[] magics, int[] shifts,
+                                        int[] offsets) {
+        long mask = masks[square];
+        int bits = Long.bitCount(mask);
+        shifts[square] = 64 - bits;
+        boolean[] filled = new boolean[1 << bits];
+
+        // carry-rippler: walks every subset of the mask, ending back at the empty set
+        long subset = 0L;
+        do {
+            long attacks = slidingAttacks(square, directions, subset);
+            int index = (int) ((subset * magics[square]) >>> shifts[square]);
+            int slot = offsets[square] + index;
+            if (filled[index] && SLIDER_ATTACKS[slot] != attacks) {
+                throw new IllegalStateException("Bad magic number for square " + square);
+            }
+            filled[index] = true;
+            SLIDER_ATTACKS[slot] = attacks;
+            subset = (subset - mask) & mask;
+        } while (subset != 0);
+    }
+}
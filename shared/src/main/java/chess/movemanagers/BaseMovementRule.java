@@ -1,7 +1,7 @@
 package chess.movemanagers;
 
+import chess.Bitboards;
 import chess.ChessBoard;
-import chess.ChessGame;
 import chess.ChessMove;
 import chess.ChessPosition;
 
@@ -11,64 +11,29 @@ import java.util.Collection;
 public abstract class BaseMovementRule implements MovementRule {
 
     /**
-     * Checks whether a given row and column are within bounds
-     *
-     * @param row row number
-     * @param col column number
-     * @return true if within bounds, false otherwise
-     */
-    private boolean withinBounds(int row, int col) {
-        return row <= 8 && row > 0 && col <= 8 && col > 0;
-    }
-
-    /**
-     * Calculates the possible moveset for a given piece and board
+     * Calculates the possible moveset for a given piece and board from its attack mask
      *
      * @param board      current board
      * @param myPosition position of piece
-     * @param steps      int[][] of steps the piece could take in any direction
-     * @param recursive  boolean of whether the movement is recursive
      * @return Collection of ChessMoves dictating the possible moveset of the piece
      */
-    protected Collection<ChessMove> calculateMoves(ChessBoard board, ChessPosition myPosition, final int[][] steps, final boolean recursive) {
-        var possibleMoves = new ArrayList<ChessMove>();
-
-        for (int[] step : steps) {
-            int rowAdder = step[0];
-            int colAdder = step[1];
-            int row = myPosition.getRow() + rowAdder;
-            int col = myPosition.getColumn() + colAdder;
-
-            var currentPosition = new ChessPosition(row, col);
-            ChessGame.TeamColor myColor = board.getPiece(myPosition).getTeamColor();
-
-            if (!withinBounds(row, col)) {
-                continue;
-            }
-
-            if (!board.checkFriendlyPosition(currentPosition, myColor)) {
-                possibleMoves.add(new ChessMove(myPosition, currentPosition, null));
-            }
-
-            boolean blocked = board.checkFriendlyPosition(currentPosition, myColor) || board.checkEnemyPosition(currentPosition, myColor);
-
-            row += rowAdder;
-            col += colAdder;
-
-            while (recursive && !blocked && withinBounds(row, col)) {
-                currentPosition = new ChessPosition(row, col);
-                if (!board.checkFriendlyPosition(currentPosition, myColor)) {
-                    possibleMoves.add(new ChessMove(myPosition, currentPosition, null));
-                }
-                blocked = board.checkFriendlyPosition(currentPosition, myColor) || board.checkEnemyPosition(currentPosition, myColor);
-                row += rowAdder;
-                col += colAdder;
-            }
+    protected Collection<ChessMove> calculateMoves(ChessBoard board, ChessPosition myPosition) {
+        int square = Bitboards.square(myPosition);
+        long friendly = board.getTeamOccupancy(board.getPiece(square).getTeamColor());
+        long targets = attackMask(board, square) & ~friendly;
+
+        var possibleMoves = new ArrayList<ChessMove>(Long.bitCount(targets));
+        while (targets != 0) {
+            int target = Long.numberOfTrailingZeros(targets);
+            possibleMoves.add(new ChessMove(myPosition, ChessPosition.of(target), null));
+            targets &= targets - 1;
         }
-
         return possibleMoves;
     }
 
     @Override
     public abstract Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition);
+
+    @Override
+    public abstract long attackMask(ChessBoard board, int square);
 }
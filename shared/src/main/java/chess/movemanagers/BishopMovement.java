@@ -7,8 +7,6 @@ import chess.ChessPosition;
 import java.util.Collection;
 
 public class BishopMovement extends BaseMovementRule {
-    private final int[][] steps = {{1, -1}, {1, 1}, {-1, -1}, {-1, 1}};
-    private final boolean recursive = true;
 
     public BishopMovement() {
 
@@ -16,6 +14,11 @@ public class BishopMovement extends BaseMovementRule {
 
     @Override
     public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition) {
-        return calculateMoves(board, myPosition, steps, recursive);
+        return calculateMoves(board, myPosition);
+    }
+
+    @Override
+    public long attackMask(ChessBoard board, int square) {
+        return AttackTables.bishopAttacks(square, board.getOccupancy());
     }
 }
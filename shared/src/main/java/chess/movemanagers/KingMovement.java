@@ -5,23 +5,13 @@ import chess.*;
 import java.util.Collection;
 
 public class KingMovement extends BaseMovementRule {
-    private final int[][] steps = {{0, -1}, {0, 1}, {1, 0}, {-1, 0}, {1, -1}, {1, 1}, {-1, -1}, {-1, 1}};
-    private final boolean recursive = false;
+    private static final long BETWEEN_LEFT = 0b00001110L;
+    private static final long BETWEEN_RIGHT = 0b01100000L;
 
     public KingMovement() {
 
     }
 
-    /**
-     * Checks if a piece is a rook
-     *
-     * @param piece The ChessPiece to check
-     * @return true if piece is a rook, false otherwise
-     */
-    private boolean checkIsRook(ChessPiece piece) {
-        return piece != null && piece.getPieceType() == ChessPiece.PieceType.ROOK;
-    }
-
     /**
      * Checks the spaces between the king and rook on the left
      *
@@ -30,12 +20,7 @@ public class KingMovement extends BaseMovementRule {
      * @return false if there is a piece between the rook and King, true otherwise
      */
     private boolean checkBetweenLeft(ChessBoard board, int row) {
-        for (int i = 4; i > 1; i--) {
-            if (board.getPiece(new ChessPosition(row, i)) != null) {
-                return false;
-            }
-        }
-        return true;
+        return (board.getOccupancy() & (BETWEEN_LEFT << ((row - 1) * 8))) == 0;
     }
 
     /**
@@ -46,12 +31,7 @@ public class KingMovement extends BaseMovementRule {
      * @return false if there is a piece between the rook and King, true otherwise
      */
     private boolean checkBetweenRight(ChessBoard board, int row) {
-        for (int i = 6; i < 8; i++) {
-            if (board.getPiece(new ChessPosition(row, i)) != null) {
-                return false;
-            }
-        }
-        return true;
+        return (board.getOccupancy() & (BETWEEN_RIGHT << ((row - 1) * 8))) == 0;
     }
 
     /**
@@ -62,31 +42,31 @@ public class KingMovement extends BaseMovementRule {
      * @param possibleMoves Collection of possible ChessMoves
      */
     private void checkCastling(ChessBoard board, ChessPosition myPosition, Collection<ChessMove> possibleMoves) {
-        ChessPiece myPiece = board.getPiece(myPosition);
-        int startRow = myPiece.getTeamColor() == ChessGame.TeamColor.WHITE ? 1 : 8;
-        if (myPiece.getHasMoved() || myPosition.getRow() != startRow) {
+        ChessGame.TeamColor myColor = board.getPiece(myPosition).getTeamColor();
+        int startRow = myColor == ChessGame.TeamColor.WHITE ? 1 : 8;
+        if (myPosition.getRow() != startRow) {
             return;
         }
 
-        ChessPosition firstRookPosition = new ChessPosition(startRow, 1);
-        ChessPosition secondRookPosition = new ChessPosition(startRow, 8);
-        ChessPiece firstRook = board.getPiece(firstRookPosition);
-        ChessPiece secondRook = board.getPiece(secondRookPosition);
-
-        if (checkIsRook(firstRook) && !firstRook.getHasMoved() && checkBetweenLeft(board, startRow)) {
-            possibleMoves.add(new ChessMove(myPosition, new ChessPosition(startRow, 3), null));
+        if (board.hasCastlingRight(myColor, false) && checkBetweenLeft(board, startRow)) {
+            possibleMoves.add(new ChessMove(myPosition, ChessPosition.of(startRow, 3), null));
         }
 
-        if (checkIsRook(secondRook) && !secondRook.getHasMoved() && checkBetweenRight(board, startRow)) {
-            possibleMoves.add(new ChessMove(myPosition, new ChessPosition(startRow, 7), null));
+        if (board.hasCastlingRight(myColor, true) && checkBetweenRight(board, startRow)) {
+            possibleMoves.add(new ChessMove(myPosition, ChessPosition.of(startRow, 7), null));
         }
 
     }
 
     @Override
     public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition) {
-        Collection<ChessMove> possibleMoves = calculateMoves(board, myPosition, steps, recursive);
+        Collection<ChessMove> possibleMoves = calculateMoves(board, myPosition);
         checkCastling(board, myPosition, possibleMoves);
         return possibleMoves;
     }
+
+    @Override
+    public long attackMask(ChessBoard board, int square) {
+        return AttackTables.kingAttacks(square);
+    }
 }
@@ -7,8 +7,6 @@ import chess.ChessPosition;
 import java.util.Collection;
 
 public class KnightMovement extends BaseMovementRule {
-    private final int[][] steps = {{2, -1}, {2, 1}, {-2, -1}, {-2, 1}, {1, -2}, {-1, -2}, {1, 2}, {-1, 2}};
-    private final boolean recursive = false;
 
     public KnightMovement() {
 
@@ -16,6 +14,11 @@ public class KnightMovement extends BaseMovementRule {
 
     @Override
     public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition) {
-        return calculateMoves(board, myPosition, steps, recursive);
+        return calculateMoves(board, myPosition);
+    }
+
+    @Override
+    public long attackMask(ChessBoard board, int square) {
+        return AttackTables.knightAttacks(square);
     }
 }
@@ -32,17 +32,6 @@ public class MoveManager implements MovementRule {
         return endColumn == startColumn + 2 || endColumn == startColumn - 2;
     }
 
-    /**
-     * Checks if a pawn's move will be EnPassant or not
-     *
-     * @param move the move being made
-     * @return true if an enPassant move, false otherwise
-     */
-    public boolean pawnWantsEnPassant(ChessBoard board, ChessMove move) {
-        return board.getPiece(move.getEndPosition()) == null &&
-                move.getEndPosition().getRow() != 8 && move.getEndPosition().getRow() != 1;
-    }
-
     /**
      * Determines what type the current piece is and calls a MovementRule accordingly
      *
@@ -67,4 +56,23 @@ public class MoveManager implements MovementRule {
 
         return possibleMoves;
     }
+
+    /**
+     * Determines what type the piece on a square is and returns its attack mask
+     *
+     * @param board  current ChessBoard
+     * @param square square index of the piece
+     * @return bitboard of squares the piece attacks
+     */
+    @Override
+    public long attackMask(ChessBoard board, int square) {
+        return switch (board.getPiece(square).getPieceType()) {
+            case ChessPiece.PieceType.ROOK -> rook.attackMask(board, square);
+            case ChessPiece.PieceType.KNIGHT -> knight.attackMask(board, square);
+            case ChessPiece.PieceType.BISHOP -> bishop.attackMask(board, square);
+            case ChessPiece.PieceType.QUEEN -> queen.attackMask(board, square);
+            case ChessPiece.PieceType.KING -> king.attackMask(board, square);
+            case ChessPiece.PieceType.PAWN -> pawn.attackMask(board, square);
+        };
+    }
 }
@@ -15,4 +15,14 @@ public interface MovementRule {
      * @return Collection of ChessMoves defining the possible moves
      */
     public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition);
+
+    /**
+     * Returns the squares the piece on the given square attacks, as a bitboard. Friendly pieces are
+     * included, so callers mask them off when generating moves.
+     *
+     * @param board  current ChessBoard
+     * @param square square index of the piece
+     * @return bitboard of attacked squares
+     */
+    public long attackMask(ChessBoard board, int square);
 }
@@ -52,10 +52,10 @@ public class PawnMovement implements MovementRule {
      */
     private boolean checkManyPositions(ChessBoard board, ChessPosition currentPosition, ChessGame.TeamColor myColor) {
         int offset = myColor == ChessGame.TeamColor.WHITE ? -1 : 1;
-        ChessPosition lowerPosition = new ChessPosition(currentPosition.getRow() + offset, currentPosition.getColumn());
+        ChessPosition lowerPosition = ChessPosition.of(currentPosition.getRow() + offset, currentPosition.getColumn());
 
         return board.checkFriendlyPosition(currentPosition, myColor) || board.checkFriendlyPosition(lowerPosition, myColor) ||
-                board.checkEnemyPosition(currentPosition, myColor) || board.checkEnemyPosition(currentPosition, myColor);
+                board.checkEnemyPosition(currentPosition, myColor) || board.checkEnemyPosition(lowerPosition, myColor);
 
     }
 
@@ -78,7 +78,7 @@ public class PawnMovement implements MovementRule {
             int row = myPosition.getRow() + rowAdder;
             int col = myPosition.getColumn() + colAdder;
 
-            var currentPosition = new ChessPosition(row, col);
+            var currentPosition = ChessPosition.of(row, col);
 
 
             if (Arrays.equals(step, invalidStep) || !checkBounds(row, col) || board.checkFriendlyPosition(currentPosition, myColor)) {
@@ -133,4 +133,9 @@ public class PawnMovement implements MovementRule {
 
         return calculateMoves(board, myPosition, myColor, steps);
     }
+
+    @Override
+    public long attackMask(ChessBoard board, int square) {
+        return AttackTables.pawnAttacks(square, board.getPiece(square).getTeamColor());
+    }
 }
@@ -7,8 +7,6 @@ import chess.ChessPosition;
 import java.util.Collection;
 
 public class RookMovement extends BaseMovementRule {
-    private final int[][] steps = {{0, -1}, {0, 1}, {1, 0}, {-1, 0}};
-    private final boolean recursive = true;
 
     public RookMovement() {
 
@@ -16,6 +14,11 @@ public class RookMovement extends BaseMovementRule {
 
     @Override
     public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition) {
-        return calculateMoves(board, myPosition, steps, recursive);
+        return calculateMoves(board, myPosition);
+    }
+
+    @Override
+    public long attackMask(ChessBoard board, int square) {
+        return AttackTables.rookAttacks(square, board.getOccupancy());
     }
 }
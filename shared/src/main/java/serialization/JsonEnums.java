@@ -0,0 +1,28 @@
+package serialization;
+
+import com.google.gson.JsonParseException;
+
+/**
+ * Reads enum constants for the streaming adapters, so an unknown name is reported like any other
+ * malformed JSON rather than escaping fromJson as an IllegalArgumentException
+ */
+public final class JsonEnums {
+
+    private JsonEnums() {
+
+    }
+
+    /**
+     * @param type enum to read
+     * @param name constant name from the JSON
+     * @return the constant with that name
+     * @throws JsonParseException if the enum has no constant with that name
+     */
+    public static <E extends Enum<E>> E valueOf(Class<E> type, String name) {
+        try {
+            return Enum.valueOf(type, name);
+        } catch (IllegalArgumentException ex) {
+            throw new JsonParseException("Unknown " + type.getSimpleName() + " " + name, ex);
+        }
+    }
+}
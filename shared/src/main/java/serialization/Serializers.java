@@ -0,0 +1,41 @@
+package serialization;
+
+import chess.*;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import websocket.commands.UserGameCommand;
+import websocket.commands.UserGameCommandAdapter;
+import websocket.messages.ServerMessage;
+import websocket.messages.ServerMessageAdapter;
+
+/**
+ * Builds the Gson instances the server and client share, with streaming adapters registered for
+ * the chess types and websocket messages so neither side walks them by reflection
+ */
+public final class Serializers {
+
+    private Serializers() {
+
+    }
+
+    /**
+     * @return a GsonBuilder with every adapter registered, for callers that need more settings
+     */
+    public static GsonBuilder builder() {
+        return new GsonBuilder()
+                .registerTypeAdapter(ChessPosition.class, new ChessPositionAdapter().nullSafe())
+                .registerTypeAdapter(ChessPiece.class, new ChessPieceAdapter().nullSafe())
+                .registerTypeAdapter(ChessMove.class, new ChessMoveAdapter().nullSafe())
+                .registerTypeAdapter(ChessBoard.class, new ChessBoardAdapter().nullSafe())
+                .registerTypeAdapter(ChessGame.class, new ChessGameAdapter().nullSafe())
+                .registerTypeAdapter(UserGameCommand.class, new UserGameCommandAdapter().nullSafe())
+                .registerTypeHierarchyAdapter(ServerMessage.class, new ServerMessageAdapter().nullSafe());
+    }
+
+    /**
+     * @return a Gson with every adapter registered
+     */
+    public static Gson gson() {
+        return builder().create();
+    }
+}
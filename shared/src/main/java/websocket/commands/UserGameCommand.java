@@ -35,7 +35,8 @@ public class UserGameCommand {
         CONNECT,
         MAKE_MOVE,
         LEAVE,
-        RESIGN
+        RESIGN,
+        ANALYZE
     }
 
     public CommandType getCommandType() {
@@ -0,0 +1,65 @@
+package websocket.commands;
+
+import chess.ChessMove;
+import chess.ChessMoveAdapter;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import serialization.JsonEnums;
+
+import java.io.IOException;
+
+/**
+ * Streams a UserGameCommand with the same field names reflective Gson uses, leaving out the
+ * move when there is none
+ */
+public final class UserGameCommandAdapter extends TypeAdapter<UserGameCommand> {
+
+    private final ChessMoveAdapter moveAdapter = new ChessMoveAdapter();
+
+    @Override
+    public void write(JsonWriter out, UserGameCommand command) throws IOException {
+        out.beginObject();
+        if (command.getCommandType() != null) {
+            out.name("commandType").value(command.getCommandType().name());
+        }
+        if (command.getAuthToken() != null) {
+            out.name("authToken").value(command.getAuthToken());
+        }
+        if (command.getGameID() != null) {
+            out.name("gameID").value(command.getGameID());
+        }
+        if (command.getMove() != null) {
+            out.name("move");
+            moveAdapter.write(out, command.getMove());
+        }
+        out.endObject();
+    }
+
+    @Override
+    public UserGameCommand read(JsonReader in) throws IOException {
+        UserGameCommand.CommandType commandType = null;
+        String authToken = null;
+        Integer gameID = null;
+        ChessMove move = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "commandType" ->
+                        commandType = JsonEnums.valueOf(UserGameCommand.CommandType.class, in.nextString());
+                case "authToken" -> authToken = in.nextString();
+                case "gameID" -> gameID = in.nextInt();
+                case "move" -> move = moveAdapter.read(in);
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        return new UserGameCommand(commandType, authToken, gameID, move);
+    }
+}
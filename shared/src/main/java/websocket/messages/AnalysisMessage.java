@@ -0,0 +1,76 @@
+package websocket.messages;
+
+import chess.ChessMove;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The engine's view of a game's current position, sent in answer to an ANALYZE command.
+ * Scores are in centipawns from the side to move's point of view.
+ */
+public class AnalysisMessage extends ServerMessage {
+    private final ChessMove bestMove;
+    private final int score;
+    private final int mateIn;
+    private final int depth;
+    private final List<ChessMove> principalVariation;
+
+    /**
+     * @param serverMessageType  ANALYSIS
+     * @param bestMove           best move found, or null if the side to move has no legal moves
+     * @param score              centipawns for the side to move
+     * @param mateIn             moves until mate, negative if the side to move is mated, 0 if no mate was found
+     * @param depth              deepest search iteration that finished
+     * @param principalVariation line the engine expects, starting with bestMove
+     */
+    public AnalysisMessage(ServerMessageType serverMessageType, ChessMove bestMove, int score, int mateIn, int depth,
+                           List<ChessMove> principalVariation) {
+        super(serverMessageType);
+        this.bestMove = bestMove;
+        this.score = score;
+        this.mateIn = mateIn;
+        this.depth = depth;
+        this.principalVariation = List.copyOf(principalVariation);
+    }
+
+    public ChessMove getBestMove() {
+        return bestMove;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getMateIn() {
+        return mateIn;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public List<ChessMove> getPrincipalVariation() {
+        return principalVariation;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if (!(o instanceof AnalysisMessage that)) {
+            return false;
+        }
+
+        return getServerMessageType() == that.getServerMessageType() && Objects.equals(getBestMove(), that.getBestMove())
+                && getScore() == that.getScore() && getMateIn() == that.getMateIn() && getDepth() == that.getDepth()
+                && getPrincipalVariation().equals(that.getPrincipalVariation());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getServerMessageType(), getBestMove(), getScore(), getMateIn(), getDepth(), getPrincipalVariation());
+    }
+}
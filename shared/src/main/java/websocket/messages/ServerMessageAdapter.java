@@ -0,0 +1,108 @@
+package websocket.messages;
+
+import chess.ChessGame;
+import chess.ChessGameAdapter;
+import chess.ChessMove;
+import chess.ChessMoveAdapter;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import serialization.JsonEnums;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams ServerMessage and its subclasses with the same field names reflective Gson uses.
+ * Reading looks at serverMessageType and returns the matching subclass, so a message can be
+ * read as a plain ServerMessage and checked with instanceof.
+ */
+public final class ServerMessageAdapter extends TypeAdapter<ServerMessage> {
+
+    private final ChessGameAdapter gameAdapter = new ChessGameAdapter();
+    private final ChessMoveAdapter moveAdapter = new ChessMoveAdapter();
+
+    @Override
+    public void write(JsonWriter out, ServerMessage message) throws IOException {
+        out.beginObject();
+        if (message.getServerMessageType() != null) {
+            out.name("serverMessageType").value(message.getServerMessageType().name());
+        }
+        if (message instanceof LoadGameMessage load && load.getGame() != null) {
+            out.name("game");
+            gameAdapter.write(out, load.getGame());
+        } else if (message instanceof NotificationMessage notification && notification.getMessage() != null) {
+            out.name("message").value(notification.getMessage());
+        } else if (message instanceof ErrorMessage error && error.getErrorMessage() != null) {
+            out.name("errorMessage").value(error.getErrorMessage());
+        } else if (message instanceof AnalysisMessage analysis) {
+            if (analysis.getBestMove() != null) {
+                out.name("bestMove");
+                moveAdapter.write(out, analysis.getBestMove());
+            }
+            out.name("score").value(analysis.getScore());
+            out.name("mateIn").value(analysis.getMateIn());
+            out.name("depth").value(analysis.getDepth());
+            out.name("principalVariation").beginArray();
+            for (ChessMove move : analysis.getPrincipalVariation()) {
+                moveAdapter.write(out, move);
+            }
+            out.endArray();
+        }
+        out.endObject();
+    }
+
+    @Override
+    public ServerMessage read(JsonReader in) throws IOException {
+        ServerMessage.ServerMessageType type = null;
+        ChessGame game = null;
+        String message = null;
+        String errorMessage = null;
+        ChessMove bestMove = null;
+        int score = 0;
+        int mateIn = 0;
+        int depth = 0;
+        List<ChessMove> principalVariation = new ArrayList<>();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "serverMessageType" ->
+                        type = JsonEnums.valueOf(ServerMessage.ServerMessageType.class, in.nextString());
+                case "game" -> game = gameAdapter.read(in);
+                case "message" -> message = in.nextString();
+                case "errorMessage" -> errorMessage = in.nextString();
+                case "bestMove" -> bestMove = moveAdapter.read(in);
+                case "score" -> score = in.nextInt();
+                case "mateIn" -> mateIn = in.nextInt();
+                case "depth" -> depth = in.nextInt();
+                case "principalVariation" -> {
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        principalVariation.add(moveAdapter.read(in));
+                    }
+                    in.endArray();
+                }
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        if (type == null) {
+            throw new JsonParseException("Server message needs a serverMessageType");
+        }
+        return switch (type) {
+            case ServerMessage.ServerMessageType.LOAD_GAME -> new LoadGameMessage(type, game);
+            case ServerMessage.ServerMessageType.NOTIFICATION -> new NotificationMessage(type, message);
+            case ServerMessage.ServerMessageType.ERROR -> new ErrorMessage(type, errorMessage);
+            case ServerMessage.ServerMessageType.ANALYSIS ->
+                    new AnalysisMessage(type, bestMove, score, mateIn, depth, principalVariation);
+        };
+    }
+}
@@ -0,0 +1,198 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+import passoff.chess.TestUtilities;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StandardBoardTests {
+
+    @Test
+    @DisplayName("Positions And Pieces Are Canonical")
+    public void positionsAndPiecesAreCanonical() {
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                assertSame(ChessPosition.of(row, col), ChessPosition.of(row, col), "Position not shared");
+                assertEquals(new ChessPosition(row, col), ChessPosition.of(row, col));
+            }
+        }
+        assertNotSame(ChessPosition.of(0, 9), ChessPosition.of(0, 9), "Off-board positions should not be shared");
+        assertEquals(new ChessPosition(0, 9), ChessPosition.of(0, 9));
+
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (ChessPiece.PieceType type : ChessPiece.PieceType.values()) {
+                assertSame(ChessPiece.of(color, type), ChessPiece.of(color, type), "Piece not shared");
+                assertEquals(new ChessPiece(color, type), ChessPiece.of(color, type));
+            }
+        }
+
+        // the board swaps pieces it is given for the shared ones
+        var board = new ChessBoard();
+        board.resetBoard();
+        assertSame(ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING), board.getPiece(new ChessPosition(1, 5)));
+        board.addPiece(new ChessPosition(4, 4), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN));
+        assertSame(ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN), board.getPiece(new ChessPosition(4, 4)));
+    }
+
+    @Test
+    @DisplayName("Off-Board Positions Are Rejected")
+    public void offBoardPositionsRejected() {
+        var board = new ChessBoard();
+        board.resetBoard();
+        ChessPiece queen = ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN);
+        // (0, 9) would otherwise land on a real square
+        assertThrows(IllegalArgumentException.class, () -> board.addPiece(new ChessPosition(0, 9), queen));
+        assertThrows(IllegalArgumentException.class, () -> board.getPiece(new ChessPosition(0, 9)));
+        assertThrows(IllegalArgumentException.class, () -> board.getPiece(new ChessPosition(9, 1)));
+        assertEquals(TestUtilities.defaultBoard(), board);
+    }
+
+    @Test
+    @DisplayName("Unmake Restores Capture")
+    public void unmakeRestoresCapture() {
+        ChessBoard board = TestUtilities.loadBoard("""
+                | | | | |k| | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | |p| | | | |
+                | | | | |P| | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | |K| | | |
+                """);
+        ChessBoard original = copyOf(board);
+
+        board.makeMove(new ChessMove(new ChessPosition(4, 5), new ChessPosition(5, 4), null));
+        assertNull(board.getPiece(new ChessPosition(4, 5)), "Pawn did not leave its square");
+        assertEquals(ChessGame.TeamColor.WHITE, board.getPiece(new ChessPosition(5, 4)).getTeamColor(), "Capture not made");
+
+        board.unmakeMove();
+        assertEquals(original, board, "Board not restored after unmaking a capture");
+        assertEquals(original.getOccupancy(), board.getOccupancy(), "Occupancy mask not restored");
+    }
+
+    @Test
+    @DisplayName("Unmake Restores Castle")
+    public void unmakeRestoresCastle() {
+        ChessBoard board = TestUtilities.loadBoard("""
+                |r| | | |k| | |r|
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                |R| | | |K| | |R|
+                """);
+        ChessBoard original = copyOf(board);
+        ChessPosition kingPosition = new ChessPosition(1, 5);
+
+        board.makeMove(new ChessMove(kingPosition, new ChessPosition(1, 7), null));
+        assertEquals(ChessPiece.PieceType.ROOK, board.getPiece(new ChessPosition(1, 6)).getPieceType(), "Rook did not castle");
+
+        board.unmakeMove();
+        assertEquals(original, board, "Board not restored after unmaking a castle");
+        assertTrue(board.hasCastlingRight(ChessGame.TeamColor.WHITE, true), "Castling right not restored");
+        assertTrue(board.hasCastlingRight(ChessGame.TeamColor.WHITE, false), "Castling right not restored");
+    }
+
+    @Test
+    @DisplayName("Unmake Restores En Passant And Promotion")
+    public void unmakeRestoresEnPassantAndPromotion() {
+        ChessBoard board = TestUtilities.loadBoard("""
+                | | | | |k| | | |
+                | |P| | | | | | |
+                | | | | | | | | |
+                | | |p|P| | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | |K| | | |
+                """);
+        ChessBoard original = copyOf(board);
+
+        board.makeMove(new ChessMove(new ChessPosition(5, 4), new ChessPosition(6, 3), null));
+        assertNull(board.getPiece(new ChessPosition(5, 3)), "En passant victim not removed");
+        board.makeMove(new ChessMove(new ChessPosition(7, 2), new ChessPosition(8, 2), ChessPiece.PieceType.QUEEN));
+        assertEquals(ChessPiece.PieceType.QUEEN, board.getPiece(new ChessPosition(8, 2)).getPieceType(), "Pawn not promoted");
+
+        board.unmakeMove();
+        board.unmakeMove();
+        assertEquals(original, board, "Board not restored after unmaking en passant and promotion");
+    }
+
+    @Test
+    @DisplayName("Zobrist Key Follows Make And Unmake")
+    public void zobristKeyFollowsMakeAndUnmake() {
+        ChessBoard board = TestUtilities.defaultBoard();
+        long startKey = board.getZobristKey();
+
+        board.makeMove(new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null));
+        assertNotEquals(startKey, board.getZobristKey(), "Key did not change after a move");
+        board.makeMove(new ChessMove(new ChessPosition(8, 7), new ChessPosition(6, 6), null));
+        board.makeMove(new ChessMove(new ChessPosition(3, 6), new ChessPosition(1, 7), null));
+        board.makeMove(new ChessMove(new ChessPosition(6, 6), new ChessPosition(8, 7), null));
+        assertEquals(startKey, board.getZobristKey(), "Key differs after knights return home");
+
+        board.unmakeMove();
+        board.unmakeMove();
+        board.unmakeMove();
+        board.unmakeMove();
+        assertEquals(startKey, board.getZobristKey(), "Key not restored by unmake");
+        assertEquals(TestUtilities.defaultBoard().hashCode(), board.hashCode(), "Equal boards hash differently");
+    }
+
+    @Test
+    @DisplayName("Zobrist Key Ignores Move Order")
+    public void zobristKeyIgnoresMoveOrder() {
+        ChessBoard first = TestUtilities.defaultBoard();
+        first.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        first.makeMove(new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null));
+
+        ChessBoard second = TestUtilities.defaultBoard();
+        second.makeMove(new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null));
+        second.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+
+        assertEquals(first.getZobristKey(), second.getZobristKey(), "Transposed boards have different keys");
+        assertEquals(first, second);
+        assertEquals(first.getZobristKey(), copyOf(first).getZobristKey(), "Copied board has a different key");
+    }
+
+    @Test
+    @DisplayName("Zobrist Key Matches A Fresh Board")
+    public void zobristKeyMatchesFreshBoard() throws InvalidMoveException {
+        // built by hand with the kingside rook missing, so only the queenside right is real
+        ChessBoard board = TestUtilities.loadBoard("""
+                |r| | | |k| | |r|
+                |p|p|p| | |p|p|p|
+                | | | | | | | | |
+                | | | |p|p| | | |
+                | | | |P|P| | | |
+                | | | | | | | | |
+                |P|P|P| | |P|P|P|
+                |R| | | |K| | | |
+                """);
+        ChessGame game = ChessGame.fromFen("r3k2r/ppp2ppp/8/3pp3/3PP3/8/PPP2PPP/R3K3 w Qkq - 0 1");
+        assertEquals(game.getBoard().getZobristKey(), board.getZobristKey(), "Missing rook's right in the key");
+        assertEquals(0b1110, board.getCastlingRights());
+
+        // the key is kept up move by move, so it has to keep matching one worked out from scratch
+        for (int ply = 0; ply < 60; ply++) {
+            List<ChessMove> moves = new ArrayList<>(game.legalMoves(game.getTeamTurn()));
+            if (moves.isEmpty()) {
+                break;
+            }
+            game.makeMove(moves.get(ply * 7 % moves.size()));
+            assertEquals(ChessGame.fromFen(game.toFen()).getZobristKey(), game.getZobristKey(), game.toFen());
+        }
+    }
+
+    private ChessBoard copyOf(ChessBoard board) {
+        ChessBoard copy = new ChessBoard();
+        copy.setGivenBoard(board);
+        return copy;
+    }
+}
@@ -0,0 +1,353 @@
+package chess;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import org.junit.jupiter.api.*;
+import passoff.chess.TestUtilities;
+import serialization.Serializers;
+import websocket.commands.UserGameCommand;
+import websocket.messages.*;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StandardGameTests {
+
+    @Test
+    @DisplayName("Zobrist Key Covers Side To Move")
+    public void zobristKeyCoversSideToMove() {
+        ChessGame white = new ChessGame();
+        ChessGame black = new ChessGame();
+        black.setTeamTurn(ChessGame.TeamColor.BLACK);
+
+        assertEquals(white.getBoard().getZobristKey(), black.getBoard().getZobristKey(), "Board keys should match");
+        assertNotEquals(white.getZobristKey(), black.getZobristKey(), "Side to move not in the key");
+        assertNotEquals(white, black);
+    }
+
+    @Test
+    @DisplayName("Zobrist Key Covers Castling Rights")
+    public void zobristKeyCoversCastlingRights() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.setBoard(TestUtilities.loadBoard("""
+                |r| | | |k| | |r|
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                |R| | | |K| | |R|
+                """));
+        long startKey = game.getZobristKey();
+
+        // the rooks shuffle back to their starting squares, but white and black have lost kingside castling
+        game.makeMove(new ChessMove(new ChessPosition(1, 8), new ChessPosition(1, 7), null));
+        game.makeMove(new ChessMove(new ChessPosition(8, 8), new ChessPosition(8, 7), null));
+        game.makeMove(new ChessMove(new ChessPosition(1, 7), new ChessPosition(1, 8), null));
+        game.makeMove(new ChessMove(new ChessPosition(8, 7), new ChessPosition(8, 8), null));
+
+        ChessGame copy = new ChessGame();
+        copy.setBoard(game.getBoard());
+
+        assertEquals(ChessGame.TeamColor.WHITE, game.getTeamTurn());
+        assertNotEquals(startKey, game.getZobristKey(), "Castling rights not in the key");
+        assertEquals(0b1010, game.getBoard().getCastlingRights(), "Only queenside rights should remain");
+        assertEquals(game.getZobristKey(), copy.getZobristKey(), "setBoard dropped the castling rights");
+    }
+
+    @Test
+    @DisplayName("Zobrist Key Covers En Passant")
+    public void zobristKeyCoversEnPassant() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.setBoard(TestUtilities.loadBoard("""
+                | | | | |k| | | |
+                | | |p| | | | | |
+                | | | | | | | | |
+                | | | |P| | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | |K| | | |
+                """));
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        game.makeMove(new ChessMove(new ChessPosition(7, 3), new ChessPosition(5, 3), null));
+
+        ChessGame reached = new ChessGame();
+        reached.setBoard(TestUtilities.loadBoard("""
+                | | | | |k| | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | |p|P| | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | |K| | | |
+                """));
+
+        assertEquals(reached.getBoard(), game.getBoard(), "Pieces should match");
+        assertEquals(3, game.getBoard().getEnPassantFile());
+        assertNotEquals(reached.getZobristKey(), game.getZobristKey(), "En passant not in the key");
+
+        ChessGame copy = new ChessGame();
+        copy.setBoard(game.getBoard());
+        assertEquals(game.getZobristKey(), copy.getZobristKey(), "setBoard dropped the en passant state");
+        assertEquals(game.validMoves(new ChessPosition(5, 4)), copy.validMoves(new ChessPosition(5, 4)));
+    }
+
+    @Test
+    @DisplayName("Halfmove Clock Counts Quiet Moves")
+    public void halfmoveClockCountsQuietMoves() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null));
+        game.makeMove(new ChessMove(new ChessPosition(8, 7), new ChessPosition(6, 6), null));
+        assertEquals(2, game.getBoard().getHalfmoveClock());
+        assertEquals(0, game.getBoard().getEnPassantFile(), "No pawn can capture, so no en passant file");
+
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        assertEquals(0, game.getBoard().getHalfmoveClock(), "Pawn move should reset the clock");
+        game.getBoard().unmakeMove();
+        assertEquals(2, game.getBoard().getHalfmoveClock(), "Unmake should restore the clock");
+    }
+
+    @Test
+    @DisplayName("Evaluate Status Finds Checkmate")
+    public void evaluateStatusFindsCheckmate() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(2, 6), new ChessPosition(3, 6), null));
+        assertEquals(ChessGame.GameStatus.IN_PROGRESS, game.evaluateStatus());
+        game.makeMove(new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null));
+        game.makeMove(new ChessMove(new ChessPosition(2, 7), new ChessPosition(4, 7), null));
+        game.makeMove(new ChessMove(new ChessPosition(8, 4), new ChessPosition(4, 8), null));
+
+        assertEquals(ChessGame.GameStatus.CHECKMATE, game.evaluateStatus());
+        assertTrue(game.isInCheckmate(ChessGame.TeamColor.WHITE));
+        assertFalse(game.isInStalemate(ChessGame.TeamColor.WHITE));
+        assertTrue(game.legalMoves(ChessGame.TeamColor.WHITE).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Evaluate Status Follows Board Edits")
+    public void evaluateStatusFollowsBoardEdits() {
+        ChessGame game = new ChessGame();
+        game.setBoard(TestUtilities.loadBoard("""
+                |k| | | | | | | |
+                | | | | | | | | |
+                | |Q| | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | |K|
+                """));
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        assertEquals(ChessGame.GameStatus.STALEMATE, game.evaluateStatus());
+
+        game.getBoard().addPiece(new ChessPosition(6, 2), null);
+        game.getBoard().addPiece(new ChessPosition(7, 2), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
+        assertEquals(ChessGame.GameStatus.CHECK, game.evaluateStatus(), "Stale status after the board changed");
+        assertEquals(1, game.legalMoves(ChessGame.TeamColor.BLACK).size());
+    }
+
+    @Test
+    @DisplayName("FEN Round Trips")
+    public void fenRoundTrips() {
+        String[] positions = {
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+                "r3k2r/8/8/8/8/8/8/4K2R b Kq - 17 42",
+        };
+        for (String fen : positions) {
+            assertEquals(fen, ChessGame.fromFen(fen).toFen());
+        }
+        assertEquals(new ChessGame(), ChessGame.fromFen(positions[0]));
+        assertEquals(positions[0], new ChessGame().toFen());
+    }
+
+    @Test
+    @DisplayName("FEN Matches Played Game")
+    public void fenMatchesPlayedGame() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        game.makeMove(new ChessMove(new ChessPosition(7, 4), new ChessPosition(5, 4), null));
+        game.makeMove(new ChessMove(new ChessPosition(4, 5), new ChessPosition(5, 5), null));
+        game.makeMove(new ChessMove(new ChessPosition(7, 6), new ChessPosition(5, 6), null));
+
+        String fen = "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3";
+        assertEquals(fen, game.toFen());
+        ChessGame loaded = ChessGame.fromFen(fen);
+        assertEquals(game, loaded);
+        assertEquals(game.getZobristKey(), loaded.getZobristKey());
+        assertTrue(loaded.validMoves(new ChessPosition(5, 5)).contains(
+                new ChessMove(new ChessPosition(5, 5), new ChessPosition(6, 6), null)), "En passant lost in FEN");
+    }
+
+    @Test
+    @DisplayName("FEN Rejects Bad Input")
+    public void fenRejectsBadInput() {
+        String[] bad = {
+                "",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP w KQkq - 0 1",
+                "rnbqkbnr/pppppppp/9/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR x KQkq - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQxq - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq e5 0 1",
+                "rnbqkbnr/pppp1ppp/8/4p3/4P3/8/PPPP1PPP/RNBQKBNR w KQkq e3 0 2",
+                "rnbqkbnr/pppp1ppp/8/4p3/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e6 0 2",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - zero 1",
+                "8/8/8/8/8/8/8/8 w - - 0 1",
+                "k7/8/8/8/8/8/8/KK6 w - - 0 1",
+                "kk6/8/8/8/8/8/8/K7 w - - 0 1",
+                "k6R/8/8/8/8/8/8/K7 w - - 0 1",
+        };
+        for (String fen : bad) {
+            assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen(fen), fen);
+        }
+    }
+
+    @Test
+    @DisplayName("Binary Codec Round Trips")
+    public void binaryCodecRoundTrips() throws InvalidMoveException {
+        ChessGame played = new ChessGame();
+        played.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        played.makeMove(new ChessMove(new ChessPosition(7, 4), new ChessPosition(5, 4), null));
+        played.makeMove(new ChessMove(new ChessPosition(4, 5), new ChessPosition(5, 5), null));
+        played.makeMove(new ChessMove(new ChessPosition(7, 6), new ChessPosition(5, 6), null));
+
+        ChessGame[] games = {
+                new ChessGame(),
+                played,
+                ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1"),
+                ChessGame.fromFen("r3k2r/8/8/8/8/8/8/4K2R b Kq - 17 42"),
+        };
+        ByteBuffer buffer = ByteBuffer.allocate(GameCodec.SIZE * games.length);
+        for (ChessGame game : games) {
+            GameCodec.encode(game, buffer);
+        }
+        assertEquals(buffer.capacity(), buffer.position());
+        buffer.flip();
+        ChessGame reused = new ChessGame();
+        for (ChessGame game : games) {
+            GameCodec.decode(buffer, reused);
+            assertEquals(game, reused);
+            assertEquals(game.getZobristKey(), reused.getZobristKey());
+            assertEquals(game.toFen(), reused.toFen());
+        }
+
+        byte[] corrupt = GameCodec.encode(new ChessGame());
+        corrupt[0] = 99;
+        assertThrows(IllegalArgumentException.class, () -> GameCodec.decode(corrupt));
+    }
+
+    @Test
+    @DisplayName("Gson Reads Games Stored In The Old Reflective Form")
+    public void gsonReadsLegacyGames() {
+        // 1.e4 a6 2.Nf3 Ra7 3.e5 d5 as the old ChessGame stored it: a piece grid with hasMoved flags
+        ChessGame expected = ChessGame.fromFen("1nbqkbnr/rpp1pppp/p7/3pP3/8/5N2/PPPP1PPP/RNBQKB1R w KQk d6 0 1");
+        Set<ChessPosition> moved = Set.of(new ChessPosition(5, 5), new ChessPosition(6, 1), new ChessPosition(3, 6),
+                new ChessPosition(7, 1), new ChessPosition(5, 4));
+        JsonArray rows = new JsonArray();
+        for (int row = 1; row <= 8; row++) {
+            JsonArray cols = new JsonArray();
+            for (int col = 1; col <= 8; col++) {
+                ChessPosition position = new ChessPosition(row, col);
+                ChessPiece piece = expected.getBoard().getPiece(position);
+                if (piece == null) {
+                    cols.add(JsonNull.INSTANCE);
+                    continue;
+                }
+                JsonObject stored = new JsonObject();
+                stored.addProperty("pieceColor", piece.getTeamColor().toString());
+                stored.addProperty("type", piece.getPieceType().toString());
+                stored.addProperty("hasMoved", moved.contains(position));
+                cols.add(stored);
+            }
+            rows.add(cols);
+        }
+        JsonObject chessboard = new JsonObject();
+        chessboard.add("board", rows);
+        chessboard.add("moveManager", new JsonObject());
+        JsonObject doubleMovedPawn = new JsonObject();
+        doubleMovedPawn.addProperty("row", 5);
+        doubleMovedPawn.addProperty("col", 4);
+        JsonObject stored = new JsonObject();
+        stored.add("chessboard", chessboard);
+        stored.addProperty("teamTurn", "WHITE");
+        stored.add("moveFilter", new JsonObject());
+        stored.addProperty("enPassantPossible", true);
+        stored.add("doubleMovedPawn", doubleMovedPawn);
+
+        ChessGame loaded = Serializers.gson().fromJson(stored, ChessGame.class);
+        assertEquals(expected.toFen(), loaded.toFen());
+        assertEquals(expected, loaded);
+        assertTrue(loaded.validMoves(new ChessPosition(5, 5))
+                .contains(new ChessMove(new ChessPosition(5, 5), new ChessPosition(6, 4), null)));
+    }
+
+    @Test
+    @DisplayName("Gson Rejects Unknown Names And Missing Fields")
+    public void gsonRejectsMalformedJson() {
+        Gson gson = Serializers.gson();
+        assertThrows(JsonParseException.class,
+                () -> gson.fromJson("{\"commandType\":\"BOGUS\",\"authToken\":\"a\",\"gameID\":1}",
+                        UserGameCommand.class));
+        assertThrows(JsonParseException.class,
+                () -> gson.fromJson("{\"serverMessageType\":\"BOGUS\"}", ServerMessage.class));
+        assertThrows(JsonParseException.class,
+                () -> gson.fromJson("{\"pieceColor\":\"WHITE\",\"type\":\"DRAGON\"}", ChessPiece.class));
+        assertThrows(JsonParseException.class, () -> gson.fromJson(
+                "{\"startPosition\":{\"row\":7,\"col\":1},\"endPosition\":{\"row\":8,\"col\":1},"
+                        + "\"promotionPiece\":\"DRAGON\"}", ChessMove.class));
+        assertThrows(JsonParseException.class, () -> gson.fromJson("{\"row\":3}", ChessPosition.class));
+    }
+
+    @Test
+    @DisplayName("Gson Adapters Round Trip")
+    public void gsonAdaptersRoundTrip() {
+        Gson gson = Serializers.gson();
+        ChessGame game = ChessGame.fromFen("rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3");
+
+        String json = gson.toJson(new LoadGameMessage(ServerMessage.ServerMessageType.LOAD_GAME, game));
+        assertTrue(json.length() < new Gson().toJson(game).length() / 4, "Adapter output is not compact: " + json);
+        ServerMessage message = gson.fromJson(json, ServerMessage.class);
+        assertInstanceOf(LoadGameMessage.class, message);
+        ChessGame loaded = ((LoadGameMessage) message).getGame();
+        assertEquals(game, loaded);
+        assertEquals(game.getZobristKey(), loaded.getZobristKey());
+
+        ChessBoard board = gson.fromJson(gson.toJson(game.getBoard()), ChessBoard.class);
+        assertEquals(game.getBoard(), board);
+        assertEquals(game.getBoard().getState(), board.getState());
+
+        var error = new ErrorMessage(ServerMessage.ServerMessageType.ERROR, "Error: bad move");
+        assertEquals(error, gson.fromJson(gson.toJson(error), ErrorMessage.class));
+        var notification = new NotificationMessage(ServerMessage.ServerMessageType.NOTIFICATION, "white moved");
+        assertEquals(notification, gson.fromJson(gson.toJson(notification), ServerMessage.class));
+        ChessMove e4 = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        ChessMove e5 = new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null);
+        var analysis = new AnalysisMessage(ServerMessage.ServerMessageType.ANALYSIS, e4, 35, 0, 9, List.of(e4, e5));
+        assertEquals(analysis, gson.fromJson(gson.toJson(analysis), ServerMessage.class));
+        var stalemate = new AnalysisMessage(ServerMessage.ServerMessageType.ANALYSIS, null, 0, 0, 0, List.of());
+        assertEquals(stalemate, gson.fromJson(gson.toJson(stalemate), ServerMessage.class));
+
+        ChessMove move = new ChessMove(new ChessPosition(7, 2), new ChessPosition(8, 1), ChessPiece.PieceType.QUEEN);
+        var command = new UserGameCommand(UserGameCommand.CommandType.MAKE_MOVE, "token", 3, move);
+        UserGameCommand parsed = gson.fromJson(gson.toJson(command), UserGameCommand.class);
+        assertEquals(command, parsed);
+        assertEquals(move, parsed.getMove());
+
+        // clients without the adapters send commands in the reflective shape
+        UserGameCommand reflective = gson.fromJson(new Gson().toJson(command), UserGameCommand.class);
+        assertEquals(move, reflective.getMove());
+        assertNull(gson.fromJson(new Gson().toJson(new UserGameCommand(UserGameCommand.CommandType.CONNECT,
+                "token", 3)), UserGameCommand.class).getMove());
+    }
+}
@@ -0,0 +1,265 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+import passoff.chess.TestUtilities;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StandardMoveGenerationTests {
+
+    private static final String KIWIPETE = """
+            |r| | | |k| | |r|
+            |p| |p|p|q|p|b| |
+            |b|n| | |p|n|p| |
+            | | | |P|N| | | |
+            | |p| | |P| | | |
+            | | |N| | |Q| |p|
+            |P|P|P|B|B|P|P|P|
+            |R| | | |K| | |R|
+            """;
+
+    private static final String ENDGAME = """
+            | | | | | | | | |
+            | | |p| | | | | |
+            | | | |p| | | | |
+            |K|P| | | | | |r|
+            | |R| | | |p| |k|
+            | | | | | | | | |
+            | | | | |P| |P| |
+            | | | | | | | | |
+            """;
+
+    private final ValidMoveFilter moveFilter = new ValidMoveFilter();
+
+    @Test
+    @DisplayName("Perft Initial Position")
+    public void perftInitialPosition() {
+        ChessBoard board = TestUtilities.defaultBoard();
+        assertEquals(20, Perft.count(whiteToMove(board), 1));
+        assertEquals(400, Perft.count(whiteToMove(board), 2));
+        assertEquals(8902, Perft.count(whiteToMove(board), 3));
+        assertEquals(197281, Perft.count(whiteToMove(board), 4));
+    }
+
+    @Test
+    @DisplayName("Perft Kiwipete")
+    public void perftKiwipete() {
+        ChessBoard board = TestUtilities.loadBoard(KIWIPETE);
+        assertEquals(48, Perft.count(whiteToMove(board), 1));
+        assertEquals(2039, Perft.count(whiteToMove(board), 2));
+        assertEquals(97862, Perft.count(whiteToMove(board), 3));
+    }
+
+    @Test
+    @DisplayName("Perft Pins And En Passant")
+    public void perftPinsAndEnPassant() {
+        ChessBoard board = TestUtilities.loadBoard(ENDGAME);
+        assertEquals(14, Perft.count(whiteToMove(board), 1));
+        assertEquals(191, Perft.count(whiteToMove(board), 2));
+        assertEquals(2812, Perft.count(whiteToMove(board), 3));
+        assertEquals(43238, Perft.count(whiteToMove(board), 4));
+    }
+
+    @Test
+    @DisplayName("Generator Matches Trial Move Filter")
+    public void generatorMatchesTrialMoveFilter() {
+        for (String diagram : new String[]{KIWIPETE, ENDGAME}) {
+            ChessBoard board = TestUtilities.loadBoard(diagram);
+            assertEquals(referencePerft(board, ChessGame.TeamColor.WHITE, null, 3),
+                    Perft.count(whiteToMove(board), 3), "Generators disagree on\n" + board);
+        }
+        ChessBoard board = TestUtilities.defaultBoard();
+        assertEquals(referencePerft(board, ChessGame.TeamColor.WHITE, null, 3),
+                Perft.count(whiteToMove(board), 3), "Generators disagree on the initial position");
+    }
+
+    @Test
+    @DisplayName("Team Moves Match Piece Moves")
+    public void teamMovesMatchPieceMoves() {
+        ChessGame game = new ChessGame();
+        game.setBoard(TestUtilities.loadBoard(KIWIPETE));
+        var byPiece = new ArrayList<ChessMove>();
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = game.getBoard().getPiece(new ChessPosition(row, col));
+                if (piece != null && piece.getTeamColor() == ChessGame.TeamColor.WHITE) {
+                    byPiece.addAll(game.validMoves(new ChessPosition(row, col)));
+                }
+            }
+        }
+        Collection<ChessMove> byTeam = game.legalMoves(ChessGame.TeamColor.WHITE);
+        assertEquals(byPiece.size(), byTeam.size(), "Move counts differ");
+        assertTrue(byTeam.containsAll(byPiece), "Team moves are missing piece moves");
+    }
+
+    @Test
+    @DisplayName("Packed Moves Round Trip")
+    public void packedMovesRoundTrip() {
+        ChessMove promotion = new ChessMove(new ChessPosition(7, 2), new ChessPosition(8, 1), ChessPiece.PieceType.KNIGHT);
+        int packed = Moves.of(promotion);
+        assertEquals(Bitboards.square(7, 2), Moves.from(packed));
+        assertEquals(Bitboards.square(8, 1), Moves.to(packed));
+        assertEquals(ChessPiece.PieceType.KNIGHT, Moves.promotion(packed));
+        assertEquals(promotion, Moves.toChessMove(packed | Moves.CAPTURE));
+
+        MoveList list = new MoveList(1);
+        for (int i = 0; i < 100; i++) {
+            list.add(Moves.encode(i % 64, 63 - i % 64, 0));
+        }
+        assertEquals(100, list.size());
+        assertEquals(Bitboards.square(8, 8), Moves.to(list.get(0)));
+        list.clear();
+        assertTrue(list.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Perft Published Positions")
+    public void perftPublishedPositions() {
+        assertEquals(9467, Perft.count(ChessGame.fromFen(
+                "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1"), 3));
+        assertEquals(62379, Perft.count(ChessGame.fromFen(
+                "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8"), 3));
+        assertEquals(89890, Perft.count(ChessGame.fromFen(
+                "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10"), 3));
+        assertEquals(1, Perft.count(new ChessGame(), 0));
+    }
+
+    @Test
+    @DisplayName("Divide Sums To Perft")
+    public void divideSumsToPerft() {
+        ChessGame game = ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        String before = game.toFen();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Map<ChessMove, Long> divide = Perft.divide(game, 3, pool);
+            assertEquals(48, divide.size());
+            assertEquals(97862, divide.values().stream().mapToLong(Long::longValue).sum());
+            ChessMove castle = new ChessMove(new ChessPosition(1, 5), new ChessPosition(1, 7), null);
+            assertEquals(2059, divide.get(castle));
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(before, game.toFen(), "Divide changed the game");
+    }
+
+    @Test
+    @DisplayName("Capture Generation Matches Filtered Moves")
+    public void captureGenerationMatchesFilteredMoves() {
+        String[] positions = {
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+        };
+        for (String fen : positions) {
+            ChessGame game = ChessGame.fromFen(fen);
+            assertCapturesMatch(game.getBoard(), game.getTeamTurn(), 2);
+        }
+    }
+
+    /**
+     * Checks at every node down to a depth that generateCaptures gives exactly the captures and promotions
+     * among the legal moves
+     */
+    private void assertCapturesMatch(ChessBoard board, ChessGame.TeamColor turn, int depth) {
+        LegalMoveGenerator generator = new LegalMoveGenerator();
+        MoveList all = new MoveList();
+        generator.generate(board, turn, board.getEnPassantSquare(turn), all);
+        MoveList captures = new MoveList();
+        generator.generateCaptures(board, turn, board.getEnPassantSquare(turn), captures);
+
+        var expected = new ArrayList<Integer>();
+        for (int i = 0; i < all.size(); i++) {
+            if (Moves.has(all.get(i), Moves.CAPTURE) || Moves.promotion(all.get(i)) != null) {
+                expected.add(all.get(i));
+            }
+        }
+        var actual = new ArrayList<Integer>();
+        for (int i = 0; i < captures.size(); i++) {
+            actual.add(captures.get(i));
+        }
+        expected.sort(null);
+        actual.sort(null);
+        assertEquals(expected, actual);
+
+        if (depth > 1) {
+            for (int i = 0; i < all.size(); i++) {
+                board.makeMove(all.get(i));
+                assertCapturesMatch(board, opposite(turn), depth - 1);
+                board.unmakeMove();
+            }
+        }
+    }
+
+    /**
+     * Counts the leaf nodes of the legal move tree the way validMoves used to: generate pseudo-legal
+     * moves per piece, play each on the board and reject those that leave the king in check
+     */
+    private long referencePerft(ChessBoard board, ChessGame.TeamColor turn, ChessPosition epVictim, int depth) {
+        var moves = new ArrayList<ChessMove>();
+        ChessGame.TeamColor enemy = opposite(turn);
+        for (int square = 0; square < 64; square++) {
+            ChessPiece piece = board.getPiece(square);
+            if (piece == null || piece.getTeamColor() != turn) {
+                continue;
+            }
+            ChessPosition start = new ChessPosition(Bitboards.rowOf(square), Bitboards.colOf(square));
+            var candidates = new ArrayList<>(piece.pieceMoves(board, start));
+            if (piece.getPieceType() == ChessPiece.PieceType.PAWN && epVictim != null
+                    && start.getRow() == epVictim.getRow() && Math.abs(start.getColumn() - epVictim.getColumn()) == 1) {
+                int row = epVictim.getRow() == 4 ? 3 : 6;
+                candidates.add(new ChessMove(start, new ChessPosition(row, epVictim.getColumn()), null));
+            }
+            for (ChessMove move : candidates) {
+                if (piece.getPieceType() == ChessPiece.PieceType.KING && board.getMoveManager().kingWantsCastle(move)) {
+                    int step = move.getEndPosition().getColumn() > start.getColumn() ? 1 : -1;
+                    boolean safe = true;
+                    for (int col = start.getColumn(); col != move.getEndPosition().getColumn() + step; col += step) {
+                        safe &= !moveFilter.isSquareAttacked(board, Bitboards.square(start.getRow(), col), enemy);
+                    }
+                    if (safe) {
+                        moves.add(move);
+                    }
+                    continue;
+                }
+                board.makeMove(move);
+                long kings = board.getPieceBitboard(turn, ChessPiece.PieceType.KING);
+                if (!moveFilter.isSquareAttacked(board, Long.numberOfTrailingZeros(kings), enemy)) {
+                    moves.add(move);
+                }
+                board.unmakeMove();
+            }
+        }
+        if (depth == 1) {
+            return moves.size();
+        }
+        long nodes = 0;
+        for (ChessMove move : moves) {
+            ChessPosition nextVictim = doubleMove(board, move) ? move.getEndPosition() : null;
+            board.makeMove(move);
+            nodes += referencePerft(board, enemy, nextVictim, depth - 1);
+            board.unmakeMove();
+        }
+        return nodes;
+    }
+
+    private static ChessGame whiteToMove(ChessBoard board) {
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn(ChessGame.TeamColor.WHITE);
+        return game;
+    }
+
+    private boolean doubleMove(ChessBoard board, ChessMove move) {
+        return board.getPiece(move.getStartPosition()).getPieceType() == ChessPiece.PieceType.PAWN
+                && Math.abs(move.getStartPosition().getRow() - move.getEndPosition().getRow()) == 2;
+    }
+
+    private ChessGame.TeamColor opposite(ChessGame.TeamColor color) {
+        return color == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+    }
+}
@@ -0,0 +1,129 @@
+package chess.engine;
+
+import chess.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StandardOpeningBookTests {
+
+    private static final String PGN = """
+            [Event "Casual"]
+            [Result "1-0"]
+
+            1. e4 e5 2. Nf3 {the usual} Nc6 3. Bb5 a6 (3... Nf6 4. O-O) 4. Ba4 Nf6 5. O-O Be7 1-0
+
+            [Event "Casual"]
+            [Result "1/2-1/2"]
+
+            1.e4 c5 2.Nf3 d6 3.d4 cxd4 4.Nxd4 Nf6 5.Nc3 a6 $1 ; Najdorf
+            6.Be3 e5 7.Nb3 Be6 1/2-1/2
+
+            [Event "Casual"]
+            [Result "0-1"]
+
+            1. d4 d5 2. c4 e6 3. Nc3 Nf6 0-1
+
+            [Event "Composed"]
+            [SetUp "1"]
+            [FEN "4k3/8/8/8/8/8/8/4K3 w - - 0 1"]
+
+            1. Kd2 Kd7 *
+            """;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Builds And Probes A Book From PGN")
+    public void buildsAndProbesFromPgn() throws IOException {
+        var builder = new OpeningBookBuilder(OpeningBookBuilder.DEFAULT_MAX_PLY);
+        builder.addPgn(new StringReader(PGN));
+        assertEquals(3, builder.games());
+        assertEquals(1, builder.skippedGames(), "The game from a set up position should be left out");
+        Path path = directory.resolve("book.bin");
+        int entries = builder.write(path);
+        assertEquals(Files.size(path), 8 + 16L * entries);
+
+        OpeningBook book = OpeningBook.open(path);
+        assertEquals(entries, book.size());
+        var game = new ChessGame();
+        List<OpeningBook.BookMove> moves = book.moves(game);
+        // e4 won once and drew once, d4 lost and isn't in the book
+        assertEquals(1, moves.size());
+        assertEquals(move(2, 5, 4, 5), moves.get(0).move());
+        assertEquals(3, moves.get(0).weight());
+
+        try {
+            game.makeMove(move(2, 5, 4, 5));
+            game.makeMove(move(7, 3, 5, 3));
+            game.makeMove(move(1, 7, 3, 6));
+        } catch (InvalidMoveException ex) {
+            fail(ex);
+        }
+        assertEquals(move(7, 4, 6, 4), book.bestMove(game), "1. e4 c5 2. Nf3 should be answered with d6");
+
+        assertNull(book.bestMove(ChessGame.fromFen("4k3/8/8/8/8/8/8/4K3 w - - 0 1")));
+        assertNull(OpeningBook.empty().pick(new ChessGame(), new Random(1)));
+    }
+
+    @Test
+    @DisplayName("Picks Moves In Proportion To Weight")
+    public void picksByWeight() throws IOException {
+        var builder = new OpeningBookBuilder(1);
+        var start = new ChessGame();
+        builder.add(start, move(2, 5, 4, 5), 3);
+        builder.add(start, move(2, 4, 4, 4), 1);
+        Path path = directory.resolve("weighted.bin");
+        builder.write(path);
+        OpeningBook book = OpeningBook.open(path);
+
+        var random = new Random(42);
+        int e4 = 0;
+        for (int i = 0; i < 4000; i++) {
+            if (book.pick(start, random).equals(move(2, 5, 4, 5))) {
+                e4++;
+            }
+        }
+        assertTrue(e4 > 2700 && e4 < 3300, "e4 picked " + e4 + " times out of 4000");
+    }
+
+    @Test
+    @DisplayName("Reads Standard Algebraic Notation")
+    public void readsSan() {
+        var builder = new OpeningBookBuilder(1);
+        // white can castle both ways, take en passant on d6, promote on b8 and has knights on c3 and g3 that reach e4
+        ChessGame game = ChessGame.fromFen("2r1k3/1P6/8/3pP3/8/2N3N1/8/R3K2R w KQ d6 0 1");
+        ChessBoard board = game.getBoard();
+        ChessGame.TeamColor white = ChessGame.TeamColor.WHITE;
+
+        assertEquals(6, Moves.to(builder.parseSan(board, white, "O-O")));
+        assertEquals(2, Moves.to(builder.parseSan(board, white, "O-O-O+")));
+        assertEquals(43, Moves.to(builder.parseSan(board, white, "exd6")));
+        assertEquals(ChessPiece.PieceType.QUEEN, Moves.promotion(builder.parseSan(board, white, "bxc8=Q+")));
+        assertEquals(ChessPiece.PieceType.KNIGHT, Moves.promotion(builder.parseSan(board, white, "b8N")));
+        assertEquals(0, builder.parseSan(board, white, "Ne4"), "Two knights reach e4, so Ne4 is ambiguous");
+        assertEquals(18, Moves.from(builder.parseSan(board, white, "Nce4")));
+        assertEquals(0, builder.parseSan(board, white, "Qd4"), "White has no queen");
+        assertEquals(0, builder.parseSan(board, white, "e9"));
+    }
+
+    /**
+     * @param fromRow start row
+     * @param fromCol start column
+     * @param toRow   end row
+     * @param toCol   end column
+     * @return a move with no promotion
+     */
+    private static ChessMove move(int fromRow, int fromCol, int toRow, int toCol) {
+        return new ChessMove(new ChessPosition(fromRow, fromCol), new ChessPosition(toRow, toCol), null);
+    }
+}
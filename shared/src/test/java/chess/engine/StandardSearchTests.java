@@ -0,0 +1,205 @@
+package chess.engine;
+
+import chess.*;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StandardSearchTests {
+
+    private final Search search = new Search();
+
+    @Test
+    @DisplayName("Finds Mate In One")
+    public void findsMateInOne() {
+        ChessGame game = ChessGame.fromFen("6k1/5ppp/8/8/8/8/5PPP/R5K1 w - - 0 1");
+        SearchResult result = search.search(game, 2000, 4);
+        assertEquals(new ChessMove(new ChessPosition(1, 1), new ChessPosition(8, 1), null), result.bestMove());
+        assertTrue(result.isMate(), "Mate not scored as mate: " + result.score());
+        assertTrue(result.score() > 0);
+    }
+
+    @Test
+    @DisplayName("Finds Mate In Two")
+    public void findsMateInTwo() {
+        // 1. Ra7 leaves the king only g8, then 2. Rb8 is mate
+        ChessGame game = ChessGame.fromFen("7k/8/8/8/8/8/R7/1R4K1 w - - 0 1");
+        SearchResult result = search.search(game, 5000, 4);
+        assertTrue(result.isMate(), "Mate in two not found, score " + result.score() + " move " + result.bestMove());
+        assertEquals(2, result.mateIn());
+    }
+
+    @Test
+    @DisplayName("Principal Variation Plays Out The Mate")
+    public void principalVariationPlaysOutMate() throws InvalidMoveException {
+        ChessGame game = ChessGame.fromFen("7k/8/8/8/8/8/R7/1R4K1 w - - 0 1");
+        SearchResult result = search.search(game, 5000, 4);
+        var line = search.principalVariation(game, result.bestMove(), 10);
+        assertEquals(result.bestMove(), line.get(0));
+        assertEquals(3, line.size(), "Mate in two is three plies: " + line);
+        for (ChessMove move : line) {
+            game.makeMove(move);
+        }
+        assertTrue(game.isInCheckmate(ChessGame.TeamColor.BLACK));
+        assertTrue(search.principalVariation(game, null, 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Wins Hanging Queen")
+    public void winsHangingQueen() {
+        ChessGame game = ChessGame.fromFen("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1");
+        SearchResult result = search.search(game, 2000, 3);
+        assertEquals(new ChessMove(new ChessPosition(2, 4), new ChessPosition(5, 4), null), result.bestMove());
+        assertTrue(result.score() > 300, "Score after winning a queen: " + result.score());
+    }
+
+    @Test
+    @DisplayName("Avoids Poisoned Capture")
+    public void avoidsPoisonedCapture() {
+        // the knight on d5 is defended by the e6 pawn, so Qxd5 loses the queen
+        ChessGame game = ChessGame.fromFen("4k3/8/4p3/3n4/8/8/3Q4/4K3 w - - 0 1");
+        SearchResult result = search.search(game, 2000, 2);
+        assertNotEquals(new ChessMove(new ChessPosition(2, 4), new ChessPosition(5, 4), null), result.bestMove());
+    }
+
+    @Test
+    @DisplayName("No Moves Reports Mate Or Stalemate")
+    public void noMovesReportsMateOrStalemate() {
+        SearchResult mated = search.search(ChessGame.fromFen("R5k1/5ppp/8/8/8/8/5PPP/6K1 b - - 0 1"), 100);
+        assertNull(mated.bestMove());
+        assertEquals(-Search.MATE, mated.score());
+
+        SearchResult stalemate = search.search(ChessGame.fromFen("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1"), 100);
+        assertNull(stalemate.bestMove());
+        assertEquals(0, stalemate.score());
+    }
+
+    @Test
+    @DisplayName("Respects Time Budget")
+    public void respectsTimeBudget() {
+        ChessGame game = ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        String before = game.toFen();
+        SearchResult result = search.search(game, 200);
+        assertTrue(result.elapsedNanos() < 1_000_000_000L, "Search took " + result.elapsedNanos() / 1_000_000 + " ms");
+        assertTrue(result.depth() >= 1);
+        assertTrue(result.nodes() > 0 && result.nodesPerSecond() > 0);
+        assertTrue(game.legalMoves(ChessGame.TeamColor.WHITE).contains(result.bestMove()), "Illegal move " + result.bestMove());
+        assertEquals(before, game.toFen(), "Search changed the game");
+    }
+
+    @Test
+    @DisplayName("Parallel Search Agrees And Stops Together")
+    public void parallelSearchAgreesAndStopsTogether() {
+        try (var parallel = new ParallelSearch(new TranspositionTable(4), 4)) {
+            SearchResult mate = parallel.search(ChessGame.fromFen("7k/8/8/8/8/8/R7/1R4K1 w - - 0 1"), 5000, 6, 4);
+            assertTrue(mate.isMate(), "Mate in two not found, score " + mate.score());
+
+            ChessGame game = ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+            SearchResult result = parallel.search(game, 200, Search.MAX_PLY, 8);
+            assertTrue(result.elapsedNanos() < 1_000_000_000L, "Search took " + result.elapsedNanos() / 1_000_000 + " ms");
+            assertTrue(game.legalMoves(ChessGame.TeamColor.WHITE).contains(result.bestMove()), "Illegal move " + result.bestMove());
+
+            SearchResult single = parallel.search(game, 10_000, 3, 1);
+            assertEquals(3, single.depth());
+        }
+    }
+
+    @Test
+    @DisplayName("Incremental Evaluation Matches A Full Scan")
+    public void incrementalEvaluationMatchesScan() {
+        var evaluator = new Evaluator();
+        ChessGame start = new ChessGame();
+        assertEquals(0, evaluator.whiteScore(start.getBoard()), "Starting position should be level");
+        assertEquals(PieceSquareTables.MAX_PHASE, start.getBoard().getGamePhase());
+
+        // castling and en passant both turn up below Kiwipete within three plies
+        ChessGame game = ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        ChessBoard board = game.getBoard();
+        int before = evaluator.evaluate(board, ChessGame.TeamColor.WHITE);
+        checkEvaluation(evaluator, board, ChessGame.TeamColor.WHITE, 3);
+        assertEquals(before, evaluator.evaluate(board, ChessGame.TeamColor.WHITE), "Unmake didn't restore the score");
+
+        ChessBoard copy = new ChessBoard();
+        copy.setGivenBoard(board);
+        assertEquals(before, evaluator.evaluate(copy, ChessGame.TeamColor.WHITE), "Copy lost the running sums");
+        assertEquals(-before, evaluator.evaluate(copy, ChessGame.TeamColor.BLACK));
+    }
+
+    /**
+     * Compares evaluate with evaluateByScan at every node of the legal move tree
+     *
+     * @param evaluator  evaluator under test
+     * @param board      position to check from, restored before returning
+     * @param sideToMove side to move
+     * @param depth      plies left to walk
+     */
+    private static void checkEvaluation(Evaluator evaluator, ChessBoard board, ChessGame.TeamColor sideToMove, int depth) {
+        assertEquals(evaluator.evaluateByScan(board, sideToMove), evaluator.evaluate(board, sideToMove),
+                "Running sums drifted from the board");
+        if (depth == 0) {
+            return;
+        }
+        var moves = new MoveList();
+        new LegalMoveGenerator().generate(board, sideToMove, board.getEnPassantSquare(sideToMove), moves);
+        ChessGame.TeamColor next = sideToMove == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        for (int i = 0; i < moves.size(); i++) {
+            board.makeMove(moves.get(i));
+            checkEvaluation(evaluator, board, next, depth - 1);
+            board.unmakeMove();
+        }
+    }
+
+    @Test
+    @DisplayName("Static Exchange Counts Defenders And X-Rays")
+    public void staticExchange() {
+        // d2 to d5 on each board
+        assertEquals(-580, exchangeOnD5("4k3/8/4p3/3n4/8/8/3Q4/4K3 w - - 0 1"), "Queen takes a knight defended by a pawn");
+        assertEquals(320, exchangeOnD5("4k3/8/8/3n4/8/8/3Q4/4K3 w - - 0 1"), "Queen takes a loose knight");
+        // the rook on d1 backs up the rook on d2 once d2 has moved
+        assertEquals(100, exchangeOnD5("4k3/3r4/8/3p4/8/8/3R4/3RK3 w - - 0 1"), "Doubled rooks win the pawn");
+        assertEquals(-400, exchangeOnD5("4k3/3r4/8/3p4/8/8/3R4/4K3 w - - 0 1"), "A single rook loses the exchange");
+    }
+
+    @Test
+    @DisplayName("Killer Moves Sort Before Other Quiet Moves")
+    public void killerMovesSortFirst() {
+        var board = new ChessBoard();
+        board.resetBoard();
+        var generator = new LegalMoveGenerator();
+        var orderer = new MoveOrderer(board, generator, Search.MAX_PLY);
+        var moves = new MoveList();
+        generator.generate(board, ChessGame.TeamColor.WHITE, -1, moves);
+
+        int killer = moves.get(moves.size() - 1);
+        orderer.recordCutoff(killer, 3, 4, ChessGame.TeamColor.WHITE);
+        orderer.score(moves, 3, 0, ChessGame.TeamColor.WHITE);
+        assertEquals(killer, orderer.pickNext(moves, 3, 0));
+
+        int hashMove = moves.get(moves.size() - 1);
+        orderer.score(moves, 3, hashMove, ChessGame.TeamColor.WHITE);
+        assertEquals(hashMove, orderer.pickNext(moves, 3, 0), "Hash move should come before a killer");
+
+        // killers are kept per ply, but the history table still puts the move first at another ply
+        orderer.newSearch();
+        orderer.score(moves, 5, 0, ChessGame.TeamColor.WHITE);
+        assertEquals(killer, orderer.pickNext(moves, 5, 0), "History should outlast a new search");
+    }
+
+    /**
+     * @param fen position with a white piece on d2 that can capture on d5
+     * @return the static exchange value of the capture
+     */
+    private static int exchangeOnD5(String fen) {
+        ChessGame game = ChessGame.fromFen(fen);
+        var orderer = new MoveOrderer(game.getBoard(), new LegalMoveGenerator(), Search.MAX_PLY);
+        var moves = new MoveList();
+        ChessBoard board = game.getBoard();
+        new LegalMoveGenerator().generate(board, ChessGame.TeamColor.WHITE, -1, moves);
+        for (int i = 0; i < moves.size(); i++) {
+            if (Moves.from(moves.get(i)) == 11 && Moves.to(moves.get(i)) == 35) {
+                return orderer.staticExchange(moves.get(i));
+            }
+        }
+        throw new IllegalStateException("No capture from d2 to d5 in " + fen);
+    }
+}
@@ -0,0 +1,136 @@
+package chess.engine;
+
+import chess.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StandardTablebaseTests {
+
+    private static TablebaseGenerator generator;
+
+    @TempDir
+    Path directory;
+
+    @BeforeAll
+    public static void generate() {
+        generator = new TablebaseGenerator();
+        generator.generate("KQK");
+        generator.generate("KRK");
+        generator.generate("KPK");
+    }
+
+    @Test
+    @DisplayName("Generated Tables Have The Known Longest Mates")
+    public void knownLongestMates() {
+        // mate in 10 moves with a queen and 16 with a rook, from the worst square with the lone king to move
+        assertEquals(20, TablebaseGenerator.longestMate(generator.generate("KQK")));
+        assertEquals(32, TablebaseGenerator.longestMate(generator.generate("KRK")));
+        assertEquals(0, TablebaseGenerator.longestMate(generator.generate("KNK")), "A knight can't mate alone");
+    }
+
+    @Test
+    @DisplayName("Probes Mapped Tables With Either Side Stronger")
+    public void probesMappedTables() throws IOException {
+        generator.write(directory);
+        Tablebase tablebase = Tablebase.open(directory);
+        assertTrue(tablebase.signatures().containsAll(List.of("KQK", "KRK", "KPK", "KK")));
+
+        assertEquals(new Tablebase.Result(Tablebase.Outcome.LOSS, 0),
+                tablebase.probe(ChessGame.fromFen("k7/1Q6/1K6/8/8/8/8/8 b - - 0 1")), "Already mated");
+        assertEquals(new Tablebase.Result(Tablebase.Outcome.WIN, 1),
+                tablebase.probe(ChessGame.fromFen("k7/7Q/1K6/8/8/8/8/8 w - - 0 1")), "Qb7 mates");
+        assertEquals(new Tablebase.Result(Tablebase.Outcome.WIN, 1),
+                tablebase.probe(ChessGame.fromFen("8/8/8/8/8/1k6/7q/K7 b - - 0 1")), "Black's Qb2 mates");
+        assertEquals(new Tablebase.Result(Tablebase.Outcome.DRAW, 0),
+                tablebase.probe(ChessGame.fromFen("4k3/4P3/4K3/8/8/8/8/8 b - - 0 1")), "Stalemate");
+
+        // the black king is outside the pawn's square
+        Tablebase.Result race = tablebase.probe(ChessGame.fromFen("8/8/8/8/8/k7/7P/7K w - - 0 1"));
+        assertEquals(Tablebase.Outcome.WIN, race.outcome());
+        assertEquals(1, race.pliesToMate() % 2);
+        // with black to move it reaches the square and the pawn falls
+        assertEquals(Tablebase.Outcome.DRAW,
+                tablebase.probe(ChessGame.fromFen("8/8/8/8/8/1k6/7P/7K b - - 0 1")).outcome());
+
+        assertNull(tablebase.probe(new ChessGame()), "Too many pieces");
+        assertNull(tablebase.probe(ChessGame.fromFen("4k3/8/8/8/8/8/8/R3K3 w Q - 0 1")), "Castling rights");
+        assertNull(Tablebase.empty().probe(ChessGame.fromFen("k7/7Q/1K6/8/8/8/8/8 w - - 0 1")));
+    }
+
+    @Test
+    @DisplayName("Every Move From A Won Position Keeps The Result Consistent")
+    public void resultsAgreeWithMoves() throws IOException {
+        generator.write(directory);
+        Tablebase tablebase = Tablebase.open(directory);
+        ChessGame game = ChessGame.fromFen("8/8/8/3k4/8/8/8/R3K3 w - - 0 1");
+        Tablebase.Result result = tablebase.probe(game);
+        assertEquals(Tablebase.Outcome.WIN, result.outcome());
+
+        // the best reply to a win is a loss one ply shorter, and no reply is a faster loss for the opponent
+        ChessBoard board = game.getBoard();
+        int fastest = Integer.MAX_VALUE;
+        for (ChessMove move : game.legalMoves(ChessGame.TeamColor.WHITE)) {
+            board.makeMove(move);
+            Tablebase.Result reply = tablebase.probe(board, ChessGame.TeamColor.BLACK);
+            board.unmakeMove();
+            if (reply.outcome() == Tablebase.Outcome.LOSS) {
+                fastest = Math.min(fastest, reply.pliesToMate());
+            }
+        }
+        assertEquals(result.pliesToMate() - 1, fastest);
+    }
+
+    @Test
+    @DisplayName("Search Scores Tablebase Positions As Mates")
+    public void searchUsesTablebase() throws IOException {
+        generator.write(directory);
+        Tablebase tablebase = Tablebase.open(directory);
+        ChessGame game = ChessGame.fromFen("8/8/8/3k4/8/8/8/R3K3 w - - 0 1");
+        int plies = tablebase.probe(game).pliesToMate();
+
+        var search = new Search(new TranspositionTable(1), tablebase);
+        SearchResult result = search.search(game, 5000, 2);
+        assertEquals(Search.MATE - plies, result.score());
+        assertTrue(result.isMate());
+    }
+
+    @Test
+    @DisplayName("Long Tablebase Mates Deep In The Tree Stay Mate Scores")
+    public void longTablebaseMatesStayMates() {
+        // the longest KBNK win, 66 plies, reached 100 plies from the root
+        int win = Search.tablebaseMateScore(100, 65);
+        int loss = Search.tablebaseMateScore(100, 66);
+        assertTrue(new SearchResult(null, win, 1, 0, 0).isMate(), "Win fell out of the mate band: " + win);
+        assertTrue(new SearchResult(null, loss, 1, 0, 0).isMate(), "Loss fell out of the mate band: " + loss);
+        assertTrue(win > 0 && loss < 0);
+
+        // short enough mates keep their exact distance
+        assertEquals(Search.MATE - 5 - 19, Search.tablebaseMateScore(5, 19));
+        assertEquals(-Search.MATE + 5 + 20, Search.tablebaseMateScore(5, 20));
+
+        var table = new TranspositionTable(1);
+        table.store(42L, 0, win, 3, TranspositionTable.EXACT, 100);
+        assertEquals(win, TranspositionTable.score(table.probe(42L), 100));
+    }
+
+    @Test
+    @DisplayName("Illegal Positions Have No Result")
+    public void illegalPositionsHaveNoResult() throws IOException {
+        generator.write(directory);
+        Tablebase tablebase = Tablebase.open(directory);
+        // white to move with the black king already in check from the queen
+        var board = new ChessBoard();
+        board.addPiece(new ChessPosition(1, 1), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        board.addPiece(new ChessPosition(8, 8), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
+        board.addPiece(new ChessPosition(1, 8), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        assertEquals(Tablebase.ILLEGAL, tablebase.probeValue(board, ChessGame.TeamColor.WHITE));
+        assertNull(tablebase.probe(board, ChessGame.TeamColor.WHITE));
+        assertNotNull(tablebase.probe(board, ChessGame.TeamColor.BLACK));
+    }
+}
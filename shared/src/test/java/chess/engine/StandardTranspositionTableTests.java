@@ -0,0 +1,105 @@
+package chess.engine;
+
+import chess.*;
+import org.junit.jupiter.api.*;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StandardTranspositionTableTests {
+
+    @Test
+    @DisplayName("Store Then Probe")
+    public void storeThenProbe() {
+        var table = new TranspositionTable(1);
+        assertEquals(1 << 16, table.capacity());
+        long key = 7L | 1L << 60;
+        assertEquals(0, table.probe(key));
+
+        int move = Moves.encode(12, 28, Moves.DOUBLE_PUSH);
+        table.store(key, move, -150, 7, TranspositionTable.LOWER, 3);
+        long data = table.probe(key);
+        assertEquals(move, TranspositionTable.move(data));
+        assertEquals(-150, TranspositionTable.score(data, 3));
+        assertEquals(7, TranspositionTable.depth(data));
+        assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(data));
+        assertEquals(0.5, table.hitRate());
+        assertTrue(table.fill() > 0);
+
+        // same bucket, different key
+        assertEquals(0, table.probe(key ^ 1L << 56));
+    }
+
+    @Test
+    @DisplayName("Mate Scores Are Stored Relative To The Position")
+    public void mateScoresAreRelative() {
+        var table = new TranspositionTable(1);
+        table.store(42L, 0, Search.MATE - 5, 3, TranspositionTable.EXACT, 2);
+        // mate three plies below the stored position, seen from a position four plies from the root
+        assertEquals(Search.MATE - 7, TranspositionTable.score(table.probe(42L), 4));
+    }
+
+    @Test
+    @DisplayName("Deeper Entries Survive Until They Age")
+    public void deeperEntriesSurviveUntilTheyAge() {
+        var table = new TranspositionTable(1);
+        // the bucket index only uses the low bits, so these three keys share a bucket
+        long deep = 5L;
+        long shallow = 5L | 1L << 50;
+        long newer = 5L | 2L << 50;
+
+        table.store(deep, 0, 10, 12, TranspositionTable.EXACT, 0);
+        table.store(shallow, 0, 20, 2, TranspositionTable.EXACT, 0);
+        table.store(newer, 0, 30, 3, TranspositionTable.EXACT, 0);
+        assertNotEquals(0, table.probe(deep), "Deep entry was replaced by a shallower one");
+        assertEquals(0, table.probe(shallow), "Always-replace slot kept the older entry");
+        assertNotEquals(0, table.probe(newer));
+
+        table.newSearch();
+        table.store(shallow, 0, 20, 2, TranspositionTable.EXACT, 0);
+        assertEquals(0, table.probe(deep), "Entry from an old search was not replaced");
+        assertNotEquals(0, table.probe(shallow));
+    }
+
+    @Test
+    @DisplayName("Concurrent Writers Never Produce A Wrong Hit")
+    public void concurrentWritersNeverProduceAWrongHit() throws InterruptedException {
+        var table = new TranspositionTable(1);
+        var wrongHit = new AtomicBoolean();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int seed = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 200_000; i++) {
+                    // keys collide on a handful of buckets; each key's move is derived from the key
+                    long key = (long) (i % 64) | (long) ((i * 31 + seed) % 1000) << 32;
+                    int expectedMove = (int) (key >>> 32) & 0x3FFF;
+                    table.store(key, expectedMove, 0, i % 20, TranspositionTable.EXACT, 0);
+                    long data = table.probe(key);
+                    if (data != 0 && TranspositionTable.move(data) != expectedMove) {
+                        wrongHit.set(true);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertFalse(wrongHit.get(), "A probe returned another key's data");
+    }
+
+    @Test
+    @DisplayName("Search Reuses The Table")
+    public void searchReusesTheTable() {
+        var table = new TranspositionTable(4);
+        var search = new Search(table);
+        ChessGame game = ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        SearchResult first = search.search(game, 10_000, 4);
+        assertTrue(table.hitRate() > 0);
+        SearchResult second = search.search(game, 10_000, 4);
+        assertTrue(second.nodes() < first.nodes(), "Second search did not benefit from the table");
+        assertTrue(game.legalMoves(ChessGame.TeamColor.WHITE).contains(second.bestMove()));
+    }
+}